@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Compara tempo de startup e memória (RSS) do jar na JVM com o binário nativo.
+# Pré-requisitos: ./mvnw -DskipTests package  e  ./mvnw -Pnative -DskipTests native:compile
+# Uso (com as mesmas variáveis de ambiente de uma execução normal: JWT_SECRET, TOKEN_SECRET, API_KEY...):
+#   scripts/comparar-startup.sh [rodadas]
+set -euo pipefail
+
+RODADAS="${1:-5}"
+PORTA="${PORTA:-18080}"
+JAR="target/financeira-0.0.1-SNAPSHOT.jar"
+NATIVO="target/financeira"
+
+medir() {
+  local nome="$1"; shift
+  local total_ms=0 total_rss=0
+  for i in $(seq 1 "$RODADAS"); do
+    rm -f /tmp/financeira-startup.db
+    local inicio fim pid
+    inicio=$(date +%s%N)
+    SERVER_PORT="$PORTA" SPRING_DATASOURCE_URL="jdbc:sqlite:/tmp/financeira-startup.db" "$@" > /tmp/financeira-startup.log 2>&1 &
+    pid=$!
+    # Pronto = health respondendo (inclui ddl-auto e conexão com o banco)
+    until curl -sf "http://localhost:$PORTA/public/health" > /dev/null; do
+      kill -0 "$pid" 2> /dev/null || { echo "$nome não subiu; veja /tmp/financeira-startup.log"; exit 1; }
+      sleep 0.02
+    done
+    fim=$(date +%s%N)
+    local rss
+    rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+    kill "$pid"; wait "$pid" 2> /dev/null || true
+    total_ms=$(( total_ms + (fim - inicio) / 1000000 ))
+    total_rss=$(( total_rss + rss ))
+  done
+  printf "%-8s startup médio: %6d ms   RSS após startup: %6d MB\n" \
+    "$nome" $(( total_ms / RODADAS )) $(( total_rss / RODADAS / 1024 ))
+}
+
+if [ -f "$JAR" ]; then
+  medir "JVM" java -jar "$JAR"
+else
+  echo "JVM: $JAR não encontrado"
+fi
+if [ -x "$NATIVO" ]; then
+  medir "nativo" "$NATIVO"
+else
+  echo "nativo: $NATIVO não encontrado (precisa de GraalVM com native-image)"
+fi
@@ -0,0 +1,61 @@
+package com.gestao.financeira.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * O id de Saldo era IDENTITY e passou a vir da sequence {@code saldo_seq}. Em bancos que já têm
+ * saldos, a sequence criada pelo ddl-auto começa do 1 e colidiria com os ids existentes; aqui ela
+ * é empurrada para depois do maior id antes da aplicação começar a receber requisições.
+ * No SQLite o Hibernate emula a sequence com a tabela {@code saldo_seq(next_val)}.
+ * <p>
+ * Se o alinhamento falhar a aplicação não sobe: seguir com a sequence atrasada faria os próximos
+ * INSERTs colidirem com ids existentes.
+ */
+@Component
+@Slf4j
+public class AlinhamentoSequenciaSaldo {
+
+    // Mesmo allocationSize do @SequenceGenerator de Saldo
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    // Depende do EntityManagerFactory para rodar depois do ddl-auto criar a sequence
+    public AlinhamentoSequenciaSaldo(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                                     EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void alinhar() {
+        Long maiorId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM saldo", Long.class);
+        long minimo = (maiorId != null ? maiorId : 0) + ALLOCATION_SIZE;
+
+        if (isPostgres()) {
+            jdbcTemplate.queryForObject(
+                    "SELECT setval('saldo_seq', GREATEST(?, (SELECT last_value FROM saldo_seq)))",
+                    Long.class, minimo);
+        } else {
+            jdbcTemplate.update("UPDATE saldo_seq SET next_val = ? WHERE next_val < ?", minimo, minimo);
+        }
+        log.info("Sequence de saldos alinhada a partir de {}", minimo);
+    }
+
+    private boolean isPostgres() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível identificar o banco para alinhar a sequence de saldos", e);
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package com.gestao.financeira.config;
 
+import org.springframework.boot.task.ThreadPoolTaskExecutorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestClient;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 @Configuration
+@ImportRuntimeHints(NativeHints.class)
 public class AppConfig {
 
     @Bean
@@ -14,4 +21,24 @@ public class AppConfig {
                 .requestFactory(new org.springframework.http.client.SimpleClientHttpRequestFactory())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Recargas em background dos caches de cotação. As cargas passam a maior parte do tempo
+     * esperando o provedor (retry, token bucket da Brapi), então cada uma ganha uma virtual thread.
+     * No shutdown não espera as cargas em andamento: uma delas pode estar aguardando lotes da Brapi
+     * que o token bucket, já encerrado, nunca vai executar ({@code close()} travaria para sempre).
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cotacoesExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * O Boot só cria o executor de @Async quando não existe nenhum Executor no contexto;
+     * com o {@link #cotacoesExecutor()} declarado, ele é recriado aqui com a mesma configuração.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(ThreadPoolTaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
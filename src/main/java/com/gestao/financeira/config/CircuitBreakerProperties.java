@@ -0,0 +1,54 @@
+package com.gestao.financeira.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Limites dos circuit breakers das APIs externas ({@code app.circuit-breaker}). Cada upstream herda
+ * {@code padrao} e pode sobrescrever só os campos que precisar em {@code upstreams}.
+ *
+ * @param padrao    limites usados por todo upstream
+ * @param upstreams ajustes por upstream (ex: {@code gemini}, {@code brapi}); campos ausentes vêm do padrão
+ */
+@ConfigurationProperties(prefix = "app.circuit-breaker")
+public record CircuitBreakerProperties(Limites padrao, Map<String, Limites> upstreams) {
+
+    private static final Limites LIMITES_BASE = new Limites(20, 10, 50, 80,
+            Duration.ofSeconds(3), Duration.ofSeconds(30), 3);
+
+    public CircuitBreakerProperties {
+        padrao = padrao == null ? LIMITES_BASE : padrao.completarCom(LIMITES_BASE);
+        upstreams = upstreams == null ? Map.of() : Map.copyOf(upstreams);
+    }
+
+    public Limites limitesDe(String upstream) {
+        Limites ajuste = upstreams.get(upstream);
+        return ajuste == null ? padrao : ajuste.completarCom(padrao);
+    }
+
+    /**
+     * @param janela             últimas chamadas consideradas no cálculo das taxas
+     * @param chamadasMinimas    chamadas na janela antes de o circuito poder abrir
+     * @param taxaFalhaPercent   % de falhas na janela que abre o circuito
+     * @param taxaLentaPercent   % de chamadas lentas na janela que abre o circuito
+     * @param chamadaLenta       duração a partir da qual a chamada conta como lenta
+     * @param tempoAberto        quanto tempo o circuito fica aberto antes das chamadas de teste
+     * @param chamadasMeioAberto chamadas de teste liberadas no estado meio-aberto
+     */
+    public record Limites(Integer janela, Integer chamadasMinimas, Integer taxaFalhaPercent, Integer taxaLentaPercent,
+                          Duration chamadaLenta, Duration tempoAberto, Integer chamadasMeioAberto) {
+
+        Limites completarCom(Limites base) {
+            return new Limites(
+                    janela != null ? janela : base.janela(),
+                    chamadasMinimas != null ? chamadasMinimas : base.chamadasMinimas(),
+                    taxaFalhaPercent != null ? taxaFalhaPercent : base.taxaFalhaPercent(),
+                    taxaLentaPercent != null ? taxaLentaPercent : base.taxaLentaPercent(),
+                    chamadaLenta != null ? chamadaLenta : base.chamadaLenta(),
+                    tempoAberto != null ? tempoAberto : base.tempoAberto(),
+                    chamadasMeioAberto != null ? chamadasMeioAberto : base.chamadasMeioAberto());
+        }
+    }
+}
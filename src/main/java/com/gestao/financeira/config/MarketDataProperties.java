@@ -0,0 +1,26 @@
+package com.gestao.financeira.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Timeouts das fontes de cotação ({@code app.market-data}). Cada fonte tem o seu, para que um
+ * provedor lento não segure a resposta dos outros na busca concorrente.
+ *
+ * @param timeoutPadrao usado pelas fontes sem entrada em {@code timeouts}
+ * @param timeouts      timeout por fonte (ex: {@code bcb}, {@code cmc}, {@code coingecko})
+ */
+@ConfigurationProperties(prefix = "app.market-data")
+public record MarketDataProperties(Duration timeoutPadrao, Map<String, Duration> timeouts) {
+
+    public MarketDataProperties {
+        timeoutPadrao = timeoutPadrao == null ? Duration.ofSeconds(5) : timeoutPadrao;
+        timeouts = timeouts == null ? Map.of() : Map.copyOf(timeouts);
+    }
+
+    public Duration timeoutDa(String fonte) {
+        return timeouts.getOrDefault(fonte, timeoutPadrao);
+    }
+}
@@ -0,0 +1,94 @@
+package com.gestao.financeira.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Hints para a imagem nativa ({@code mvn -Pnative native:compile}) do que o AOT do Spring não enxerga sozinho.
+ * Entidades, repositórios, controllers e {@code @ConfigurationProperties} já são cobertos pelo próprio AOT;
+ * sqlite-jdbc traz a sua configuração no jar.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final String PACOTE_DTO = "com.gestao.financeira.dto";
+
+    // jjwt 0.11 instancia a implementação por nome (Classes.newInstance) e carrega o Jackson via ServiceLoader
+    private static final List<String> JJWT = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer"
+    );
+
+    // Dialeto do SQLite vem por nome no spring.jpa.database-platform do perfil dev
+    private static final String DIALETO_SQLITE = "org.hibernate.community.dialect.SQLiteDialect";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        registrarDtos(hints, classLoader);
+
+        for (String classe : JJWT) {
+            hints.reflection().registerType(TypeReference.of(classe), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+
+        hints.reflection().registerType(TypeReference.of(DIALETO_SQLITE), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        registrarCaffeine(hints, classLoader);
+    }
+
+    /**
+     * Records de request/response e os usados com RestClient/WebClient (Gemini, histórico de cotações):
+     * os de controller o AOT já registra, os de clientes HTTP não. Varredura feita no build, não em runtime.
+     */
+    private void registrarDtos(RuntimeHints hints, ClassLoader classLoader) {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter((metadataReader, factory) -> true);
+        BindingReflectionHintsRegistrar binding = new BindingReflectionHintsRegistrar();
+
+        for (BeanDefinition candidato : scanner.findCandidateComponents(PACOTE_DTO)) {
+            Class<?> tipo = ClassUtils.resolveClassName(candidato.getBeanClassName(), classLoader);
+            binding.registerReflectionHints(hints.reflection(), tipo);
+        }
+    }
+
+    /**
+     * O Caffeine escolhe por nome uma classe gerada para cada combinação de recursos do cache
+     * (ex: SSMSW, PSAMW). Todos os caches daqui têm chaves e valores fortes: prefixos SS e PS.
+     */
+    private void registrarCaffeine(RuntimeHints hints, ClassLoader classLoader) {
+        try {
+            Resource[] classes = new PathMatchingResourcePatternResolver(classLoader)
+                    .getResources("classpath*:com/github/benmanes/caffeine/cache/*.class");
+            for (Resource classe : classes) {
+                String nome = classe.getFilename().replace(".class", "");
+                if (nome.matches("(SS|PS)[A-Z]*")) {
+                    hints.reflection().registerType(
+                            TypeReference.of("com.github.benmanes.caffeine.cache." + nome),
+                            MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                            MemberCategory.DECLARED_FIELDS);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
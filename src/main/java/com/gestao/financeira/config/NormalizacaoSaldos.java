@@ -0,0 +1,37 @@
+package com.gestao.financeira.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Saldos gravados antes de {@code Saldo.normalizar()} têm tipo, moeda e símbolo como o usuário
+ * digitou. A listagem agora compara direto com o valor em maiúsculas, então esses saldos são
+ * normalizados antes da aplicação começar a receber requisições. Depois da primeira execução o
+ * UPDATE não encontra mais linhas.
+ */
+@Component
+@Slf4j
+public class NormalizacaoSaldos {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depende do EntityManagerFactory para rodar depois do ddl-auto criar a tabela
+    public NormalizacaoSaldos(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void normalizar() {
+        int alterados = jdbcTemplate.update("""
+                UPDATE saldo
+                   SET tipo = UPPER(TRIM(tipo)), moeda = UPPER(TRIM(moeda)), simbolo = UPPER(TRIM(simbolo))
+                 WHERE tipo <> UPPER(TRIM(tipo)) OR moeda <> UPPER(TRIM(moeda)) OR simbolo <> UPPER(TRIM(simbolo))
+                """);
+        if (alterados > 0) {
+            log.info("{} saldos com tipo, moeda ou símbolo normalizados para maiúsculas", alterados);
+        }
+    }
+}
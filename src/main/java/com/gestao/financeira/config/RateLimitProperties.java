@@ -0,0 +1,60 @@
+package com.gestao.financeira.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tabela de políticas de rate limit ({@code app.rate-limit.policies}).
+ * Políticas com {@code paths} são aplicadas pelo {@code RateLimitFilter} em toda requisição que casar;
+ * as sem {@code paths} são consumidas pelo nome nos services (login, cadastro, IA...).
+ */
+@ConfigurationProperties(prefix = "app.rate-limit")
+public record RateLimitProperties(List<Politica> policies) {
+
+    public RateLimitProperties {
+        policies = policies == null ? List.of() : List.copyOf(policies);
+        Set<String> nomes = new HashSet<>();
+        for (Politica politica : policies) {
+            if (!nomes.add(politica.name())) {
+                throw new IllegalArgumentException("Política de rate limit duplicada: " + politica.name());
+            }
+        }
+    }
+
+    public enum TipoChave {
+        /** IP do cliente (X-Forwarded-For ou remoteAddr). */
+        IP,
+        /** Usuário autenticado; requisições anônimas não são contadas. */
+        USER,
+        /** Usuário autenticado ou, sem login, o IP. */
+        USER_OR_IP
+    }
+
+    /**
+     * @param name     nome da política, também prefixo das chaves dos buckets
+     * @param paths    padrões de rota (sintaxe PathPattern, ex: {@code /api/rv/**}); vazio = só uso nomeado
+     * @param methods  métodos HTTP a limitar; vazio = todos
+     * @param key      o que identifica o bucket
+     * @param capacity requisições permitidas por período
+     * @param period   janela de recarga completa do bucket
+     */
+    public record Politica(String name, List<String> paths, List<String> methods,
+                           TipoChave key, long capacity, Duration period) {
+
+        public Politica {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("Política de rate limit sem nome");
+            }
+            if (capacity <= 0 || period == null || period.isZero() || period.isNegative()) {
+                throw new IllegalArgumentException("Política de rate limit '" + name + "' precisa de capacity e period positivos");
+            }
+            paths = paths == null ? List.of() : List.copyOf(paths);
+            methods = methods == null ? List.of() : methods.stream().map(String::toUpperCase).toList();
+            key = key == null ? TipoChave.IP : key;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.gestao.financeira.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retentativas das chamadas às APIs externas ({@code app.retry}).
+ *
+ * @param maxTentativas      tentativas por operação, contando a primeira
+ * @param esperaBase         menor espera entre tentativas
+ * @param esperaMaxima       teto da espera com jitter
+ * @param proporcaoOrcamento retentativas permitidas por primeira tentativa, por upstream (0.2 = uma a cada cinco)
+ * @param reservaOrcamento   retentativas acumuláveis, para upstreams com pouco tráfego não ficarem sem nenhuma
+ */
+@ConfigurationProperties(prefix = "app.retry")
+public record RetryProperties(Integer maxTentativas, Duration esperaBase, Duration esperaMaxima,
+                              Double proporcaoOrcamento, Integer reservaOrcamento) {
+
+    public RetryProperties {
+        maxTentativas = maxTentativas == null ? 3 : maxTentativas;
+        esperaBase = esperaBase == null ? Duration.ofMillis(500) : esperaBase;
+        esperaMaxima = esperaMaxima == null ? Duration.ofSeconds(8) : esperaMaxima;
+        proporcaoOrcamento = proporcaoOrcamento == null ? 0.2 : proporcaoOrcamento;
+        reservaOrcamento = reservaOrcamento == null ? 10 : reservaOrcamento;
+    }
+}
@@ -1,16 +1,21 @@
 package com.gestao.financeira.config;
 
-import com.gestao.financeira.security.IpRateLimitFilter;
+import com.gestao.financeira.security.BoundedPasswordEncoder;
+import com.gestao.financeira.security.CalibracaoBcrypt;
 import com.gestao.financeira.security.JwtAuthenticationFilter;
+import com.gestao.financeira.security.RateLimitFilter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.header.writers.XXssProtectionHeaderWriter;
@@ -22,17 +27,18 @@ import java.util.List;
 
 @Configuration
 @EnableWebSecurity
+@Slf4j
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtFilter;
-    private final IpRateLimitFilter ipRateLimitFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Value("${app.cors.allowed-origins}")
     private List<String> allowedOrigins;
 
-    public SecurityConfig(JwtAuthenticationFilter jwtFilter, IpRateLimitFilter ipRateLimitFilter) {
+    public SecurityConfig(JwtAuthenticationFilter jwtFilter, RateLimitFilter rateLimitFilter) {
         this.jwtFilter = jwtFilter;
-        this.ipRateLimitFilter = ipRateLimitFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Bean
@@ -53,17 +59,51 @@ public class SecurityConfig {
                         .requestMatchers("/public/health").permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/metrics/**", "/actuator/info", "/actuator/circuitbreakers").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(ipRateLimitFilter, UsernamePasswordAuthenticationFilter.class)
-                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+                // Depois do JWT: políticas por usuário precisam do principal já resolvido
+                .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public CalibracaoBcrypt calibracaoBcrypt(
+            MeterRegistry meterRegistry,
+            @Value("${app.security.bcrypt.cost:0}") int custoFixo,
+            @Value("${app.security.bcrypt.budget-ms:250}") long orcamentoMs,
+            @Value("${app.security.bcrypt.min-cost:10}") int custoMinimo,
+            @Value("${app.security.bcrypt.max-cost:14}") int custoMaximo) {
+        CalibracaoBcrypt calibracao = custoFixo > 0
+                ? CalibracaoBcrypt.fixo(custoFixo)
+                : CalibracaoBcrypt.sobDemanda(orcamentoMs, custoMinimo, custoMaximo);
+        Gauge.builder("security.password.bcrypt.cost", calibracao, CalibracaoBcrypt::custoSeCalibrado)
+                .register(meterRegistry);
+        return calibracao;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            CalibracaoBcrypt calibracaoBcrypt,
+            @Value("${app.security.bcrypt.threads:0}") int threads,
+            @Value("${app.security.bcrypt.queue-capacity:64}") int capacidadeFila) {
+        // 0 = um worker por CPU: BCrypt é puro CPU, mais threads que núcleos só aumenta a latência
+        int workers = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(calibracaoBcrypt.encoder(), workers, capacidadeFila, meterRegistry);
+    }
+
+    // Calibra num worker do pool de senhas depois do startup; até lá o encoder usa o custo mínimo
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> calibracaoBcryptNoStartup(
+            CalibracaoBcrypt calibracaoBcrypt, BoundedPasswordEncoder passwordEncoder) {
+        return evento -> calibracaoBcrypt.calibrar(passwordEncoder::executar)
+                .exceptionally(erro -> {
+                    log.error("Falha ao calibrar o BCrypt; mantendo o custo mínimo", erro);
+                    return null;
+                });
     }
 
     @Bean
@@ -87,7 +127,16 @@ public class SecurityConfig {
                 "Access-Control-Request-Headers"
         ));
 
-        configuration.setExposedHeaders(List.of("Authorization"));
+        configuration.setExposedHeaders(List.of(
+                "Authorization",
+                "X-Next-Cursor",
+                "RateLimit-Limit",
+                "RateLimit-Remaining",
+                "RateLimit-Reset",
+                "Retry-After",
+                "Age",
+                "X-Cache-Status"
+        ));
         configuration.setAllowCredentials(false);
 
         configuration.setMaxAge(3600L);
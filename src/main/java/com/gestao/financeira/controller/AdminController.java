@@ -1,11 +1,11 @@
 package com.gestao.financeira.controller;
 
 import com.gestao.financeira.dto.MessageDTO;
+import com.gestao.financeira.security.UserPrincipal;
 import com.gestao.financeira.service.UserService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -22,11 +22,9 @@ public class AdminController {
     @PostMapping("/ban/{id}")
     public ResponseEntity<MessageDTO> banirUsuario(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        Long adminId = userService.getUserIdByEmail(userDetails.getUsername());
-
-        if (adminId.equals(id)) {
+        if (principal.id().equals(id)) {
             return ResponseEntity.badRequest()
                     .body(new MessageDTO("Você não pode banir a si mesmo!"));
         }
@@ -39,11 +37,9 @@ public class AdminController {
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<MessageDTO> deletarUsuario(
             @PathVariable Long id,
-            @AuthenticationPrincipal UserDetails userDetails) {
-
-        Long adminId = userService.getUserIdByEmail(userDetails.getUsername());
+            @AuthenticationPrincipal UserPrincipal principal) {
 
-        if (adminId.equals(id)) {
+        if (principal.id().equals(id)) {
             return ResponseEntity.badRequest()
                     .body(new MessageDTO("Você não pode deletar sua própria conta!"));
         }
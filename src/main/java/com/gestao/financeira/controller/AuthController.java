@@ -3,7 +3,6 @@ package com.gestao.financeira.controller;
 import com.gestao.financeira.dto.*;
 import com.gestao.financeira.entity.User;
 import com.gestao.financeira.service.AuthService;
-import com.gestao.financeira.service.JwtService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -15,11 +14,9 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
-    private final JwtService jwtService;
 
-    public AuthController(AuthService authService, JwtService jwtService) {
+    public AuthController(AuthService authService) {
         this.authService = authService;
-        this.jwtService = jwtService;
     }
 
     @PostMapping("/login")
@@ -72,7 +69,11 @@ public class AuthController {
     @GetMapping("/confirm-email")
     public ResponseEntity<LoginResponseDTO> confirmEmail(@RequestParam String token) {
         User user = authService.confirmEmail(token);
-        String jwtToken = jwtService.generateToken(user);
-        return ResponseEntity.ok(new LoginResponseDTO(jwtToken, 3600L));
+        return ResponseEntity.ok(authService.generateLoginResponse(user));
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponseDTO> refresh(@RequestBody @Valid RefreshTokenDTO data) {
+        return ResponseEntity.ok(authService.refresh(data));
     }
 }
\ No newline at end of file
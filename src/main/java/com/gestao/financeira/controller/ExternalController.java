@@ -1,18 +1,29 @@
 package com.gestao.financeira.controller;
 
+import com.gestao.financeira.dto.AtivoRendaVariavelDTO;
+import com.gestao.financeira.dto.CotacaoDolarDTO;
+import com.gestao.financeira.dto.CriptoDTO;
+import com.gestao.financeira.dto.HistoricoCotacaoDTO;
+import com.gestao.financeira.dto.IndicesRendaFixaDTO;
+import com.gestao.financeira.externalservice.CategoriaRendaVariavel;
 import com.gestao.financeira.externalservice.CriptoService;
 import com.gestao.financeira.externalservice.CambioService;
+import com.gestao.financeira.externalservice.HistoricoCotacoes;
 import com.gestao.financeira.externalservice.RendaFixaService;
 import com.gestao.financeira.externalservice.RendaVariavelService;
+import com.gestao.financeira.externalservice.StaleWhileRevalidateCache;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/api")
@@ -22,28 +33,33 @@ public class ExternalController {
     private final CriptoService criptoService;
     private final RendaFixaService rendaFixaService;
     private final RendaVariavelService rendaVariavelService;
+    private final HistoricoCotacoes historicoCotacoes;
+
+    private static final int MAX_PONTOS_HISTORICO = 10_000;
+    private static final Duration MAX_JANELA_HISTORICO = Duration.ofDays(366);
 
     public ExternalController(
             CambioService cambioService,
             CriptoService criptoService,
             RendaFixaService rendaFixaService,
-            RendaVariavelService rendaVariavelService
+            RendaVariavelService rendaVariavelService,
+            HistoricoCotacoes historicoCotacoes
     ) {
         this.cambioService = cambioService;
         this.criptoService = criptoService;
         this.rendaFixaService = rendaFixaService;
         this.rendaVariavelService = rendaVariavelService;
+        this.historicoCotacoes = historicoCotacoes;
     }
 
     @GetMapping("/cambio")
-    public ResponseEntity<Map<String, Object>> getCotacaoDolar() {
-        Map<String, Object> cotacao = cambioService.buscarCotacaoAtualizada();
-        return ResponseEntity.ok(cotacao);
+    public ResponseEntity<CotacaoDolarDTO> getCotacaoDolar() {
+        return comFrescor(cambioService.lerCotacao());
     }
 
     @GetMapping("/criptos")
-    public ResponseEntity<List<Map<String, Object>>> getCriptos() {
-        return ResponseEntity.ok(criptoService.buscarTop10Criptos());
+    public ResponseEntity<List<CriptoDTO>> getCriptos() {
+        return comFrescor(criptoService.lerTop10Criptos());
     }
 
     /**
@@ -51,8 +67,8 @@ public class ExternalController {
      * O Frontend usa isso para mostrar "CDI Hoje: 13.65%" na tela.
      */
     @GetMapping("/indices")
-    public ResponseEntity<Map<String, Object>> getIndicesFinanceiros() {
-        return ResponseEntity.ok(rendaFixaService.buscarIndicesAtuais());
+    public ResponseEntity<IndicesRendaFixaDTO> getIndicesFinanceiros() {
+        return comFrescor(rendaFixaService.lerIndicesAtuais());
     }
 
     /**
@@ -69,22 +85,78 @@ public class ExternalController {
         return ResponseEntity.ok(rendaFixaService.calcularRendimentoDiario(saldo, percentual, indexador));
     }
 
+    /**
+     * Quanto um valor aplicado em {@code desde} rendeu até hoje.
+     * Exemplo de chamada: /api/rendimento-acumulado?saldo=1000&percentual=110&indexador=CDI&desde=2023-01-02
+     */
+    @GetMapping("/rendimento-acumulado")
+    public ResponseEntity<BigDecimal> getRendimentoAcumulado(
+            @RequestParam BigDecimal saldo,
+            @RequestParam(required = false) BigDecimal percentual,
+            @RequestParam(defaultValue = "CDI") String indexador,
+            @RequestParam LocalDate desde) {
+        return ResponseEntity.ok(rendaFixaService.calcularRendimentoAcumulado(saldo, percentual, indexador, desde));
+    }
+
     // --- Renda Variável
     @GetMapping("/rv/acoes")
-    public ResponseEntity<List<Map<String, Object>>> getTopAcoes() {
+    public ResponseEntity<List<AtivoRendaVariavelDTO>> getTopAcoes() {
         // Retorna a lista de Ações (PETR4, VALE3...) já formatada
-        return ResponseEntity.ok(rendaVariavelService.getTopAcoes());
+        return vitrine(CategoriaRendaVariavel.ACOES);
     }
 
     @GetMapping("/rv/fiis")
-    public ResponseEntity<List<Map<String, Object>>> getTopFiis() {
+    public ResponseEntity<List<AtivoRendaVariavelDTO>> getTopFiis() {
         // Retorna a lista de FIIs (MXRF11, HGLG11...)
-        return ResponseEntity.ok(rendaVariavelService.getTopFiis());
+        return vitrine(CategoriaRendaVariavel.FIIS);
     }
 
     @GetMapping("/rv/etfs")
-    public ResponseEntity<List<Map<String, Object>>> getTopEtfs() {
+    public ResponseEntity<List<AtivoRendaVariavelDTO>> getTopEtfs() {
         // Retorna a lista de ETFs (IVVB11, BOVA11...)
-        return ResponseEntity.ok(rendaVariavelService.getTopEtfs());
+        return vitrine(CategoriaRendaVariavel.ETFS);
+    }
+
+    /**
+     * Histórico local de um símbolo (PETR4, BTC, USD, CDI...) entre dois instantes em epoch millis.
+     * Exemplo: /api/historico/PETR4?de=1700000000000 (padrão: últimos 30 dias)
+     * <p>
+     * A janela vai no máximo até agora e cobre no máximo {@link #MAX_JANELA_HISTORICO}; acima de
+     * {@link #MAX_PONTOS_HISTORICO} pontos ficam os mais recentes.
+     */
+    @GetMapping("/historico/{simbolo}")
+    public ResponseEntity<HistoricoCotacaoDTO> getHistorico(
+            @PathVariable String simbolo,
+            @RequestParam(required = false) Long de,
+            @RequestParam(required = false) Long ate) {
+        long agora = System.currentTimeMillis();
+        long fim = ate != null ? Math.min(ate, agora) : agora;
+        long inicio = Math.max(de != null ? de : fim - Duration.ofDays(30).toMillis(),
+                fim - MAX_JANELA_HISTORICO.toMillis());
+
+        HistoricoCotacoes.Serie serie = historicoCotacoes.ultimos(simbolo, inicio, fim, MAX_PONTOS_HISTORICO);
+        return ResponseEntity.ok(new HistoricoCotacaoDTO(simbolo.toUpperCase(), serie.timestamps(), serie.precos()));
+    }
+
+    private ResponseEntity<List<AtivoRendaVariavelDTO>> vitrine(CategoriaRendaVariavel categoria) {
+        StaleWhileRevalidateCache.Leitura<RendaVariavelService.Snapshot> leitura = rendaVariavelService.lerCategoria(categoria);
+        return comFrescor(leitura, leitura.valor().vitrine());
+    }
+
+    private static <T> ResponseEntity<T> comFrescor(StaleWhileRevalidateCache.Leitura<T> leitura) {
+        return comFrescor(leitura, leitura.valor());
+    }
+
+    /**
+     * Resposta com o frescor do cache: {@code Age} (segundos desde a última atualização) e
+     * {@code X-Cache-Status} (HIT, STALE ou MISS).
+     */
+    private static <T> ResponseEntity<T> comFrescor(StaleWhileRevalidateCache.Leitura<?> leitura, T corpo) {
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .header("X-Cache-Status", leitura.status().name());
+        if (leitura.temValor()) {
+            resposta.header(HttpHeaders.AGE, String.valueOf(leitura.idadeSegundos()));
+        }
+        return resposta.body(corpo);
     }
 }
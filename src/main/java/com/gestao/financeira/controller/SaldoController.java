@@ -1,60 +1,104 @@
 package com.gestao.financeira.controller;
 
+import com.gestao.financeira.dto.ImportacaoResultadoDTO;
+import com.gestao.financeira.dto.SaldoFiltroDTO;
+import com.gestao.financeira.dto.SaldoPaginaDTO;
 import com.gestao.financeira.dto.SaldoRequestDTO;
 import com.gestao.financeira.dto.SaldoResponseDTO;
+import com.gestao.financeira.dto.ValuationResponseDTO;
 import com.gestao.financeira.entity.Saldo;
-import com.gestao.financeira.entity.User;
+import com.gestao.financeira.security.UserPrincipal;
+import com.gestao.financeira.service.ImportacaoSaldoService;
 import com.gestao.financeira.service.SaldoService;
-import com.gestao.financeira.service.UserService;
+import com.gestao.financeira.service.ValuationService;
 import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/saldos")
 public class SaldoController {
 
+    public static final String HEADER_PROXIMO_CURSOR = "X-Next-Cursor";
+
     private final SaldoService saldoService;
-    private final UserService userService;
+    private final ValuationService valuationService;
+    private final ImportacaoSaldoService importacaoSaldoService;
 
-    public SaldoController(SaldoService saldoService, UserService userService) {
+    public SaldoController(SaldoService saldoService, ValuationService valuationService,
+                           ImportacaoSaldoService importacaoSaldoService) {
         this.saldoService = saldoService;
-        this.userService = userService;
+        this.valuationService = valuationService;
+        this.importacaoSaldoService = importacaoSaldoService;
     }
 
+    /**
+     * Lista os saldos do usuário, mais recentes primeiro, com filtros opcionais.
+     * Paginação por cursor: quando houver mais itens, o header {@code X-Next-Cursor} traz o valor
+     * a ser enviado em {@code cursor} para buscar a próxima página.
+     */
     @GetMapping
-    public List<SaldoResponseDTO> listar(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = userService.findUserByEmailOrThrow(userDetails.getUsername());
-        return saldoService.listarDoUsuario(user)
-                .stream()
-                .map(SaldoResponseDTO::fromEntity)
-                .toList();
+    public ResponseEntity<List<SaldoResponseDTO>> listar(
+            @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) String moeda,
+            @RequestParam(required = false) String simbolo,
+            @RequestParam(required = false) LocalDate dataInicio,
+            @RequestParam(required = false) LocalDate dataFim,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limite,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        SaldoFiltroDTO filtro = new SaldoFiltroDTO(tipo, moeda, simbolo, dataInicio, dataFim);
+        SaldoPaginaDTO pagina = saldoService.listarPagina(principal.id(), filtro, cursor, limite);
+
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok();
+        if (pagina.proximoCursor() != null) {
+            resposta.header(HEADER_PROXIMO_CURSOR, pagina.proximoCursor());
+        }
+        return resposta.body(pagina.itens());
+    }
+
+    /**
+     * Carteira a preço de mercado (valor atual, lucro/prejuízo e totais) em uma única chamada.
+     */
+    @GetMapping("/valuation")
+    public ValuationResponseDTO valuation(@AuthenticationPrincipal UserPrincipal principal) {
+        return valuationService.avaliarCarteira(principal.id());
     }
 
     @PostMapping
     public SaldoResponseDTO salvar(@RequestBody @Valid SaldoRequestDTO dto,
-                                   @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userService.findUserByEmailOrThrow(userDetails.getUsername());
-        Saldo saldoSalvo = saldoService.salvar(dto, user);
+                                   @AuthenticationPrincipal UserPrincipal principal) {
+        Saldo saldoSalvo = saldoService.salvar(dto, principal.id());
         return SaldoResponseDTO.fromEntity(saldoSalvo);
     }
 
+    /**
+     * Importa um extrato de corretora (CSV ou OFX) e devolve o relatório de linhas com erro.
+     * {@code nomeConta} é usado nas posições do OFX (no CSV cada linha traz a sua).
+     */
+    @PostMapping(value = "/importar", consumes = "multipart/form-data")
+    public ImportacaoResultadoDTO importar(@RequestParam("arquivo") MultipartFile arquivo,
+                                           @RequestParam(required = false) String nomeConta,
+                                           @AuthenticationPrincipal UserPrincipal principal) {
+        return importacaoSaldoService.importar(arquivo, principal.id(), nomeConta);
+    }
+
     @PutMapping("/{id}")
     public SaldoResponseDTO atualizar(@PathVariable Long id,
                                       @RequestBody @Valid SaldoRequestDTO dto,
-                                      @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userService.findUserByEmailOrThrow(userDetails.getUsername());
-        Saldo saldoAtualizado = saldoService.atualizar(id, dto, user);
+                                      @AuthenticationPrincipal UserPrincipal principal) {
+        Saldo saldoAtualizado = saldoService.atualizar(id, dto, principal.id());
         return SaldoResponseDTO.fromEntity(saldoAtualizado);
     }
 
     @DeleteMapping("/{id}")
     public void deletar(@PathVariable Long id,
-                        @AuthenticationPrincipal UserDetails userDetails) {
-        User user = userService.findUserByEmailOrThrow(userDetails.getUsername());
-        saldoService.deletar(id, user);
+                        @AuthenticationPrincipal UserPrincipal principal) {
+        saldoService.deletar(id, principal.id());
     }
 }
\ No newline at end of file
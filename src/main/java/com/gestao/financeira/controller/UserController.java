@@ -5,11 +5,11 @@ import com.gestao.financeira.dto.MessageDTO;
 import com.gestao.financeira.dto.UserResponseDTO;
 import com.gestao.financeira.dto.UserUpdateDTO;
 import com.gestao.financeira.entity.User;
+import com.gestao.financeira.security.UserPrincipal;
 import com.gestao.financeira.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -24,24 +24,24 @@ public class UserController {
 
     @GetMapping("/me")
     public ResponseEntity<UserResponseDTO> getMyProfile(
-            @AuthenticationPrincipal UserDetails userDetails) {
-        var user = userService.getUserByEmail(userDetails.getUsername());
+            @AuthenticationPrincipal UserPrincipal principal) {
+        var user = userService.findUserByIdOrThrow(principal.id());
         return ResponseEntity.ok(UserResponseDTO.fromEntity(user));
     }
 
     @PutMapping("/me")
     public ResponseEntity<UserResponseDTO> updateProfile(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @RequestBody @Valid UserUpdateDTO data) {
-        User userAtualizado = userService.updateProfile(userDetails.getUsername(), data);
+        User userAtualizado = userService.updateProfile(principal.id(), data);
         return ResponseEntity.ok(UserResponseDTO.fromEntity(userAtualizado));
     }
 
     @PatchMapping("/change-password")
     public ResponseEntity<MessageDTO> changePassword(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal principal,
             @RequestBody @Valid ChangePasswordDTO data) {
-        userService.changePassword(userDetails.getUsername(), data);
+        userService.changePassword(principal.id(), data);
         return ResponseEntity.ok(new MessageDTO("Senha alterada com sucesso!"));
     }
 }
\ No newline at end of file
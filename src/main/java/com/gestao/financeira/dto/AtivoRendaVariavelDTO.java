@@ -0,0 +1,15 @@
+package com.gestao.financeira.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Cotação de ação, FII ou ETF vinda da Brapi. Os nomes no JSON são os mesmos do antigo Map da API.
+ * Os campos numéricos podem vir nulos quando o ativo não negociou.
+ */
+public record AtivoRendaVariavelDTO(
+        String ticker,
+        String nome,
+        Double preco,
+        @JsonProperty("variacao_percent") Double variacaoPercent,
+        String logo
+) {}
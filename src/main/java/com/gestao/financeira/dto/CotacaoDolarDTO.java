@@ -0,0 +1,13 @@
+package com.gestao.financeira.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/**
+ * Cotação de compra do dólar em reais. Os nomes no JSON são os mesmos do antigo Map da API.
+ */
+public record CotacaoDolarDTO(
+        double cotacao,
+        @JsonProperty("ultima_atualizacao") Instant ultimaAtualizacao
+) {}
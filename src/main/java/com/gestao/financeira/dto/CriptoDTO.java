@@ -0,0 +1,13 @@
+package com.gestao.financeira.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Preço de uma cripto em dólar e já convertido para reais. Os nomes no JSON são os mesmos do antigo Map da API.
+ */
+public record CriptoDTO(
+        String nome,
+        String simbolo,
+        @JsonProperty("cotacao_em_dolar") double cotacaoEmDolar,
+        @JsonProperty("cotacao_em_reais") double cotacaoEmReais
+) {}
@@ -0,0 +1,10 @@
+package com.gestao.financeira.dto;
+
+/**
+ * Série temporal de um símbolo em arrays paralelos (pronto para o gráfico do front).
+ */
+public record HistoricoCotacaoDTO(
+        String simbolo,
+        long[] timestamps,
+        double[] precos
+) {}
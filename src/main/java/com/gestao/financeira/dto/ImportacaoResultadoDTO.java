@@ -0,0 +1,18 @@
+package com.gestao.financeira.dto;
+
+import java.util.List;
+
+/**
+ * Resultado da importação de um extrato. {@code erros} traz no máximo as primeiras linhas com
+ * problema; {@code linhasComErro} é o total. {@code avisos} são linhas importadas com algum campo
+ * vazio (ex.: custo que o OFX não informa), com o mesmo limite.
+ */
+public record ImportacaoResultadoDTO(
+        int linhasLidas,
+        int importados,
+        int linhasComErro,
+        List<ErroLinha> erros,
+        List<ErroLinha> avisos
+) {
+    public record ErroLinha(int linha, String mensagem) {}
+}
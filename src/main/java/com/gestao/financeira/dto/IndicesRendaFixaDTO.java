@@ -0,0 +1,26 @@
+package com.gestao.financeira.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+
+/**
+ * Taxas atuais do BCB em %: CDI e SELIC diárias, IPCA mensal. Os nomes no JSON são os mesmos do antigo Map da API.
+ */
+public record IndicesRendaFixaDTO(
+        @JsonProperty("CDI") double cdi,
+        @JsonProperty("SELIC") double selic,
+        @JsonProperty("IPCA") double ipca,
+        @JsonProperty("ultima_atualizacao") Instant ultimaAtualizacao
+) {
+
+    /** Taxa pelo nome do indexador (CDI, SELIC ou IPCA); {@code null} para os demais. */
+    public Double taxa(String indice) {
+        return switch (indice) {
+            case "CDI" -> cdi;
+            case "SELIC" -> selic;
+            case "IPCA" -> ipca;
+            default -> null;
+        };
+    }
+}
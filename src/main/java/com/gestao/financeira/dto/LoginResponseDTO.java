@@ -3,9 +3,10 @@ package com.gestao.financeira.dto;
 public record LoginResponseDTO(
         String type,
         String token,
-        Long expiresIn
+        Long expiresIn,
+        String refreshToken
 ) {
-    public LoginResponseDTO(String token, Long expiresIn) {
-        this("Bearer", token, expiresIn);
+    public LoginResponseDTO(String token, Long expiresIn, String refreshToken) {
+        this("Bearer", token, expiresIn, refreshToken);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,8 @@
+package com.gestao.financeira.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshTokenDTO(
+        @NotBlank(message = "Refresh token é obrigatório")
+        String refreshToken
+) {}
@@ -1,9 +1,14 @@
 package com.gestao.financeira.dto;
 
 import com.gestao.financeira.security.StrongPassword;
+import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 
 public record ResetPasswordDTO(
+        @NotBlank(message = "Email é obrigatório")
+        @Email(message = "Email inválido")
+        String email,
+
         @NotBlank(message = "Token é obrigatório")
         String token,
 
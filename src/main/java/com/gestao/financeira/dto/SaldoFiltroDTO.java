@@ -0,0 +1,14 @@
+package com.gestao.financeira.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros opcionais da listagem de saldos. Campos nulos não filtram.
+ */
+public record SaldoFiltroDTO(
+        String tipo,
+        String moeda,
+        String simbolo,
+        LocalDate dataInicio,
+        LocalDate dataFim
+) {}
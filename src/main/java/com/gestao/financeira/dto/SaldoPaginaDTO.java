@@ -0,0 +1,11 @@
+package com.gestao.financeira.dto;
+
+import java.util.List;
+
+/**
+ * Uma página da listagem de saldos. {@code proximoCursor} é nulo na última página.
+ */
+public record SaldoPaginaDTO(
+        List<SaldoResponseDTO> itens,
+        String proximoCursor
+) {}
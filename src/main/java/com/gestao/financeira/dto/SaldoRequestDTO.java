@@ -15,7 +15,7 @@ public record SaldoRequestDTO(
         String moeda,
 
         @NotBlank(message = "Tipo é obrigatório")
-        String tipo, // "ACAO", "FII", "CRIPTO", "RENDA_FIXA"
+        String tipo, // "ACAO", "FII", "ETF", "FUNDO", "CRIPTO", "RENDA_FIXA"
 
         String simbolo, // Para ações/cripto
 
@@ -23,7 +23,9 @@ public record SaldoRequestDTO(
         Double quantidade, // Para ações/cripto
 
         @PositiveOrZero
-        Double taxa, // Para renda fixa (% CDI)
+        Double taxa, // Para renda fixa (% do índice, ou % ao ano se PRE)
+
+        String indexador, // Para renda fixa: CDI, SELIC, IPCA ou PRE; vazio = CDI
 
         @NotNull(message = "Data é obrigatória")
         LocalDate data,
@@ -13,6 +13,7 @@ public record SaldoResponseDTO(
         String simbolo,
         BigDecimal quantidade,
         BigDecimal taxa,
+        String indexador,
         LocalDate data,
         String observacao
 ) {
@@ -26,6 +27,7 @@ public record SaldoResponseDTO(
                 saldo.getSimbolo(),
                 saldo.getQuantidade(),
                 saldo.getTaxa(),
+                saldo.getIndexador(),
                 saldo.getData(),
                 saldo.getObservacao()
         );
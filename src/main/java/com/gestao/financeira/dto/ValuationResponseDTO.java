@@ -0,0 +1,36 @@
+package com.gestao.financeira.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Avaliação da carteira a preço de mercado. Totais sempre em BRL
+ * (posições em USD são convertidas pela cotação do dólar em cache). Sem dólar em cache as posições
+ * em USD ficam fora dos totais e {@code parcial} vem true.
+ */
+public record ValuationResponseDTO(
+        List<Posicao> posicoes,
+        BigDecimal totalInvestido,
+        BigDecimal totalMercado,
+        BigDecimal lucroPrejuizo,
+        BigDecimal lucroPrejuizoPercent,
+        BigDecimal cotacaoDolar,
+        boolean parcial,
+        Instant calculadoEm
+) {
+    public record Posicao(
+            Long id,
+            String nomeConta,
+            String tipo,
+            String simbolo,
+            String moeda,
+            BigDecimal quantidade,
+            BigDecimal precoAtual,
+            BigDecimal valorInvestido,
+            BigDecimal valorMercado,
+            BigDecimal lucroPrejuizo,
+            BigDecimal rendimentoDiario,
+            boolean cotado // false quando não há cotação em cache e o valor de mercado é o próprio custo
+    ) {}
+}
@@ -0,0 +1,32 @@
+package com.gestao.financeira.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Estado serializado de um bucket do rate limit quando {@code app.rate-limit.backend=jdbc}.
+ * Só existe como entidade para o ddl-auto criar a tabela; leitura e escrita são feitas com
+ * compare-and-swap via JDBC em {@code JdbcRateLimitBackend}.
+ */
+@Entity
+@Table(name = "rate_limit_bucket", indexes = @Index(name = "idx_rate_limit_bucket_expires", columnList = "expiresAt"))
+@Getter
+@Setter
+public class RateLimitBucket {
+
+    @Id
+    @Column(length = 255)
+    private String id;
+
+    @Column(nullable = false, length = 4096)
+    private byte[] state;
+
+    // Epoch millis a partir do qual o bucket estaria cheio de novo e pode ser apagado
+    @Column(nullable = false)
+    private long expiresAt;
+}
@@ -0,0 +1,48 @@
+package com.gestao.financeira.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Refresh token rotativo. Só o HMAC do valor é guardado. Cada uso gera um novo token da mesma
+ * {@code familia} e marca o anterior como usado; reapresentar um token usado derruba a família inteira.
+ */
+@Entity
+@Table(name = "refresh_token", indexes = {
+        @Index(name = "idx_refresh_token_familia", columnList = "familia"),
+        @Index(name = "idx_refresh_token_user", columnList = "userId")
+})
+@Getter
+@Setter
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 64, unique = true, nullable = false)
+    private String tokenHash;
+
+    @Column(length = 36, nullable = false)
+    private String familia;
+
+    // Sem FK: a exclusão do usuário apaga os tokens explicitamente
+    @Column(nullable = false)
+    private Long userId;
+
+    // securityVersion do usuário na emissão; troca de senha ou banimento invalida o token
+    @Column(nullable = false)
+    private int securityVersion;
+
+    @Column(nullable = false)
+    private boolean usado = false;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+}
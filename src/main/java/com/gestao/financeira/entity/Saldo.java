@@ -7,14 +7,23 @@ import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Locale;
 
 @Entity
+// Lidos de trás para frente pela listagem (data desc, id desc), com e sem filtro de tipo; ver SaldoRepositoryCustomImpl
+@Table(indexes = {
+        @Index(name = "idx_saldo_user_data_id", columnList = "user_id, data, id"),
+        @Index(name = "idx_saldo_user_tipo_data_id", columnList = "user_id, tipo, data, id")
+})
 @Getter
 @Setter
 public class Saldo {
 
+    // Sequence (e não IDENTITY) para o Hibernate conseguir agrupar os INSERTs em lote na importação.
+    // allocationSize precisa bater com AlinhamentoSequenciaSaldo.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "saldo_seq")
+    @SequenceGenerator(name = "saldo_seq", sequenceName = "saldo_seq", allocationSize = 50)
     private Long id;
 
     @JsonIgnore
@@ -28,7 +37,7 @@ public class Saldo {
     @Column(precision = 20, scale = 10)
     private BigDecimal valor;
     // Define qual API o front vai chamar (Brapi, CoinGecko ou Calculadora CDI)
-    // Valores sugeridos: "ACAO", "FII", "ETF", "CRIPTO", "RENDA_FIXA"
+    // Valores sugeridos: "ACAO", "FII", "ETF", "FUNDO", "CRIPTO", "RENDA_FIXA"
     private String tipo;
     private String moeda;
     // ===== CRIPTO =====
@@ -38,10 +47,24 @@ public class Saldo {
     // Para Renda Fixa. Armazena o percentual (Ex: 110.0 para 110% do CDI)
     @Column(precision = 10, scale = 2)
     private BigDecimal taxa;
+    // Índice da taxa de Renda Fixa: CDI, SELIC, IPCA ou PRE (taxa ao ano). Nulo = CDI (saldos antigos)
+    private String indexador;
 
     private LocalDate data; // Data da compra (Essencial para calcular CDI acumulado)
 
     @Column(length = 500)
     private String observacao;
 
+    // Gravados sempre em maiúsculas: os filtros da listagem comparam direto e usam o índice
+    @PrePersist
+    @PreUpdate
+    void normalizar() {
+        tipo = maiusculas(tipo);
+        moeda = maiusculas(moeda);
+        simbolo = maiusculas(simbolo);
+    }
+
+    private static String maiusculas(String valor) {
+        return valor != null ? valor.trim().toUpperCase(Locale.ROOT) : null;
+    }
 }
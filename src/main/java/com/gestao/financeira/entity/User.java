@@ -4,14 +4,17 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 @Entity
@@ -21,6 +24,9 @@ import java.util.Set;
 @NoArgsConstructor
 public class User implements UserDetails {
 
+    public static final int MAX_FAILED_ATTEMPTS = 5;
+    public static final Duration LOCK_DURATION = Duration.ofMinutes(15);
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -45,7 +51,9 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private boolean emailVerified = false;
 
-    @Column(nullable = false)
+    // Contadores de login: gravados só por updates direcionados (LoginAttemptTracker), nunca pelo save
+    // da entidade, que regravaria o valor lido no começo da requisição por cima de falhas mais recentes
+    @Column(nullable = false, updatable = false)
     private int failedLoginAttempts = 0;
 
     @Column(length = 64, unique = true)
@@ -66,7 +74,7 @@ public class User implements UserDetails {
     @Column
     private Instant passwordResetExpiry;
 
-    @Column
+    @Column(updatable = false)
     private Instant lockedUntil;
 
     @Column(nullable = false)
@@ -82,6 +90,11 @@ public class User implements UserDetails {
     @Column
     private Instant lastPasswordChange;
 
+    // Versão embutida nos access tokens (claim "ver"); incrementar invalida todas as sessões do usuário
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int securityVersion = 0;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 
@@ -139,30 +152,37 @@ public class User implements UserDetails {
         this.passwordResetTokenHash = hash;
     }
 
-    public boolean isAccountLocked() {
-        return lockedUntil != null && lockedUntil.isAfter(Instant.now());
+    // Email e roles vão no access token: trocar qualquer um de um usuário já gravado invalida as sessões abertas
+    public void setEmail(String email) {
+        if (id != null && !Objects.equals(this.email, email)) {
+            securityVersion++;
+        }
+        this.email = email;
     }
 
-    public void incrementFailedAttempts() {
-        failedLoginAttempts++;
-        if (failedLoginAttempts >= 5) {
-            lockedUntil = Instant.now().plusSeconds(900); // 15 min
+    public void setRoles(Set<String> roles) {
+        if (id != null && !Objects.equals(this.roles, roles)) {
+            securityVersion++;
         }
+        this.roles = roles;
+    }
+
+    public boolean isAccountLocked() {
+        return lockedUntil != null && lockedUntil.isAfter(Instant.now());
     }
 
-    public void resetFailedAttempts() {
-        failedLoginAttempts = 0;
-        lockedUntil = null;
+    public void incrementSecurityVersion() {
+        securityVersion++;
     }
 
     public boolean isEmailVerificationTokenValid(String token) {
-        return emailVerificationTokenHash != null
+        return emailVerificationTokenLookup != null
                 && emailVerificationExpiry != null
                 && emailVerificationExpiry.isAfter(Instant.now());
     }
 
     public boolean isPasswordResetTokenValid(String token) {
-        return passwordResetTokenHash != null
+        return passwordResetTokenLookup != null
                 && passwordResetExpiry != null
                 && passwordResetExpiry.isAfter(Instant.now());
     }
@@ -0,0 +1,7 @@
+package com.gestao.financeira.event;
+
+/**
+ * Publicado quando um serviço externo troca o snapshot de cotações em cache.
+ * Ex: fonte = "cambio", "cripto", "renda_fixa", "renda_variavel"
+ */
+public record CotacoesAtualizadasEvent(String fonte) {}
@@ -0,0 +1,10 @@
+package com.gestao.financeira.event;
+
+/**
+ * Publicado sempre que um saldo do usuário é criado, alterado ou removido.
+ * {@code anterior} é nulo na criação e {@code atual} é nulo na remoção.
+ */
+public record SaldoAlteradoEvent(Long userId, Ativo anterior, Ativo atual) {
+
+    public record Ativo(String tipo, String simbolo) {}
+}
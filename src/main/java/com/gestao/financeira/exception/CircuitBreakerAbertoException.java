@@ -0,0 +1,15 @@
+package com.gestao.financeira.exception;
+
+public class CircuitBreakerAbertoException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public CircuitBreakerAbertoException(String upstream, long retryAfterSeconds) {
+        super("Serviço externo '" + upstream + "' indisponível no momento. Tente novamente em instantes.");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
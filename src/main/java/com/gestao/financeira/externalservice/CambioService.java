@@ -1,15 +1,20 @@
 package com.gestao.financeira.externalservice;
 
+import com.gestao.financeira.dto.CotacaoDolarDTO;
+import com.gestao.financeira.event.CotacoesAtualizadasEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -18,57 +23,71 @@ public class CambioService {
     private final String apiKey;
     private final String apiBaseUrl;
     private final RestClient restClient;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryHelper retryHelper;
+    private final HistoricoCotacoes historicoCotacoes;
+    private final StaleWhileRevalidateCache<String, CotacaoDolarDTO> cache;
+
+    private static final String MOEDA = "USD";
+    private static final Duration CACHE_DURACAO = Duration.ofMinutes(60);
+    private static final Duration ESPERA_PRIMEIRA_CARGA = Duration.ofSeconds(10);
+    // Prazo da busca com retentativas; vencido, as que faltam não são feitas e o cache mantém o último valor
+    private static final Duration PRAZO_BUSCA = Duration.ofSeconds(10);
 
     public CambioService(
             @Value("${api.key}") String apiKey,
             @Value("${api.url}") String apiBaseUrl,
-            RestClient restClient
+            RestClient restClient,
+            CircuitBreakers circuitBreakers,
+            RetryHelper retryHelper,
+            ApplicationEventPublisher eventPublisher,
+            HistoricoCotacoes historicoCotacoes,
+            ExecutorService cotacoesExecutor
     ) {
         this.apiKey = apiKey;
         this.apiBaseUrl = apiBaseUrl;
         this.restClient = restClient;
+        this.circuitBreaker = circuitBreakers.get("hgbrasil");
+        this.retryHelper = retryHelper;
+        this.historicoCotacoes = historicoCotacoes;
+        this.cache = new StaleWhileRevalidateCache<>("cambio", CACHE_DURACAO, ESPERA_PRIMEIRA_CARGA,
+                moeda -> fetchNovaCotacao(),
+                (moeda, cotacao) -> eventPublisher.publishEvent(new CotacoesAtualizadasEvent("cambio")),
+                cotacoesExecutor);
     }
 
-    private Map<String, Object> cacheCotacao = new HashMap<>();
-
-    public Map<String, Object> buscarCotacaoAtualizada() {
-        if (cacheCotacao.containsKey("cotacao") && isCacheValid()) {
-            return cacheCotacao;
-        }
-        return fetchNovaCotacao();
+    public CotacaoDolarDTO buscarCotacaoAtualizada() {
+        return lerCotacao().valor();
     }
 
-    private Map<String, Object> fetchNovaCotacao() {
-        try {
-            return RetryHelper.executeWithRetry(() -> {
-                String url = montarUrlApi();
-                Map<String, Object> respostaApi = executarChamadaHttp(url);
-                Double valorCotacao = extrairValorCotacao(respostaApi);
-
-                if (valorCotacao == null) {
-                    throw new RuntimeException("Cotação nula na resposta da API");
-                }
-
-                return atualizarCache(valorCotacao);
-            }, 3, "HgBrasil-Cambio");
-
-        } catch (Exception e) {
-            log.error("Erro no fluxo de cotação após todas as tentativas: {}", e.getMessage());
-            return obterFallback();
-        }
+    /**
+     * Cotação do cache com os metadados de frescor. Vencida, volta na hora e a recarga segue em background.
+     */
+    public StaleWhileRevalidateCache.Leitura<CotacaoDolarDTO> lerCotacao() {
+        StaleWhileRevalidateCache.Leitura<CotacaoDolarDTO> leitura = cache.get(MOEDA);
+        return leitura.temValor() ? leitura : StaleWhileRevalidateCache.Leitura.semCache(obterFallback());
     }
 
-    private boolean isCacheValid() {
-        long CACHE_DURATION_MINUTES = 60;
+    /**
+     * Última cotação conhecida, sem nunca chamar a API. {@code null} antes da primeira carga.
+     */
+    public CotacaoDolarDTO cotacaoEmCache() {
+        return cache.peek(MOEDA);
+    }
 
-        if (!cacheCotacao.containsKey("ultima_atualizacao")) {
-            return false;
-        }
+    private CotacaoDolarDTO fetchNovaCotacao() {
+        // As esperas entre tentativas ficam no timer do RetryHelper; aqui só a virtual thread da recarga aguarda o prazo
+        return retryHelper.executar("hgbrasil", () -> {
+            String url = montarUrlApi();
+            Map<String, Object> respostaApi = executarChamadaHttp(url);
+            Double valorCotacao = extrairValorCotacao(respostaApi);
 
-        Instant lastUpdate = Instant.parse((String) cacheCotacao.get("ultima_atualizacao"));
-        long elapsedMinutes = java.time.Duration.between(lastUpdate, Instant.now()).toMinutes();
+            if (valorCotacao == null) {
+                throw new RuntimeException("Cotação nula na resposta da API");
+            }
 
-        return elapsedMinutes < CACHE_DURATION_MINUTES;
+            return montarCotacao(valorCotacao);
+        }).orTimeout(PRAZO_BUSCA.toMillis(), TimeUnit.MILLISECONDS).join();
     }
 
     private String montarUrlApi() {
@@ -76,10 +95,10 @@ public class CambioService {
     }
 
     private Map<String, Object> executarChamadaHttp(String url) {
-        return restClient.get()
+        return circuitBreaker.executar(() -> restClient.get()
                 .uri(url)
                 .retrieve()
-                .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+                .body(new ParameterizedTypeReference<Map<String, Object>>() {}));
     }
 
     private Double extrairValorCotacao(Map<String, Object> apiResponse) {
@@ -88,30 +107,25 @@ public class CambioService {
             Map<String, Object> currencies = (Map<String, Object>) results.get("currencies");
             Map<String, Object> usdData = (Map<String, Object>) currencies.get("USD");
 
-            if (usdData != null && usdData.containsKey("buy")) {
-                return (Double) usdData.get("buy");
+            if (usdData != null && usdData.get("buy") instanceof Number compra) {
+                return compra.doubleValue();
             }
         }
         return null;
     }
 
-    private Map<String, Object> atualizarCache (Double cotacaoValor) {
-        Map<String, Object> novoResultado = new HashMap<>();
-        novoResultado.put("cotacao", cotacaoValor);
-        novoResultado.put("ultima_atualizacao", Instant.now().toString());
-        this.cacheCotacao = novoResultado;
-        return novoResultado;
+    private CotacaoDolarDTO montarCotacao(double cotacaoValor) {
+        Instant agora = Instant.now();
+        historicoCotacoes.registrar(MOEDA, agora.toEpochMilli(), cotacaoValor);
+        return new CotacaoDolarDTO(cotacaoValor, agora);
     }
 
-    private Map<String, Object> obterFallback () {
-        if (cacheCotacao.containsKey("cotacao")) {
-            return cacheCotacao;
-        }
-        return Map.of("cotacao", 5.50, "ultima_atualizacao", Instant.now().toString());
+    private CotacaoDolarDTO obterFallback() {
+        return new CotacaoDolarDTO(5.50, Instant.now());
     }
 
     @Scheduled(fixedRate = 50 * 60 * 1000)
     public void updateQuoteAutomatically() {
-        fetchNovaCotacao();
+        cache.recarregar(MOEDA);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.gestao.financeira.externalservice;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Categorias de renda variável cotadas na Brapi e o {@code Saldo.tipo} correspondente.
+ * Os tickers fixos formam a vitrine das telas de mercado (/api/rv/*).
+ */
+public enum CategoriaRendaVariavel {
+    ACOES("ACAO", "PETR4,VALE3,ITUB4,BBDC4,BBAS3,WEGE3,RENT3,BPAC11,SUZB3,PRIO3"),
+    FIIS("FII", "MXRF11,HGLG11,KNRI11,XPLG11,VISC11,HCTR11,IRDM11,BTLG11,XPML11,VGHF11"),
+    ETFS("ETF", "BOVA11,SMAL11,IVVB11,NASD11,HASH11,XINA11,GOLD11");
+
+    private final String tipoSaldo;
+    private final List<String> vitrine;
+
+    CategoriaRendaVariavel(String tipoSaldo, String vitrine) {
+        this.tipoSaldo = tipoSaldo;
+        this.vitrine = Arrays.stream(vitrine.split(",")).map(String::trim).toList();
+    }
+
+    public String getTipoSaldo() {
+        return tipoSaldo;
+    }
+
+    public List<String> getVitrine() {
+        return vitrine;
+    }
+
+    public static Optional<CategoriaRendaVariavel> doTipoSaldo(String tipo) {
+        if (tipo == null) return Optional.empty();
+        String normalizado = tipo.trim().toUpperCase();
+        return Arrays.stream(values())
+                .filter(c -> c.tipoSaldo.equals(normalizado))
+                .findFirst();
+    }
+}
@@ -0,0 +1,220 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.config.CircuitBreakerProperties.Limites;
+import com.gestao.financeira.exception.CircuitBreakerAbertoException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker de um upstream. Fechado, guarda o resultado das últimas {@code janela} chamadas e abre
+ * quando a taxa de falhas ou a de chamadas lentas passa do limite (com pelo menos {@code chamadasMinimas}
+ * na janela). Aberto, recusa na hora com {@link CircuitBreakerAbertoException}, sem ocupar thread esperando
+ * o provedor. Passado {@code tempoAberto}, fica meio-aberto e libera só {@code chamadasMeioAberto} chamadas
+ * de teste: se elas ficarem dentro dos limites o circuito fecha, senão abre de novo.
+ * <p>
+ * Erros 4xx (fora 408 e 429) são culpa da requisição, não do provedor, e contam como sucesso.
+ * Cada troca de estado muda a geração, então resultados de chamadas iniciadas no estado anterior
+ * são ignorados.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum Estado { FECHADO, ABERTO, MEIO_ABERTO }
+
+    /** Estado atual para o endpoint {@code /actuator/circuitbreakers}. */
+    public record Situacao(Estado estado, int chamadas, int falhas, int lentas,
+                           Instant abertoAte, long recusadas, Limites limites) {}
+
+    private final String nome;
+    private final Limites limites;
+    private final Clock relogio;
+
+    // Janela circular das últimas chamadas no estado fechado
+    private final boolean[] falhas;
+    private final boolean[] lentas;
+    private int posicao;
+    private int total;
+    private int totalFalhas;
+    private int totalLentas;
+
+    private Estado estado = Estado.FECHADO;
+    private long geracao;
+    private long abertoAteMillis;
+    private int testesLiberados;
+    private int testesConcluidos;
+    private int testesComFalha;
+    private int testesLentos;
+    private long recusadas;
+
+    public CircuitBreaker(String nome, Limites limites) {
+        this(nome, limites, Clock.systemUTC());
+    }
+
+    CircuitBreaker(String nome, Limites limites, Clock relogio) {
+        this.nome = nome;
+        this.limites = limites;
+        this.relogio = relogio;
+        this.falhas = new boolean[limites.janela()];
+        this.lentas = new boolean[limites.janela()];
+    }
+
+    /**
+     * Executa a chamada bloqueante se o circuito deixar.
+     *
+     * Qualquer saída da chamada, inclusive {@link Error}, é registrada: do contrário a vaga de teste
+     * do meio-aberto ficaria presa e o circuito não fecharia mais.
+     *
+     * @throws CircuitBreakerAbertoException se o circuito estiver aberto ou sem vaga de teste
+     */
+    public <T> T executar(Supplier<T> chamada) {
+        long geracaoDaChamada = adquirir();
+        long inicio = relogio.millis();
+        Throwable erro = null;
+        try {
+            return chamada.get();
+        } catch (Throwable e) {
+            erro = e;
+            throw e;
+        } finally {
+            registrar(geracaoDaChamada, erro != null && contaComoFalha(erro), inicio);
+        }
+    }
+
+    /**
+     * Versão reativa: a permissão é pedida na assinatura e o resultado registrado quando o Mono termina.
+     * Aplique o timeout dentro de {@code chamada}, para que estourar o prazo conte como falha.
+     */
+    public <T> Mono<T> proteger(Mono<T> chamada) {
+        return Mono.defer(() -> {
+            long geracaoDaChamada = adquirir();
+            long inicio = relogio.millis();
+            return chamada
+                    .doOnSuccess(valor -> registrar(geracaoDaChamada, false, inicio))
+                    .doOnError(e -> registrar(geracaoDaChamada, contaComoFalha(e), inicio))
+                    .doOnCancel(() -> liberar(geracaoDaChamada));
+        });
+    }
+
+    public synchronized Situacao situacao() {
+        atualizarEstado(relogio.millis());
+        int chamadas = estado == Estado.MEIO_ABERTO ? testesConcluidos : total;
+        int comFalha = estado == Estado.MEIO_ABERTO ? testesComFalha : totalFalhas;
+        int comDemora = estado == Estado.MEIO_ABERTO ? testesLentos : totalLentas;
+        Instant ate = estado == Estado.ABERTO ? Instant.ofEpochMilli(abertoAteMillis) : null;
+        return new Situacao(estado, chamadas, comFalha, comDemora, ate, recusadas, limites);
+    }
+
+    private synchronized long adquirir() {
+        long agora = relogio.millis();
+        atualizarEstado(agora);
+        if (estado == Estado.FECHADO) {
+            return geracao;
+        }
+        if (estado == Estado.MEIO_ABERTO && testesLiberados < limites.chamadasMeioAberto()) {
+            testesLiberados++;
+            return geracao;
+        }
+        recusadas++;
+        long espera = estado == Estado.ABERTO ? abertoAteMillis - agora : limites.tempoAberto().toMillis();
+        throw new CircuitBreakerAbertoException(nome, Math.max(1, (espera + 999) / 1000));
+    }
+
+    private synchronized void registrar(long geracaoDaChamada, boolean falhou, long inicio) {
+        if (geracaoDaChamada != geracao) return;
+        boolean lenta = relogio.millis() - inicio >= limites.chamadaLenta().toMillis();
+
+        if (estado == Estado.MEIO_ABERTO) {
+            testesConcluidos++;
+            if (falhou) testesComFalha++;
+            if (lenta) testesLentos++;
+            if (testesConcluidos >= limites.chamadasMeioAberto()) {
+                if (acimaDosLimites(testesComFalha, testesLentos, testesConcluidos)) {
+                    abrir("chamadas de teste falharam");
+                } else {
+                    fechar();
+                }
+            }
+            return;
+        }
+
+        if (total == falhas.length) {
+            if (falhas[posicao]) totalFalhas--;
+            if (lentas[posicao]) totalLentas--;
+        } else {
+            total++;
+        }
+        falhas[posicao] = falhou;
+        lentas[posicao] = lenta;
+        if (falhou) totalFalhas++;
+        if (lenta) totalLentas++;
+        posicao = (posicao + 1) % falhas.length;
+
+        if (total >= limites.chamadasMinimas() && acimaDosLimites(totalFalhas, totalLentas, total)) {
+            abrir(totalFalhas + " falhas e " + totalLentas + " lentas nas últimas " + total + " chamadas");
+        }
+    }
+
+    // Chamada de teste cancelada (ex: outra fonte do zip falhou) devolve a vaga sem contar resultado
+    private synchronized void liberar(long geracaoDaChamada) {
+        if (geracaoDaChamada == geracao && estado == Estado.MEIO_ABERTO && testesLiberados > testesConcluidos) {
+            testesLiberados--;
+        }
+    }
+
+    private void atualizarEstado(long agora) {
+        if (estado == Estado.ABERTO && agora >= abertoAteMillis) {
+            estado = Estado.MEIO_ABERTO;
+            geracao++;
+            testesLiberados = 0;
+            testesConcluidos = 0;
+            testesComFalha = 0;
+            testesLentos = 0;
+            log.info("Circuito de {} meio-aberto: liberando {} chamadas de teste", nome, limites.chamadasMeioAberto());
+        }
+    }
+
+    private boolean acimaDosLimites(int comFalha, int comDemora, int chamadas) {
+        return comFalha * 100L >= (long) limites.taxaFalhaPercent() * chamadas
+                || comDemora * 100L >= (long) limites.taxaLentaPercent() * chamadas;
+    }
+
+    private void abrir(String motivo) {
+        estado = Estado.ABERTO;
+        geracao++;
+        abertoAteMillis = relogio.millis() + limites.tempoAberto().toMillis();
+        log.warn("Circuito de {} aberto por {} ({})", nome, limites.tempoAberto(), motivo);
+    }
+
+    private void fechar() {
+        estado = Estado.FECHADO;
+        geracao++;
+        posicao = 0;
+        total = 0;
+        totalFalhas = 0;
+        totalLentas = 0;
+        Arrays.fill(falhas, false);
+        Arrays.fill(lentas, false);
+        log.info("Circuito de {} fechado: chamadas de teste dentro dos limites", nome);
+    }
+
+    static boolean contaComoFalha(Throwable erro) {
+        HttpStatusCode status = null;
+        if (erro instanceof RestClientResponseException resposta) {
+            status = resposta.getStatusCode();
+        } else if (erro instanceof WebClientResponseException resposta) {
+            status = resposta.getStatusCode();
+        }
+        if (status == null || !status.is4xxClientError()) {
+            return true;
+        }
+        return status.value() == 408 || status.value() == 429;
+    }
+}
@@ -0,0 +1,37 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.config.CircuitBreakerProperties;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Um {@link CircuitBreaker} por upstream, criado no primeiro uso com os limites de
+ * {@code app.circuit-breaker}. O estado de todos aparece em {@code /actuator/circuitbreakers}.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakers {
+
+    private final CircuitBreakerProperties properties;
+    private final Map<String, CircuitBreaker> porUpstream = new ConcurrentHashMap<>();
+
+    public CircuitBreakers(CircuitBreakerProperties properties) {
+        this.properties = properties;
+    }
+
+    public CircuitBreaker get(String upstream) {
+        return porUpstream.computeIfAbsent(upstream, nome -> new CircuitBreaker(nome, properties.limitesDe(nome)));
+    }
+
+    @ReadOperation
+    public Map<String, CircuitBreaker.Situacao> situacoes() {
+        Map<String, CircuitBreaker.Situacao> situacoes = new TreeMap<>();
+        porUpstream.forEach((nome, breaker) -> situacoes.put(nome, breaker.situacao()));
+        return situacoes;
+    }
+}
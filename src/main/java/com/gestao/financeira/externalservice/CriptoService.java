@@ -1,19 +1,24 @@
 package com.gestao.financeira.externalservice;
 
+import com.gestao.financeira.config.MarketDataProperties;
+import com.gestao.financeira.dto.CotacaoDolarDTO;
+import com.gestao.financeira.dto.CriptoDTO;
+import com.gestao.financeira.event.CotacoesAtualizadasEvent;
+import com.gestao.financeira.exception.CircuitBreakerAbertoException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 @Service
 @Slf4j
@@ -23,15 +28,18 @@ public class CriptoService {
     private final String apiCmcKey;
     private final String apiCoinGeckoUrl;
     private final CambioService cambioService;
-    private final RestClient restClient = RestClient.builder()
-            .defaultHeader("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36")
-            .build();
-    private Map<String, Object> cacheCripto = new ConcurrentHashMap<>();
+    private final HistoricoCotacoes historicoCotacoes;
+    private final MarketDataClient marketDataClient;
+    private final MarketDataProperties marketDataProperties;
+    private final StaleWhileRevalidateCache<String, List<CriptoDTO>> cache;
 
-    private Instant momentoUltimoErroPrincipal = null;
-    private int errosConsecutivos = 0;
-    private static final int LIMITE_ERROS_PARA_BLOQUEAR = 3;
-    private static final long TEMPO_ESPERA_MINUTOS = 60;
+    private static final String FONTE_CMC = "cmc";
+    private static final String FONTE_COINGECKO = "coingecko";
+    private static final String FONTE_CAMBIO = "hgbrasil";
+
+    private static final String CHAVE_CACHE = "top10";
+    private static final Duration CACHE_DURACAO = Duration.ofMinutes(30);
+    private static final Duration ESPERA_PRIMEIRA_CARGA = Duration.ofSeconds(10);
 
     private static final String MOEDAS_ALVO_CMC = "BTC,ETH,XRP,BNB,SOL,USDC,TRX,DOGE,ADA,USDT";
 
@@ -39,175 +47,174 @@ public class CriptoService {
             @Value("${api.cmc-url}") String apiCmcUrl,
             @Value("${api.cmc-key}") String apiCmcKey,
             @Value("${api.coingecko-url}") String apiCoinGeckoUrl,
-            CambioService cambioService
+            CambioService cambioService,
+            ApplicationEventPublisher eventPublisher,
+            HistoricoCotacoes historicoCotacoes,
+            MarketDataClient marketDataClient,
+            MarketDataProperties marketDataProperties,
+            ExecutorService cotacoesExecutor
     ) {
         this.apiCmcUrl = apiCmcUrl;
         this.apiCmcKey = apiCmcKey;
         this.apiCoinGeckoUrl = apiCoinGeckoUrl;
         this.cambioService = cambioService;
+        this.historicoCotacoes = historicoCotacoes;
+        this.marketDataClient = marketDataClient;
+        this.marketDataProperties = marketDataProperties;
+        this.cache = new StaleWhileRevalidateCache<>("cripto", CACHE_DURACAO, ESPERA_PRIMEIRA_CARGA,
+                chave -> orquestrarBuscaDeDados(),
+                (chave, snapshot) -> eventPublisher.publishEvent(new CotacoesAtualizadasEvent("cripto")),
+                cotacoesExecutor);
     }
 
-    @SuppressWarnings("unchecked")
-    public List<Map<String, Object>> buscarTop10Criptos() {
-        if (cacheCripto.containsKey("lista_moedas") && isCacheValid()) {
-            return (List<Map<String, Object>>) cacheCripto.get("lista_moedas");
-        }
-        return orquestrarBuscaDeDados();
+    public List<CriptoDTO> buscarTop10Criptos() {
+        return lerTop10Criptos().valor();
     }
 
-    private List<Map<String, Object>> orquestrarBuscaDeDados() {
-        Double cotacaoDolar = obterDolarAtual();
-        if (cotacaoDolar == null) return obterFallbackEmergencia();
-
-        if (isPrincipalBloqueada()) {
-            log.warn("CoinMarketCap em tempo de espera. Usando CoinGecko (Fallback).");
-            return fallbackCoinGecko(cotacaoDolar);
-        }
-
-        try {
-            log.info("Tentando buscar via CoinMarketCap (Principal)...");
-            List<Map<String, Object>> resultado = tentarCoinMarketCap(cotacaoDolar);
-            errosConsecutivos = 0;
-            momentoUltimoErroPrincipal = null;
-            return resultado;
-
-        } catch (Exception e) {
-            errosConsecutivos++;
-            log.warn("Falha ao consultar CoinMarketCap (Erro {}/{}): {}",
-                    errosConsecutivos, LIMITE_ERROS_PARA_BLOQUEAR, e.getMessage());
+    /**
+     * Lista do cache com os metadados de frescor. Vencida, volta na hora e a recarga segue em background.
+     */
+    public StaleWhileRevalidateCache.Leitura<List<CriptoDTO>> lerTop10Criptos() {
+        StaleWhileRevalidateCache.Leitura<List<CriptoDTO>> leitura = cache.get(CHAVE_CACHE);
+        return leitura.temValor() ? leitura : StaleWhileRevalidateCache.Leitura.semCache(obterFallbackEmergencia());
+    }
 
-            if (errosConsecutivos >= LIMITE_ERROS_PARA_BLOQUEAR) {
-                momentoUltimoErroPrincipal = Instant.now();
-                log.error("Limite de erros atingido. Bloqueando CoinMarketCap por {} minutos.", TEMPO_ESPERA_MINUTOS);
-            }
+    /**
+     * Última lista conhecida, sem nunca chamar as APIs. Vazia antes da primeira carga.
+     */
+    public List<CriptoDTO> criptosEmCache() {
+        List<CriptoDTO> criptos = cache.peek(CHAVE_CACHE);
+        return criptos != null ? criptos : List.of();
+    }
 
-            return fallbackCoinGecko(cotacaoDolar);
+    private List<CriptoDTO> orquestrarBuscaDeDados() {
+        // O câmbio (vem do cache, mas bloqueia na primeira carga) roda no boundedElastic enquanto os preços em
+        // dólar são buscados; a conversão só acontece quando os dois chegam. Com prazo, como as outras fontes:
+        // sem ele, uma primeira carga travada do câmbio seguraria o ciclo de cripto inteiro
+        Mono<Double> dolar = Mono.fromCallable(this::obterDolarAtual)
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(marketDataProperties.timeoutDa(FONTE_CAMBIO))
+                .onErrorResume(e -> {
+                    log.error("Erro ao obter cotação do dólar: {}", e.getMessage());
+                    return Mono.empty();
+                });
+
+        List<CriptoDTO> resultado = Mono.zip(dolar, buscarPrecosEmDolar())
+                .map(t -> converterParaReais(t.getT2(), t.getT1()))
+                .block();
+
+        if (resultado == null) {
+            throw new IllegalStateException("Nenhuma fonte de cotação de cripto respondeu");
         }
+        registrarHistorico(resultado);
+        return resultado;
     }
 
-    private boolean isPrincipalBloqueada() {
-        if (momentoUltimoErroPrincipal == null) return false;
-        long minutosPassados = Duration.between(momentoUltimoErroPrincipal, Instant.now()).toMinutes();
-        return minutosPassados < TEMPO_ESPERA_MINUTOS;
+    /**
+     * Preços em dólar pela CoinMarketCap ou, se ela falhar ou estiver com o circuito aberto, pela CoinGecko.
+     * Vazio quando as duas falham.
+     */
+    private Mono<List<PrecoUsd>> buscarPrecosEmDolar() {
+        Mono<List<PrecoUsd>> coinGecko = Mono.defer(this::fallbackCoinGecko)
+                .onErrorResume(e -> {
+                    log.error("Erro Crítico: CoinGecko também falhou: {}", e.getMessage());
+                    return Mono.empty();
+                });
+
+        return tentarCoinMarketCap()
+                .onErrorResume(e -> {
+                    if (e instanceof CircuitBreakerAbertoException) {
+                        log.warn("CoinMarketCap com circuito aberto. Usando CoinGecko (Fallback).");
+                    } else {
+                        log.warn("Falha ao consultar CoinMarketCap: {}. Usando CoinGecko (Fallback).", e.getMessage());
+                    }
+                    return coinGecko;
+                });
     }
 
     @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> tentarCoinMarketCap(Double cotacaoDolar) {
+    private Mono<List<PrecoUsd>> tentarCoinMarketCap() {
         String urlCompleta = apiCmcUrl + "?symbol=" + MOEDAS_ALVO_CMC + "&convert=USD";
 
-        Map<String, Object> response = restClient.get()
-                .uri(urlCompleta)
-                .header("X-CMC_PRO_API_KEY", apiCmcKey)
-                .retrieve()
-                .body(new ParameterizedTypeReference<Map<String, Object>>() {});
-
-        if (response == null || !response.containsKey("data")) {
-            throw new RuntimeException("Resposta inválida da CMC");
-        }
-        Map<String, Object> dataMap = (Map<String, Object>) response.get("data");
-        List<Map<String, Object>> processada = new ArrayList<>();
-        String[] simbolosOrdenados = MOEDAS_ALVO_CMC.split(",");
-
-        for (String targetSymbol : simbolosOrdenados) {
-            if (dataMap.containsKey(targetSymbol)) {
-                Map<String, Object> coinData = (Map<String, Object>) dataMap.get(targetSymbol);
-
-                String symbol = (String) coinData.get("symbol");
-                String name = (String) coinData.get("name");
-
-                Map<String, Object> quote = (Map<String, Object>) coinData.get("quote");
-                Map<String, Object> usdInfo = (Map<String, Object>) quote.get("USD");
-                Double priceUsd = ((Number) usdInfo.get("price")).doubleValue();
-
-                processada.add(montarObjetoMoeda(symbol, name, priceUsd, cotacaoDolar));
-            }
-        }
-
-        atualizarCache(processada);
-        return processada;
+        return marketDataClient.get(FONTE_CMC, urlCompleta,
+                        headers -> headers.set("X-CMC_PRO_API_KEY", apiCmcKey),
+                        new ParameterizedTypeReference<Map<String, Object>>() {})
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Resposta inválida da CMC")))
+                .map(response -> {
+                    if (!response.containsKey("data")) {
+                        throw new RuntimeException("Resposta inválida da CMC");
+                    }
+                    Map<String, Object> dataMap = (Map<String, Object>) response.get("data");
+                    List<PrecoUsd> precos = new ArrayList<>();
+                    String[] simbolosOrdenados = MOEDAS_ALVO_CMC.split(",");
+
+                    for (String targetSymbol : simbolosOrdenados) {
+                        if (dataMap.containsKey(targetSymbol)) {
+                            Map<String, Object> coinData = (Map<String, Object>) dataMap.get(targetSymbol);
+
+                            String symbol = (String) coinData.get("symbol");
+                            String name = (String) coinData.get("name");
+
+                            Map<String, Object> quote = (Map<String, Object>) coinData.get("quote");
+                            Map<String, Object> usdInfo = (Map<String, Object>) quote.get("USD");
+                            Double priceUsd = ((Number) usdInfo.get("price")).doubleValue();
+
+                            precos.add(new PrecoUsd(symbol, name, priceUsd));
+                        }
+                    }
+                    return precos;
+                });
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> fallbackCoinGecko(Double cotacaoDolar) {
-        try {
-            List<Map<String, Object>> listaBruta = restClient.get()
-                    .uri(apiCoinGeckoUrl)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<Map<String, Object>>>() {});
-
-            List<Map<String, Object>> processada = new ArrayList<>();
-
-            if (listaBruta != null) {
-                for (Map<String, Object> item : listaBruta) {
-                    String symbol = ((String) item.get("symbol")).toUpperCase();
-                    String name = (String) item.get("name");
-                    Double priceUsd = ((Number) item.get("current_price")).doubleValue();
-
-                    processada.add(montarObjetoMoeda(symbol, name, priceUsd, cotacaoDolar));
-                }
-            }
-
-            atualizarCache(processada);
-            return processada;
-
-        } catch (Exception e) {
-            log.error("Erro Crítico: CoinGecko também falhou: {}", e.getMessage());
-            return obterFallbackEmergencia();
-        }
+    private Mono<List<PrecoUsd>> fallbackCoinGecko() {
+        return marketDataClient.get(FONTE_COINGECKO, apiCoinGeckoUrl,
+                        new ParameterizedTypeReference<List<Map<String, Object>>>() {})
+                .defaultIfEmpty(List.of())
+                .map(listaBruta -> {
+                    List<PrecoUsd> precos = new ArrayList<>();
+                    for (Map<String, Object> item : listaBruta) {
+                        String symbol = ((String) item.get("symbol")).toUpperCase();
+                        String name = (String) item.get("name");
+                        Double priceUsd = ((Number) item.get("current_price")).doubleValue();
+
+                        precos.add(new PrecoUsd(symbol, name, priceUsd));
+                    }
+                    return precos;
+                });
     }
 
     private Double obterDolarAtual() {
-        Map<String, Object> dadosDolar = cambioService.buscarCotacaoAtualizada();
-        if (dadosDolar != null && dadosDolar.get("cotacao") != null) {
-            return (Double) dadosDolar.get("cotacao");
-        }
-        return null;
+        CotacaoDolarDTO dolar = cambioService.buscarCotacaoAtualizada();
+        return dolar != null ? dolar.cotacao() : null;
     }
 
-    private Map<String, Object> montarObjetoMoeda(String simbolo, String nomeBase, Double valorEmDolar, Double cotacaoDolar) {
-        Map<String, Object> moeda = new HashMap<>();
-        moeda.put("nome", nomeBase);
-        moeda.put("simbolo", simbolo);
-        moeda.putAll(calcularPrecos(valorEmDolar, cotacaoDolar));
-        return moeda;
-    }
-
-    private Map<String, Double> calcularPrecos(Double valorOriginalUsd, Double taxaCambioBrl) {
-        Map<String, Double> valores = new HashMap<>();
-        valores.put("cotacao_em_dolar", valorOriginalUsd);
-        valores.put("cotacao_em_reais", valorOriginalUsd * taxaCambioBrl);
-        return valores;
+    private List<CriptoDTO> converterParaReais(List<PrecoUsd> precos, double cotacaoDolar) {
+        List<CriptoDTO> processada = new ArrayList<>(precos.size());
+        for (PrecoUsd preco : precos) {
+            processada.add(montarObjetoMoeda(preco.simbolo(), preco.nome(), preco.valorEmDolar(), cotacaoDolar));
+        }
+        return List.copyOf(processada);
     }
 
-    private void atualizarCache(List<Map<String, Object>> lista) {
-        Map<String, Object> novoCache = new ConcurrentHashMap<>();
-        novoCache.put("lista_moedas", lista);
-        novoCache.put("ultima_atualizacao", Instant.now().toString());
-        this.cacheCripto = novoCache;
+    private CriptoDTO montarObjetoMoeda(String simbolo, String nomeBase, double valorEmDolar, double cotacaoDolar) {
+        return new CriptoDTO(nomeBase, simbolo, valorEmDolar, valorEmDolar * cotacaoDolar);
     }
 
-    private boolean isCacheValid() {
-        long CACHE_DURATION_MINUTES = 30;
-        if (!cacheCripto.containsKey("ultima_atualizacao")) return false;
-        Instant lastUpdate = Instant.parse((String) cacheCripto.get("ultima_atualizacao"));
-        long elapsedMinutes = java.time.Duration.between(lastUpdate, Instant.now()).toMinutes();
-        return elapsedMinutes < CACHE_DURATION_MINUTES;
+    private void registrarHistorico(List<CriptoDTO> lista) {
+        long agora = System.currentTimeMillis();
+        for (CriptoDTO moeda : lista) {
+            historicoCotacoes.registrar(moeda.simbolo(), agora, moeda.cotacaoEmReais());
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> obterFallbackEmergencia() {
-        if (cacheCripto.containsKey("lista_moedas")) {
-            return (List<Map<String, Object>>) cacheCripto.get("lista_moedas");
-        }
+    private List<CriptoDTO> obterFallbackEmergencia() {
         return List.of(montarObjetoMoeda("BTC", "Bitcoin", 98000.0, 6.0));
     }
 
     @Scheduled(fixedRate = 30 * 60 * 1000)
     public void updateCriptosAutomatically() {
-        orquestrarBuscaDeDados();
+        cache.recarregar(CHAVE_CACHE);
     }
 
-    public Map<String, Object> getCacheRaw() {
-        return this.cacheCripto;
-    }
+    private record PrecoUsd(String simbolo, String nome, double valorEmDolar) {}
 }
\ No newline at end of file
@@ -0,0 +1,332 @@
+package com.gestao.financeira.externalservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Histórico local e append-only das cotações coletadas pelos serviços externos.
+ * <p>
+ * Cada ponto é um registro de largura fixa (id do símbolo, epoch millis, preço e a posição do
+ * ponto anterior do mesmo símbolo) gravado em arquivos de segmento mapeados em memória. Os
+ * segmentos misturam todos os símbolos em ordem de tempo; o encadeamento por símbolo faz uma
+ * consulta andar só pelos pontos do símbolo pedido, do mais recente para trás, entregando-os
+ * como primitivos (sem criar um objeto por linha).
+ * <pre>
+ * diretorio/
+ *   simbolos.idx          um símbolo por linha; o número da linha é o id
+ *   segmento-000000.dat   registros de 24 bytes: int simboloId | long epochMillis | double preco | int anterior
+ * </pre>
+ * A posição de um registro é {@code numeroDoSegmento * registrosPorSegmento + indice}; {@code anterior}
+ * é -1 no primeiro ponto do símbolo.
+ */
+@Component
+@Slf4j
+public class HistoricoCotacoes {
+
+    /**
+     * Pontos de uma consulta em arrays paralelos, em ordem crescente de tempo.
+     */
+    public record Serie(long[] timestamps, double[] precos) {
+        static final Serie VAZIA = new Serie(new long[0], new double[0]);
+    }
+
+    private static final int TAMANHO_REGISTRO = 24;
+    private static final int REGISTROS_POR_SEGMENTO = 1 << 18; // ~6 MB por arquivo
+    private static final int SEM_ANTERIOR = -1;
+    private static final String ARQUIVO_SIMBOLOS = "simbolos.idx";
+
+    private static final class Segmento {
+        final int numero;
+        final MappedByteBuffer buffer;
+        volatile int registros;
+
+        Segmento(int numero, MappedByteBuffer buffer, int registros) {
+            this.numero = numero;
+            this.buffer = buffer;
+            this.registros = registros;
+        }
+
+        int simbolo(int indice) {
+            return buffer.getInt(indice * TAMANHO_REGISTRO);
+        }
+
+        long timestamp(int indice) {
+            return buffer.getLong(indice * TAMANHO_REGISTRO + 4);
+        }
+
+        double preco(int indice) {
+            return buffer.getDouble(indice * TAMANHO_REGISTRO + 12);
+        }
+
+        int anterior(int indice) {
+            return buffer.getInt(indice * TAMANHO_REGISTRO + 20);
+        }
+    }
+
+    private final Path diretorio;
+    private final int registrosPorSegmento;
+    private final Map<String, Integer> idsPorSimbolo = new ConcurrentHashMap<>();
+    // Posição do ponto mais recente de cada símbolo: a cabeça do encadeamento
+    private final Map<Integer, Integer> ultimaPosicao = new ConcurrentHashMap<>();
+    private final List<Segmento> segmentos = new CopyOnWriteArrayList<>();
+    private long ultimoTimestamp;
+    private volatile boolean habilitado;
+
+    @Autowired
+    public HistoricoCotacoes(@Value("${app.historico.diretorio:historico}") String diretorio) {
+        this(diretorio, REGISTROS_POR_SEGMENTO);
+    }
+
+    HistoricoCotacoes(String diretorio, int registrosPorSegmento) {
+        this.diretorio = Path.of(diretorio);
+        this.registrosPorSegmento = registrosPorSegmento;
+    }
+
+    @PostConstruct
+    void abrir() {
+        try {
+            Files.createDirectories(diretorio);
+            carregarSimbolos();
+            carregarSegmentos();
+            carregarUltimasPosicoes();
+            habilitado = true;
+            log.info("Histórico de cotações em {}: {} símbolos, {} segmentos", diretorio, idsPorSimbolo.size(), segmentos.size());
+        } catch (IOException e) {
+            // Sem histórico o resto do sistema continua funcionando normalmente
+            log.error("Histórico de cotações desabilitado ({}): {}", diretorio, e.getMessage());
+        }
+    }
+
+    /**
+     * Acrescenta um ponto. Timestamps fora de ordem são empurrados para o último gravado,
+     * mantendo os segmentos ordenados para a busca binária.
+     */
+    public synchronized void registrar(String simbolo, long epochMillis, double preco) {
+        if (!habilitado || simbolo == null || Double.isNaN(preco)) return;
+
+        try {
+            int id = idDoSimbolo(simbolo.toUpperCase());
+            Segmento ativo = segmentoAtivo();
+            long timestamp = Math.max(epochMillis, ultimoTimestamp);
+            int indice = ativo.registros;
+
+            int base = indice * TAMANHO_REGISTRO;
+            ativo.buffer.putInt(base, id);
+            ativo.buffer.putLong(base + 4, timestamp);
+            ativo.buffer.putDouble(base + 12, preco);
+            ativo.buffer.putInt(base + 20, ultimaPosicao.getOrDefault(id, SEM_ANTERIOR));
+            ativo.registros++; // escrita volátil publica o registro para os leitores
+            ultimaPosicao.put(id, ativo.numero * registrosPorSegmento + indice);
+
+            ultimoTimestamp = timestamp;
+        } catch (IOException e) {
+            log.error("Falha ao gravar histórico de {}: {}", simbolo, e.getMessage());
+        }
+    }
+
+    /**
+     * Os {@code maximo} pontos mais recentes do símbolo com {@code deMillis <= timestamp <= ateMillis},
+     * numa passada só pelo encadeamento do símbolo (sem tocar nos pontos dos outros).
+     */
+    public Serie ultimos(String simbolo, long deMillis, long ateMillis, int maximo) {
+        Integer id = simbolo != null ? idsPorSimbolo.get(simbolo.toUpperCase()) : null;
+        Integer cabeca = id != null ? ultimaPosicao.get(id) : null;
+        if (cabeca == null || maximo <= 0 || deMillis > ateMillis) return Serie.VAZIA;
+
+        int posicao = cabeca;
+        if (timestamp(posicao) > ateMillis) {
+            posicao = ultimaPosicaoAte(id, deMillis, ateMillis);
+        }
+
+        long[] timestamps = new long[Math.min(maximo, 256)];
+        double[] precos = new double[timestamps.length];
+        int preenchidos = 0;
+        while (posicao != SEM_ANTERIOR && preenchidos < maximo) {
+            Segmento segmento = segmentos.get(posicao / registrosPorSegmento);
+            int indice = posicao % registrosPorSegmento;
+            long timestamp = segmento.timestamp(indice);
+            if (timestamp < deMillis) break;
+
+            if (preenchidos == timestamps.length) {
+                int novoTamanho = Math.min(maximo, preenchidos * 2);
+                timestamps = Arrays.copyOf(timestamps, novoTamanho);
+                precos = Arrays.copyOf(precos, novoTamanho);
+            }
+            timestamps[preenchidos] = timestamp;
+            precos[preenchidos] = segmento.preco(indice);
+            preenchidos++;
+            posicao = segmento.anterior(indice);
+        }
+
+        // Coletados do mais novo para o mais velho; a série sai em ordem crescente
+        long[] serieTimestamps = new long[preenchidos];
+        double[] seriePrecos = new double[preenchidos];
+        for (int i = 0; i < preenchidos; i++) {
+            serieTimestamps[i] = timestamps[preenchidos - 1 - i];
+            seriePrecos[i] = precos[preenchidos - 1 - i];
+        }
+        return new Serie(serieTimestamps, seriePrecos);
+    }
+
+    @PreDestroy
+    synchronized void fechar() {
+        habilitado = false;
+        for (Segmento segmento : segmentos) {
+            segmento.buffer.force();
+        }
+    }
+
+    private long timestamp(int posicao) {
+        return segmentos.get(posicao / registrosPorSegmento).timestamp(posicao % registrosPorSegmento);
+    }
+
+    /**
+     * Consulta que termina antes do ponto mais recente do símbolo: a busca binária por tempo acha o
+     * último registro até {@code ateMillis} e a varredura volta dali até o primeiro do símbolo, sem
+     * passar de {@code deMillis}.
+     */
+    private int ultimaPosicaoAte(int id, long deMillis, long ateMillis) {
+        for (int s = segmentos.size() - 1; s >= 0; s--) {
+            Segmento segmento = segmentos.get(s);
+            int registros = segmento.registros;
+            if (registros == 0 || segmento.timestamp(0) > ateMillis) continue;
+
+            for (int i = primeiroIndiceDepoisDe(segmento, registros, ateMillis) - 1; i >= 0; i--) {
+                if (segmento.timestamp(i) < deMillis) return SEM_ANTERIOR;
+                if (segmento.simbolo(i) == id) return segmento.numero * registrosPorSegmento + i;
+            }
+        }
+        return SEM_ANTERIOR;
+    }
+
+    private int primeiroIndiceDepoisDe(Segmento segmento, int registros, long ateMillis) {
+        int baixo = 0;
+        int alto = registros;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (segmento.timestamp(meio) <= ateMillis) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    private int idDoSimbolo(String simbolo) throws IOException {
+        Integer id = idsPorSimbolo.get(simbolo);
+        if (id != null) return id;
+
+        int novoId = idsPorSimbolo.size();
+        Files.writeString(diretorio.resolve(ARQUIVO_SIMBOLOS), simbolo + "\n", StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        idsPorSimbolo.put(simbolo, novoId);
+        return novoId;
+    }
+
+    private Segmento segmentoAtivo() throws IOException {
+        Segmento ultimo = segmentos.isEmpty() ? null : segmentos.get(segmentos.size() - 1);
+        if (ultimo != null && ultimo.registros < registrosPorSegmento) {
+            return ultimo;
+        }
+        Segmento novo = mapearSegmento(ultimo == null ? 0 : ultimo.numero + 1);
+        segmentos.add(novo);
+        return novo;
+    }
+
+    private void carregarSimbolos() throws IOException {
+        Path arquivo = diretorio.resolve(ARQUIVO_SIMBOLOS);
+        if (!Files.exists(arquivo)) return;
+
+        List<String> linhas = Files.readAllLines(arquivo, StandardCharsets.UTF_8);
+        for (int i = 0; i < linhas.size(); i++) {
+            idsPorSimbolo.put(linhas.get(i), i);
+        }
+    }
+
+    private void carregarSegmentos() throws IOException {
+        List<Integer> numeros;
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            numeros = arquivos
+                    .map(p -> p.getFileName().toString())
+                    .filter(nome -> nome.startsWith("segmento-") && nome.endsWith(".dat"))
+                    .map(nome -> Integer.parseInt(nome.substring(9, nome.length() - 4)))
+                    .sorted()
+                    .toList();
+        }
+        for (int numero : numeros) {
+            // A posição gravada em cada registro conta com os segmentos numerados sem buracos
+            if (numero != segmentos.size()) {
+                throw new IOException("segmento %06d ausente".formatted(segmentos.size()));
+            }
+            Segmento segmento = mapearSegmento(numero);
+            segmentos.add(segmento);
+            if (segmento.registros > 0) {
+                ultimoTimestamp = segmento.timestamp(segmento.registros - 1);
+            }
+        }
+    }
+
+    /**
+     * Reconstrói a cabeça do encadeamento de cada símbolo varrendo do fim para o começo até achar
+     * todos os símbolos conhecidos.
+     */
+    private void carregarUltimasPosicoes() {
+        int conhecidos = idsPorSimbolo.size();
+        for (int s = segmentos.size() - 1; s >= 0 && ultimaPosicao.size() < conhecidos; s--) {
+            Segmento segmento = segmentos.get(s);
+            for (int i = segmento.registros - 1; i >= 0 && ultimaPosicao.size() < conhecidos; i--) {
+                ultimaPosicao.putIfAbsent(segmento.simbolo(i), segmento.numero * registrosPorSegmento + i);
+            }
+        }
+    }
+
+    /**
+     * Mapeia o arquivo inteiro (pré-alocado). A cauda nunca escrita tem timestamp 0, e como os
+     * timestamps são crescentes a quantidade de registros válidos sai de uma busca binária.
+     */
+    private Segmento mapearSegmento(int numero) throws IOException {
+        Path arquivo = diretorio.resolve("segmento-%06d.dat".formatted(numero));
+        try (FileChannel canal = FileChannel.open(arquivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) registrosPorSegmento * TAMANHO_REGISTRO);
+
+            Segmento segmento = new Segmento(numero, buffer, 0);
+            segmento.registros = contarRegistros(segmento);
+            return segmento;
+        }
+    }
+
+    private int contarRegistros(Segmento segmento) {
+        int baixo = 0;
+        int alto = registrosPorSegmento;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (segmento.timestamp(meio) != 0) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+}
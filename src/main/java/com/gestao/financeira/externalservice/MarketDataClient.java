@@ -0,0 +1,52 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.config.MarketDataProperties;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+/**
+ * Cliente HTTP não bloqueante das APIs de cotação. Cada chamada devolve um {@link Mono} já com o
+ * timeout da fonte, então os services podem disparar várias em paralelo e juntar com
+ * {@code Mono.zip}: a atualização leva o tempo da fonte mais lenta, não a soma de todas.
+ * Toda chamada passa pelo circuit breaker da fonte.
+ */
+@Component
+public class MarketDataClient {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/91.0.4472.124 Safari/537.36";
+
+    private final WebClient webClient;
+    private final MarketDataProperties properties;
+    private final CircuitBreakers circuitBreakers;
+
+    public MarketDataClient(WebClient.Builder builder, MarketDataProperties properties, CircuitBreakers circuitBreakers) {
+        this.webClient = builder
+                .defaultHeader(HttpHeaders.USER_AGENT, USER_AGENT)
+                .build();
+        this.properties = properties;
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    public <T> Mono<T> get(String fonte, String url, ParameterizedTypeReference<T> tipo) {
+        return get(fonte, url, headers -> {}, tipo);
+    }
+
+    /**
+     * GET em {@code url} com o timeout configurado para {@code fonte}. Estourado o prazo, o Mono
+     * termina com {@link java.util.concurrent.TimeoutException} e a requisição é cancelada. Com o circuito
+     * da fonte aberto, termina na hora com {@link com.gestao.financeira.exception.CircuitBreakerAbertoException}.
+     */
+    public <T> Mono<T> get(String fonte, String url, Consumer<HttpHeaders> headers, ParameterizedTypeReference<T> tipo) {
+        return circuitBreakers.get(fonte).proteger(webClient.get()
+                .uri(url)
+                .headers(headers)
+                .retrieve()
+                .bodyToMono(tipo)
+                .timeout(properties.timeoutDa(fonte)));
+    }
+}
@@ -1,45 +1,98 @@
 package com.gestao.financeira.externalservice;
 
+import com.gestao.financeira.dto.IndicesRendaFixaDTO;
+import com.gestao.financeira.event.CotacoesAtualizadasEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 @Service
 @Slf4j
 public class RendaFixaService {
 
     private final String apiGovUrl;
+    private final String apiGovSerieUrl;
+    private final int anosHistorico;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HistoricoCotacoes historicoCotacoes;
+    private final MarketDataClient marketDataClient;
     private final RestClient restClient = RestClient.create();
+    // Downloads de anos de série levam bem mais que a consulta do último valor: breaker próprio
+    private final CircuitBreaker circuitBreakerSeries;
 
     // Guarda CDI, SELIC, IPCA
-    private Map<String, Object> cacheIndices = new ConcurrentHashMap<>();
+    private final StaleWhileRevalidateCache<String, IndicesRendaFixaDTO> cacheIndices;
+    // Séries diárias completas de CDI e SELIC para o rendimento acumulado
+    private final Map<String, TabelaFatoresDiarios> tabelasFatores = new ConcurrentHashMap<>();
+
+    private static final DateTimeFormatter FORMATO_BCB = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // O SGS limita consultas de séries diárias a janelas de 10 anos
+    private static final int ANOS_POR_CONSULTA = 10;
+
+    private static final String FONTE_BCB = "bcb";
+    private static final String CHAVE_INDICES = "indices";
+    private static final Duration CACHE_DURACAO = Duration.ofHours(12);
+    private static final Duration ESPERA_PRIMEIRA_CARGA = Duration.ofSeconds(10);
 
     private static final String CODIGO_CDI = "12";   // Taxa DI diária
     private static final String CODIGO_SELIC = "11"; // Taxa Selic diária
     private static final String CODIGO_IPCA = "433"; // IPCA Mensal
 
-    public RendaFixaService(@Value("${api.gov-url}") String apiGovUrl) {
+    public RendaFixaService(@Value("${api.gov-url}") String apiGovUrl,
+                            @Value("${api.gov-serie-url:https://api.bcb.gov.br/dados/serie/bcdata.sgs.{codigo}/dados?formato=json&dataInicial={inicio}&dataFinal={fim}}") String apiGovSerieUrl,
+                            @Value("${app.renda-fixa.anos-historico:10}") int anosHistorico,
+                            ApplicationEventPublisher eventPublisher,
+                            HistoricoCotacoes historicoCotacoes,
+                            MarketDataClient marketDataClient,
+                            CircuitBreakers circuitBreakers,
+                            ExecutorService cotacoesExecutor) {
         this.apiGovUrl = apiGovUrl;
+        this.apiGovSerieUrl = apiGovSerieUrl;
+        this.anosHistorico = anosHistorico;
+        this.eventPublisher = eventPublisher;
+        this.historicoCotacoes = historicoCotacoes;
+        this.marketDataClient = marketDataClient;
+        this.circuitBreakerSeries = circuitBreakers.get("bcb-series");
+        this.cacheIndices = new StaleWhileRevalidateCache<>("renda_fixa", CACHE_DURACAO, ESPERA_PRIMEIRA_CARGA,
+                chave -> orquestrarBuscaIndices(),
+                (chave, indices) -> eventPublisher.publishEvent(new CotacoesAtualizadasEvent("renda_fixa")),
+                cotacoesExecutor);
     }
 
     /**
-     * Retorna um Map com os índices atuais. Ex: {"CDI": 0.0501, "IPCA": 0.54}
+     * Retorna os índices atuais. Ex: CDI 0.0501, IPCA 0.54
      */
-    public Map<String, Object> buscarIndicesAtuais() {
-        if (cacheIndices.containsKey("ultima_atualizacao") && isCacheValid()) {
-            return cacheIndices;
-        }
-        return orquestrarBuscaIndices();
+    public IndicesRendaFixaDTO buscarIndicesAtuais() {
+        return lerIndicesAtuais().valor();
+    }
+
+    /**
+     * Índices do cache com os metadados de frescor. Vencidos, voltam na hora e a recarga segue em background.
+     */
+    public StaleWhileRevalidateCache.Leitura<IndicesRendaFixaDTO> lerIndicesAtuais() {
+        StaleWhileRevalidateCache.Leitura<IndicesRendaFixaDTO> leitura = cacheIndices.get(CHAVE_INDICES);
+        return leitura.temValor() ? leitura : StaleWhileRevalidateCache.Leitura.semCache(indicesFallback());
     }
 
     /**
@@ -47,6 +100,17 @@ public class RendaFixaService {
      * Fórmula: Saldo * (TaxaCDI / 100) * (PercentualInvestido / 100)
      */
     public BigDecimal calcularRendimentoDiario(BigDecimal saldoAtual, BigDecimal percentualOuTaxa, String nomeIndice) {
+        if (!"PRE".equalsIgnoreCase(nomeIndice)) {
+            buscarIndicesAtuais();
+        }
+        return estimarRendimentoDiario(saldoAtual, percentualOuTaxa, nomeIndice);
+    }
+
+    /**
+     * Mesmo cálculo de {@link #calcularRendimentoDiario}, mas usando apenas os índices já em cache
+     * (nunca chama o BCB). Usado pela avaliação da carteira.
+     */
+    public BigDecimal estimarRendimentoDiario(BigDecimal saldoAtual, BigDecimal percentualOuTaxa, String nomeIndice) {
         if (saldoAtual == null || percentualOuTaxa == null) return BigDecimal.ZERO;
 
         String indiceAlvo = (nomeIndice == null || nomeIndice.isBlank()) ? "CDI" : nomeIndice.toUpperCase();
@@ -77,49 +141,99 @@ public class RendaFixaService {
         return saldoAtual.multiply(taxaDecimal).multiply(fatorContratado).setScale(2, RoundingMode.HALF_UP);
     }
 
-    private Map<String, Object> orquestrarBuscaIndices() {
+    /**
+     * Quanto o valor aplicado em {@code dataAplicacao} rendeu até hoje, usando a série diária
+     * completa do índice. O(1) por posição depois que a tabela está carregada.
+     * CDI e SELIC usam o percentual do índice (ex: 110 = 110% do CDI); PRE usa a taxa ao ano
+     * sobre os dias úteis da série do CDI. IPCA não é suportado (retorna zero).
+     */
+    public BigDecimal calcularRendimentoAcumulado(BigDecimal valorAplicado, BigDecimal percentualOuTaxa,
+                                                  String nomeIndice, LocalDate dataAplicacao) {
+        if (valorAplicado == null || dataAplicacao == null) return BigDecimal.ZERO;
+
+        String indiceAlvo = (nomeIndice == null || nomeIndice.isBlank()) ? "CDI" : nomeIndice.toUpperCase();
+        double percentual = percentualOuTaxa != null ? percentualOuTaxa.doubleValue() : 100.0;
+        LocalDate hoje = LocalDate.now();
+
+        double fator;
+        if ("PRE".equals(indiceAlvo)) {
+            TabelaFatoresDiarios cdi = tabelasFatores.get("CDI");
+            if (cdi == null) return BigDecimal.ZERO;
+            fator = Math.pow(1 + percentual / 100, cdi.diasUteis(dataAplicacao, hoje) / 252.0);
+        } else {
+            TabelaFatoresDiarios tabela = tabelasFatores.get(indiceAlvo);
+            if (tabela == null) return BigDecimal.ZERO;
+            fator = tabela.fator(dataAplicacao, hoje, percentual);
+        }
+
+        return valorAplicado.multiply(BigDecimal.valueOf(fator - 1)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private IndicesRendaFixaDTO orquestrarBuscaIndices() {
         log.info("Atualizando índices de Renda Fixa (BCB)...");
-        Map<String, Object> novosIndices = new ConcurrentHashMap<>();
 
-        novosIndices.put("CDI", buscarIndiceNoGov(CODIGO_CDI, "CDI"));
-        novosIndices.put("SELIC", buscarIndiceNoGov(CODIGO_SELIC, "SELIC"));
-        novosIndices.put("IPCA", buscarIndiceNoGov(CODIGO_IPCA, "IPCA")); // Atenção: IPCA é mensal
+        // As três consultas saem juntas; cada uma volta vazia se falhar ou estourar o timeout
+        var indices = Mono.zip(
+                buscarIndiceNoGov(CODIGO_CDI, "CDI"),
+                buscarIndiceNoGov(CODIGO_SELIC, "SELIC"),
+                buscarIndiceNoGov(CODIGO_IPCA, "IPCA") // Atenção: IPCA é mensal
+        ).block();
 
-        novosIndices.put("ultima_atualizacao", Instant.now().toString());
-        this.cacheIndices = novosIndices;
-        return novosIndices;
+        // Sem nenhuma resposta, falha: o cache mantém o snapshot anterior (marcado como vencido) e tenta
+        // de novo com backoff, em vez de republicar valores antigos ou fixos como se fossem de agora
+        if (indices.getT1().isEmpty() && indices.getT2().isEmpty() && indices.getT3().isEmpty()) {
+            throw new IllegalStateException("Nenhum índice de Renda Fixa respondeu pelo BCB");
+        }
+        return new IndicesRendaFixaDTO(
+                respostaOuAnterior(indices.getT1(), "CDI"),
+                respostaOuAnterior(indices.getT2(), "SELIC"),
+                respostaOuAnterior(indices.getT3(), "IPCA"),
+                Instant.now());
     }
 
-    private Double buscarIndiceNoGov(String codigoSerie, String nomeIndice) {
-        try {
-            String url = apiGovUrl.replace("{codigo}", codigoSerie);
+    private Mono<Optional<Double>> buscarIndiceNoGov(String codigoSerie, String nomeIndice) {
+        String url = apiGovUrl.replace("{codigo}", codigoSerie);
 
-            List<Map<String, String>> resposta = restClient.get()
-                    .uri(url)
-                    .retrieve()
-                    .body(new ParameterizedTypeReference<List<Map<String, String>>>() {});
+        return marketDataClient.get(FONTE_BCB, url, new ParameterizedTypeReference<List<Map<String, String>>>() {})
+                .filter(resposta -> !resposta.isEmpty())
+                .map(resposta -> {
+                    String valorString = resposta.get(0).get("valor");
+                    double valor = Double.parseDouble(valorString.replace(",", "."));
+                    // Só valores reais do BCB entram no histórico
+                    historicoCotacoes.registrar(nomeIndice, System.currentTimeMillis(), valor);
+                    return Optional.of(valor);
+                })
+                .onErrorResume(e -> {
+                    log.error("Erro ao buscar índice {}: {}", nomeIndice, e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(Optional.empty());
+    }
 
-            if (resposta != null && !resposta.isEmpty()) {
-                String valorString = resposta.get(0).get("valor");
-                return Double.parseDouble(valorString.replace(",", "."));
-            }
-        } catch (Exception e) {
-            log.error("Erro ao buscar índice {}: {}", nomeIndice, e.getMessage());
+    /**
+     * Índice que não respondeu num ciclo em que os outros responderam: fica com o último valor real.
+     * Sem valor real anterior (primeira carga), o ciclo inteiro falha; o valor fixo de
+     * {@link #indicesFallback()} só é usado na leitura, nunca publicado no cache.
+     */
+    private double respostaOuAnterior(Optional<Double> resposta, String nomeIndice) {
+        if (resposta.isPresent()) {
+            return resposta.get();
         }
-        return obterFallback(nomeIndice);
+        Double anterior = obterTaxaDoCache(nomeIndice);
+        if (anterior == null) {
+            throw new IllegalStateException("Índice " + nomeIndice + " sem resposta do BCB e sem valor anterior");
+        }
+        log.warn("Índice {} sem resposta do BCB; mantendo o último valor ({}).", nomeIndice, anterior);
+        return anterior;
     }
 
     private Double obterTaxaDoCache(String chave) {
-        buscarIndicesAtuais();
-        return (Double) cacheIndices.get(chave);
+        IndicesRendaFixaDTO indices = cacheIndices.peek(CHAVE_INDICES);
+        return indices != null ? indices.taxa(chave) : null;
     }
 
-    private boolean isCacheValid() {
-        // Cache de 12 horas
-        long CACHE_DURATION_HOURS = 12;
-        if (!cacheIndices.containsKey("ultima_atualizacao")) return false;
-        Instant lastUpdate = Instant.parse((String) cacheIndices.get("ultima_atualizacao"));
-        return java.time.Duration.between(lastUpdate, Instant.now()).toHours() < CACHE_DURATION_HOURS;
+    private IndicesRendaFixaDTO indicesFallback() {
+        return new IndicesRendaFixaDTO(obterFallback("CDI"), obterFallback("SELIC"), obterFallback("IPCA"), Instant.now());
     }
 
     private Double obterFallback(String indice) {
@@ -133,6 +247,74 @@ public class RendaFixaService {
     // Atualiza automaticamente as 8 da manhã todos os dias
     @Scheduled(cron = "0 0 8 * * *")
     public void updateIndicesAutomatically() {
-        orquestrarBuscaIndices();
+        cacheIndices.recarregar(CHAVE_INDICES);
+        atualizarSeriesDiarias();
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregarSeriesDiarias() {
+        atualizarSeriesDiarias();
+    }
+
+    /**
+     * Na primeira vez baixa {@code anosHistorico} anos de cada série; depois só os dias novos.
+     */
+    private void atualizarSeriesDiarias() {
+        boolean alterou = false;
+        alterou |= atualizarSerie(CODIGO_CDI, "CDI");
+        alterou |= atualizarSerie(CODIGO_SELIC, "SELIC");
+        if (alterou) {
+            eventPublisher.publishEvent(new CotacoesAtualizadasEvent("renda_fixa"));
+        }
+    }
+
+    private boolean atualizarSerie(String codigoSerie, String nomeIndice) {
+        TabelaFatoresDiarios atual = tabelasFatores.get(nomeIndice);
+        LocalDate hoje = LocalDate.now();
+        LocalDate inicio = atual != null ? atual.getUltimaData().plusDays(1) : hoje.minusYears(anosHistorico);
+        if (inicio.isAfter(hoje)) return false;
+
+        try {
+            List<LocalDate> datas = new ArrayList<>();
+            List<Double> taxas = new ArrayList<>();
+            for (LocalDate janela = inicio; !janela.isAfter(hoje); janela = janela.plusYears(ANOS_POR_CONSULTA)) {
+                LocalDate fimJanela = janela.plusYears(ANOS_POR_CONSULTA).minusDays(1);
+                buscarSerieNoGov(codigoSerie, janela, fimJanela.isAfter(hoje) ? hoje : fimJanela, datas, taxas);
+            }
+            if (datas.isEmpty()) return false;
+
+            LocalDate[] novasDatas = datas.toArray(LocalDate[]::new);
+            double[] novasTaxas = taxas.stream().mapToDouble(Double::doubleValue).toArray();
+            TabelaFatoresDiarios nova = atual != null
+                    ? atual.comNovosPontos(novasDatas, novasTaxas)
+                    : new TabelaFatoresDiarios(novasDatas, novasTaxas);
+
+            tabelasFatores.put(nomeIndice, nova);
+            log.info("Série {} carregada: {} a {}", nomeIndice, nova.getPrimeiraData(), nova.getUltimaData());
+            return nova != atual;
+        } catch (Exception e) {
+            log.error("Erro ao carregar série diária {}: {}", nomeIndice, e.getMessage());
+            return false;
+        }
+    }
+
+    private void buscarSerieNoGov(String codigoSerie, LocalDate inicio, LocalDate fim,
+                                  List<LocalDate> datas, List<Double> taxas) {
+        String url = apiGovSerieUrl
+                .replace("{codigo}", codigoSerie)
+                .replace("{inicio}", inicio.format(FORMATO_BCB))
+                .replace("{fim}", fim.format(FORMATO_BCB));
+
+        List<Map<String, String>> resposta = circuitBreakerSeries.executar(() -> restClient.get()
+                .uri(url)
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<Map<String, String>>>() {}));
+
+        if (resposta == null) return;
+        for (Map<String, String> ponto : resposta) {
+            datas.add(LocalDate.parse(ponto.get("data"), FORMATO_BCB));
+            taxas.add(Double.parseDouble(ponto.get("valor").replace(",", ".")));
+        }
     }
 }
\ No newline at end of file
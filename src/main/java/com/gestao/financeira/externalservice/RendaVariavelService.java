@@ -1,21 +1,34 @@
 package com.gestao.financeira.externalservice;
 
+import com.gestao.financeira.dto.AtivoRendaVariavelDTO;
+import com.gestao.financeira.event.CotacoesAtualizadasEvent;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -24,122 +37,265 @@ public class RendaVariavelService {
     private final String apiBrapiUrl;
     private final String apiToken;
     private final RestClient restClient;
+    private final CircuitBreaker circuitBreaker;
+    private final TokenBucketScheduler brapiScheduler;
+    private final TamanhoLoteAdaptativo tamanhoLote;
+    private final UniversoTickers universoTickers;
+    private final HistoricoCotacoes historicoCotacoes;
 
-    private Map<String, Object> cacheAcoes = new ConcurrentHashMap<>();
-    private Map<String, Object> cacheFiis = new ConcurrentHashMap<>();
-    private Map<String, Object> cacheEtfs = new ConcurrentHashMap<>();
+    // Snapshots imutáveis por categoria, trocados atomicamente
+    private final StaleWhileRevalidateCache<CategoriaRendaVariavel, Snapshot> caches;
 
-    private static final String TICKERS_ACOES = "PETR4,VALE3,ITUB4,BBDC4,BBAS3,WEGE3,RENT3,BPAC11,SUZB3,PRIO3";
-    private static final String TICKERS_FIIS = "MXRF11,HGLG11,KNRI11,XPLG11,VISC11,HCTR11,IRDM11,BTLG11,XPML11,VGHF11";
-    private static final String TICKERS_ETFS = "BOVA11,SMAL11,IVVB11,NASD11,HASH11,XINA11,GOLD11";
+    private static final Duration CACHE_DURACAO = Duration.ofMinutes(30);
+    // Tempo máximo que uma requisição espera quando ainda não existe nada em cache
+    private static final Duration ESPERA_PRIMEIRA_CARGA = Duration.ofSeconds(15);
+    // Mensagem da Brapi para lote maior que o plano permite (ex: "Seu plano permite até 1 ativo por requisição")
+    private static final Pattern MENSAGEM_LIMITE_DO_PLANO = Pattern.compile(
+            "(?i)(plano|plan\\b).{0,80}(ativo|ticker|a[cç][aãoõ]|requisi|request)"
+                    + "|(ativo|ticker|a[cç][aãoõ]|requisi|request).{0,80}(plano|plan\\b)");
 
     public RendaVariavelService(
             @Value("${api.brapi-url}") String apiBrapiUrl,
             @Value("${api.brapi-token}") String apiToken,
-            RestClient restClient
+            @Value("${api.brapi-batch-size:10}") int tamanhoLote,
+            @Value("${api.brapi-requests-per-minute:30}") int requisicoesPorMinuto,
+            @Value("${api.brapi-batch-shrink:1h}") Duration janelaReducaoLote,
+            RestClient restClient,
+            CircuitBreakers circuitBreakers,
+            ApplicationEventPublisher eventPublisher,
+            UniversoTickers universoTickers,
+            HistoricoCotacoes historicoCotacoes,
+            ExecutorService cotacoesExecutor
     ) {
         this.apiBrapiUrl = apiBrapiUrl;
         this.apiToken = apiToken;
+        this.tamanhoLote = new TamanhoLoteAdaptativo("brapi", tamanhoLote, janelaReducaoLote);
+        this.brapiScheduler = new TokenBucketScheduler("brapi", requisicoesPorMinuto, Duration.ofMinutes(1));
         this.restClient = restClient;
+        this.circuitBreaker = circuitBreakers.get("brapi");
+        this.universoTickers = universoTickers;
+        this.historicoCotacoes = historicoCotacoes;
+        this.caches = new StaleWhileRevalidateCache<>("renda_variavel", CACHE_DURACAO, ESPERA_PRIMEIRA_CARGA,
+                this::atualizarCategoria,
+                (categoria, snapshot) -> eventPublisher.publishEvent(new CotacoesAtualizadasEvent("renda_variavel")),
+                cotacoesExecutor);
+
+        // Símbolo recém-comprado por alguém: cota já, sem esperar o próximo ciclo
+        universoTickers.aoEntrarTicker((categoria, ticker) -> agendarLote(categoria, List.of(ticker)));
     }
 
-    public List<Map<String, Object>> getTopAcoes() {
-        return getDadosDoCacheOuApi("acoes", TICKERS_ACOES, cacheAcoes);
+    /**
+     * @param dados   tudo que está cotado na categoria, inclusive símbolos em carteira de usuários
+     * @param vitrine só os tickers fixos da categoria, o que as telas de mercado podem expor
+     */
+    public record Snapshot(List<AtivoRendaVariavelDTO> dados, List<AtivoRendaVariavelDTO> vitrine) {
+
+        static final Snapshot VAZIO = new Snapshot(List.of(), List.of());
+
+        static Snapshot de(CategoriaRendaVariavel categoria, Collection<AtivoRendaVariavelDTO> dados) {
+            List<AtivoRendaVariavelDTO> vitrine = dados.stream()
+                    .filter(ativo -> categoria.getVitrine().contains(ativo.ticker()))
+                    .toList();
+            return new Snapshot(List.copyOf(dados), vitrine);
+        }
     }
 
-    public List<Map<String, Object>> getTopFiis() {
-        return getDadosDoCacheOuApi("fiis", TICKERS_FIIS, cacheFiis);
+    public List<AtivoRendaVariavelDTO> getTopAcoes() {
+        return lerCategoria(CategoriaRendaVariavel.ACOES).valor().vitrine();
     }
 
-    public List<Map<String, Object>> getTopEtfs() {
-        return getDadosDoCacheOuApi("etfs", TICKERS_ETFS, cacheEtfs);
+    public List<AtivoRendaVariavelDTO> getTopFiis() {
+        return lerCategoria(CategoriaRendaVariavel.FIIS).valor().vitrine();
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Map<String, Object>> getDadosDoCacheOuApi(String tipo, String tickersString, Map<String, Object> cacheAlvo) {
-        if (cacheAlvo.containsKey("dados") && isCacheValid(cacheAlvo)) {
-            return (List<Map<String, Object>>) cacheAlvo.get("dados");
+    public List<AtivoRendaVariavelDTO> getTopEtfs() {
+        return lerCategoria(CategoriaRendaVariavel.ETFS).valor().vitrine();
+    }
+
+    /**
+     * Snapshot da categoria com os metadados de frescor. Dado vencido é melhor que nenhum: volta na hora
+     * e o ciclo de atualização segue em background. Para as telas de mercado, só a {@code vitrine}.
+     */
+    public StaleWhileRevalidateCache.Leitura<Snapshot> lerCategoria(CategoriaRendaVariavel categoria) {
+        StaleWhileRevalidateCache.Leitura<Snapshot> leitura = caches.get(categoria);
+        return leitura.temValor() ? leitura : StaleWhileRevalidateCache.Leitura.semCache(Snapshot.VAZIO);
+    }
+
+    /**
+     * Tudo que está cotado na categoria, sem nunca chamar a Brapi. Vazio antes da primeira carga.
+     */
+    public List<AtivoRendaVariavelDTO> ativosEmCache(CategoriaRendaVariavel categoria) {
+        Snapshot snapshot = caches.peek(categoria);
+        return snapshot != null ? snapshot.dados() : List.of();
+    }
+
+    /**
+     * Carregador do cache: atualiza todos os tickers do universo da categoria em lotes multi-ticker
+     * e espera o ciclo terminar. Os lotes já vão sendo publicados no cache conforme chegam.
+     */
+    private Snapshot atualizarCategoria(CategoriaRendaVariavel categoria) {
+        Snapshot anterior = caches.peek(categoria);
+        List<String> tickers = universoTickers.tickers(categoria);
+        agendarEmLotes(categoria, tickers, tamanhoLote.atual()).join();
+
+        if (!tickers.isEmpty() && caches.peek(categoria) == anterior) {
+            throw new IllegalStateException("Nenhum lote de " + categoria + " foi cotado");
         }
-        return fetchBrapiOneByOne(tickersString, cacheAlvo);
+        descartarForaDoUniverso(categoria, tickers);
+
+        Snapshot atual = caches.peek(categoria);
+        return atual != null ? atual : Snapshot.VAZIO;
     }
 
-    private List<Map<String, Object>> fetchBrapiOneByOne(String tickersString, Map<String, Object> cacheParaAtualizar) {
-        List<Map<String, Object>> listaFinal = new ArrayList<>();
-        String[] tickersArray = tickersString.split(",");
+    private CompletableFuture<Void> agendarLote(CategoriaRendaVariavel categoria, List<String> lote) {
+        CompletableFuture<Void> concluido = new CompletableFuture<>();
 
-        for (String ticker : tickersArray) {
+        brapiScheduler.submeter(() -> {
             try {
-                String url = apiBrapiUrl
-                        .replace("{tickers}", ticker.trim())
-                        .replace("{token}", apiToken);
-
-                Map<String, Object> response = restClient.get()
-                        .uri(url)
-                        .retrieve()
-                        .body(new ParameterizedTypeReference<Map<String, Object>>() {});
-
-                if (response != null && response.get("results") instanceof List<?> results) {
-                    if (!results.isEmpty()) {
-                        Map<String, Object> item = (Map<String, Object>) results.get(0);
-                        listaFinal.add(simplificarDados(item));
-                    }
-                }
-                // Pausa obrigatória para não ser bloqueado (Rate Limit)
-                Thread.sleep(2000);
-
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                log.error("Thread interrompida durante o sleep");
+                publicarLote(categoria, buscarLote(lote));
+                concluido.complete(null);
             } catch (Exception e) {
-                log.error("Falha no ticker {}: {}", ticker, e.getMessage());
+                CompletableFuture<Void> reenvio;
+                if (lote.size() > 1 && ehLimiteDoPlano(e)) {
+                    // Plano da Brapi não aceita lotes desse tamanho: reduz por um tempo e reenvia em lotes menores
+                    int menor = tamanhoLote.reduzir(lote.size());
+                    log.warn("Lote {} recusado pelo plano ({}). Reenviando em lotes de {}.", lote, e.getMessage(), menor);
+                    reenvio = agendarEmLotes(categoria, lote, menor);
+                } else if (lote.size() > 1 && ehRecusaDeSimbolo(e)) {
+                    // Algum símbolo do lote não existe: divide ao meio até isolá-lo, sem mexer no tamanho dos lotes
+                    log.warn("Lote {} recusado ({}). Dividindo para isolar o símbolo.", lote, e.getMessage());
+                    reenvio = agendarEmLotes(categoria, lote, (lote.size() + 1) / 2);
+                } else {
+                    // Erro passageiro (5xx, timeout, circuito aberto), token ou símbolo isolado: fica para o próximo ciclo
+                    log.error("Falha no lote {}: {}", lote, e.getMessage());
+                    concluido.complete(null);
+                    return;
+                }
+                reenvio.whenComplete((r, ex) -> concluido.complete(null));
             }
+        });
+        return concluido;
+    }
+
+    private CompletableFuture<Void> agendarEmLotes(CategoriaRendaVariavel categoria, List<String> tickers, int tamanho) {
+        List<CompletableFuture<Void>> lotes = new ArrayList<>();
+        for (int i = 0; i < tickers.size(); i += tamanho) {
+            lotes.add(agendarLote(categoria, List.copyOf(tickers.subList(i, Math.min(i + tamanho, tickers.size())))));
         }
-        if (!listaFinal.isEmpty()) {
-            atualizarCache(cacheParaAtualizar, listaFinal);
+        return CompletableFuture.allOf(lotes.toArray(CompletableFuture[]::new));
+    }
+
+    // Só o status não basta: a Brapi também responde 400 a símbolo inválido e 401/403 a token vencido
+    private static boolean ehLimiteDoPlano(Exception e) {
+        if (!(e instanceof HttpClientErrorException erro)) return false;
+        int status = erro.getStatusCode().value();
+        return (status == 400 || status == 402 || status == 403)
+                && MENSAGEM_LIMITE_DO_PLANO.matcher(erro.getResponseBodyAsString()).find();
+    }
+
+    private static boolean ehRecusaDeSimbolo(Exception e) {
+        return e instanceof HttpClientErrorException erro
+                && (erro.getStatusCode().value() == 400 || erro.getStatusCode().value() == 404);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<AtivoRendaVariavelDTO> buscarLote(List<String> tickers) {
+        URI url = urlDoLote(tickers);
+
+        Map<String, Object> response = circuitBreaker.executar(() -> restClient.get()
+                .uri(url)
+                .retrieve()
+                .body(new ParameterizedTypeReference<Map<String, Object>>() {}));
+
+        List<AtivoRendaVariavelDTO> itens = new ArrayList<>();
+        if (response != null && response.get("results") instanceof List<?> results) {
+            for (Object item : results) {
+                AtivoRendaVariavelDTO ativo = simplificarDados((Map<String, Object>) item);
+                if (ativo.ticker() != null) {
+                    itens.add(ativo);
+                }
+            }
         }
-        return listaFinal;
+        return itens;
     }
 
-    private Map<String, Object> simplificarDados(Map<String, Object> itemOriginal) {
-        Map<String, Object> itemSimples = new HashMap<>();
-        itemSimples.put("ticker", itemOriginal.get("symbol"));
-        itemSimples.put("nome", itemOriginal.get("longName"));
-        itemSimples.put("preco", itemOriginal.get("regularMarketPrice"));
-        itemSimples.put("variacao_percent", itemOriginal.get("regularMarketChangePercent"));
-        itemSimples.put("logo", itemOriginal.get("logourl"));
-        return itemSimples;
+    // Cada valor é codificado inteiro: um '&', '?', '/' ou '#' não consegue mexer no resto da URL
+    private URI urlDoLote(List<String> tickers) {
+        String lote = tickers.stream()
+                .map(ticker -> UriUtils.encode(ticker, StandardCharsets.UTF_8))
+                .collect(Collectors.joining(","));
+        return URI.create(UriComponentsBuilder.fromUriString(apiBrapiUrl)
+                .build()
+                .expand(Map.of("tickers", lote, "token", UriUtils.encode(apiToken, StandardCharsets.UTF_8)))
+                .toUriString());
     }
 
-    private void atualizarCache(Map<String, Object> cache, List<Map<String, Object>> dados) {
-        cache.put("dados", dados);
-        cache.put("ultima_atualizacao", Instant.now().toString());
+    private AtivoRendaVariavelDTO simplificarDados(Map<String, Object> itemOriginal) {
+        return new AtivoRendaVariavelDTO(
+                (String) itemOriginal.get("symbol"),
+                (String) itemOriginal.get("longName"),
+                comoDouble(itemOriginal.get("regularMarketPrice")),
+                comoDouble(itemOriginal.get("regularMarketChangePercent")),
+                (String) itemOriginal.get("logourl"));
     }
 
-    private boolean isCacheValid(Map<String, Object> cache) {
-        long CACHE_MINUTES = 30;
-        if (!cache.containsKey("ultima_atualizacao")) return false;
-        Instant lastUpdate = Instant.parse((String) cache.get("ultima_atualizacao"));
-        return Duration.between(lastUpdate, Instant.now()).toMinutes() < CACHE_MINUTES;
+    private static Double comoDouble(Object valor) {
+        return valor instanceof Number numero ? numero.doubleValue() : null;
     }
 
-    @EventListener(ApplicationReadyEvent.class)
-    @Scheduled(cron = "0 0 10,12,14,16,18 * * MON-FRI")
-    public void updateAllAutomatically() {
-        // Executa sequencialmente para não sobrecarregar a rede de uma vez só
-        fetchBrapiOneByOne(TICKERS_ACOES, cacheAcoes);
-        fetchBrapiOneByOne(TICKERS_FIIS, cacheFiis);
-        fetchBrapiOneByOne(TICKERS_ETFS, cacheEtfs);
+    /**
+     * Mescla o lote no snapshot da categoria (por ticker) e publica um novo snapshot imutável.
+     * Leitores sempre enxergam ou o snapshot anterior inteiro ou o novo inteiro.
+     */
+    private void publicarLote(CategoriaRendaVariavel categoria, List<AtivoRendaVariavelDTO> itens) {
+        if (itens.isEmpty()) return;
+
+        long agora = System.currentTimeMillis();
+        for (AtivoRendaVariavelDTO item : itens) {
+            if (item.preco() != null) {
+                historicoCotacoes.registrar(item.ticker(), agora, item.preco());
+            }
+        }
+
+        caches.atualizar(categoria, atual -> {
+            Map<String, AtivoRendaVariavelDTO> porTicker = new LinkedHashMap<>();
+            if (atual != null) {
+                for (AtivoRendaVariavelDTO item : atual.dados()) {
+                    porTicker.put(item.ticker(), item);
+                }
+            }
+            for (AtivoRendaVariavelDTO item : itens) {
+                porTicker.put(item.ticker(), item);
+            }
+            return Snapshot.de(categoria, porTicker.values());
+        });
     }
 
-    public Map<String, Object> getCacheAcoesRaw() {
-        return this.cacheAcoes;
+    /**
+     * Ao fim de um ciclo completo, tira do snapshot os símbolos que ninguém mais detém.
+     */
+    private void descartarForaDoUniverso(CategoriaRendaVariavel categoria, List<String> tickers) {
+        Set<String> universo = Set.copyOf(tickers);
+        caches.atualizar(categoria, atual -> {
+            if (atual == null) return null;
+            List<AtivoRendaVariavelDTO> mantidos = atual.dados().stream()
+                    .filter(item -> universo.contains(item.ticker()))
+                    .toList();
+            return mantidos.size() == atual.dados().size() ? atual : Snapshot.de(categoria, mantidos);
+        });
     }
 
-    public Map<String, Object> getCacheEtfsRaw() {
-        return this.cacheEtfs;
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 0 10,12,14,16,18 * * MON-FRI")
+    public void updateAllAutomatically() {
+        // Só enfileira: o ritmo das chamadas é controlado pelo token bucket, fora da thread do chamador
+        for (CategoriaRendaVariavel categoria : CategoriaRendaVariavel.values()) {
+            caches.recarregar(categoria);
+        }
     }
 
-    public Map<String, Object> getCacheFiisRaw() {
-        return this.cacheFiis;
+    @PreDestroy
+    public void encerrar() {
+        brapiScheduler.encerrar();
     }
-}
\ No newline at end of file
+}
@@ -1,46 +1,126 @@
 package com.gestao.financeira.externalservice;
 
+import com.gestao.financeira.config.RetryProperties;
+import com.gestao.financeira.exception.CircuitBreakerAbertoException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
+/**
+ * Retentativas sem thread parada: cada nova tentativa é agendada num timer
+ * ({@link CompletableFuture#delayedExecutor}) e roda no executor de cotações. Quem chama recebe um
+ * {@link CompletableFuture} e decide quanto esperar ({@code orTimeout}); vencido o prazo, as
+ * tentativas restantes não são feitas.
+ * <p>
+ * A espera usa jitter decorrelacionado (aleatória entre a base e 3x a anterior, até o teto), para que
+ * instâncias diferentes não repitam em sincronia. Cada upstream tem um orçamento: toda primeira tentativa
+ * deposita {@code proporcaoOrcamento} e cada retentativa gasta uma unidade, então com o provedor fora do ar
+ * as retentativas não multiplicam a carga sobre ele.
+ * <p>
+ * Não repete circuito aberto nem erros 4xx (fora 408 e 429).
+ */
+@Component
 @Slf4j
 public class RetryHelper {
-    public static <T> T executeWithRetry(Supplier<T> operation, int maxRetries, String operationName) {
-        int attempt = 0;
-
-        while (attempt < maxRetries) {
-            try {
-                return operation.get();
-            } catch (Exception e) {
-                attempt++;
-
-                if (attempt >= maxRetries) {
-                    log.error("Falha definitiva em '{}' após {} tentativas", operationName, maxRetries);
-                    throw e;
-                }
 
-                waitBeforeRetry(attempt, operationName, e);
-            }
-        }
+    private final RetryProperties properties;
+    private final Executor executor;
+    private final Map<String, Orcamento> orcamentos = new ConcurrentHashMap<>();
 
-        throw new RuntimeException("Não deveria chegar aqui");
+    public RetryHelper(RetryProperties properties, ExecutorService cotacoesExecutor) {
+        this.properties = properties;
+        this.executor = cotacoesExecutor;
     }
 
-    private static void waitBeforeRetry(int attempt, String operationName, Exception error) {
-        long waitTimeMs = calculateBackoffTime(attempt);
+    public <T> CompletableFuture<T> executar(String upstream, Supplier<T> operacao) {
+        Orcamento orcamento = orcamentos.computeIfAbsent(upstream,
+                nome -> new Orcamento(properties.proporcaoOrcamento(), properties.reservaOrcamento()));
+        orcamento.depositar();
 
-        log.warn("Tentativa {}/3 falhou em '{}'. Aguardando {}ms. Erro: {}",
-                attempt, operationName, waitTimeMs, error.getMessage());
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        agendar(new Execucao<>(upstream, operacao, orcamento, resultado), 1,
+                properties.esperaBase().toMillis(), executor);
+        return resultado;
+    }
+
+    private record Execucao<T>(String upstream, Supplier<T> operacao, Orcamento orcamento,
+                               CompletableFuture<T> resultado) {}
 
+    private <T> void agendar(Execucao<T> execucao, int tentativa, long esperaAnterior, Executor quando) {
         try {
-            Thread.sleep(waitTimeMs);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Thread interrompida durante retry", ie);
+            quando.execute(() -> tentar(execucao, tentativa, esperaAnterior));
+        } catch (RejectedExecutionException e) {
+            execucao.resultado().completeExceptionally(e);
         }
     }
 
-    private static long calculateBackoffTime(int attempt) {
-        return (long) Math.pow(2, attempt) * 1000;
+    private <T> void tentar(Execucao<T> execucao, int tentativa, long esperaAnterior) {
+        // Quem chamou já desistiu (prazo vencido ou cancelado)
+        if (execucao.resultado().isDone()) return;
+
+        try {
+            execucao.resultado().complete(execucao.operacao().get());
+        } catch (RuntimeException e) {
+            if (!deveRepetir(e) || tentativa >= properties.maxTentativas()) {
+                if (tentativa > 1) {
+                    log.error("Falha definitiva em '{}' após {} tentativas", execucao.upstream(), tentativa);
+                }
+                execucao.resultado().completeExceptionally(e);
+                return;
+            }
+            if (!execucao.orcamento().sacar()) {
+                log.warn("Orçamento de retentativas de '{}' esgotado. Desistindo: {}", execucao.upstream(), e.getMessage());
+                execucao.resultado().completeExceptionally(e);
+                return;
+            }
+
+            long espera = proximaEspera(esperaAnterior);
+            log.warn("Tentativa {}/{} falhou em '{}'. Nova tentativa em {}ms. Erro: {}",
+                    tentativa, properties.maxTentativas(), execucao.upstream(), espera, e.getMessage());
+            agendar(execucao, tentativa + 1, espera,
+                    CompletableFuture.delayedExecutor(espera, TimeUnit.MILLISECONDS, executor));
+        }
+    }
+
+    private long proximaEspera(long esperaAnterior) {
+        long base = properties.esperaBase().toMillis();
+        long limite = Math.max(base + 1, esperaAnterior * 3);
+        return Math.min(properties.esperaMaxima().toMillis(), ThreadLocalRandom.current().nextLong(base, limite));
+    }
+
+    private static boolean deveRepetir(RuntimeException e) {
+        return !(e instanceof CircuitBreakerAbertoException) && CircuitBreaker.contaComoFalha(e);
+    }
+
+    /** Saldo de retentativas de um upstream, limitado à reserva. */
+    private static final class Orcamento {
+        private final double proporcao;
+        private final double reserva;
+        private double saldo;
+
+        Orcamento(double proporcao, int reserva) {
+            this.proporcao = proporcao;
+            this.reserva = reserva;
+            this.saldo = reserva;
+        }
+
+        synchronized void depositar() {
+            saldo = Math.min(reserva, saldo + proporcao);
+        }
+
+        synchronized boolean sacar() {
+            if (saldo < 1) return false;
+            saldo -= 1;
+            return true;
+        }
     }
 }
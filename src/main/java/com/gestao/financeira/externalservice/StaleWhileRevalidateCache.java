@@ -0,0 +1,216 @@
+package com.gestao.financeira.externalservice;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache de cotações no modelo stale-while-revalidate: a leitura nunca espera o provedor se já existe
+ * algum valor bom, mesmo vencido. Vencido, o valor é servido na hora e uma única recarga por chave
+ * é disparada no executor (single-flight); quem chega durante a recarga recebe o mesmo valor antigo.
+ * Só a primeira leitura de uma chave, sem nada em cache, espera a carga (até {@code esperaPrimeiraCarga}).
+ * <p>
+ * Falha na carga (exceção ou {@code null}) nunca apaga o último valor bom, e a próxima tentativa
+ * só acontece depois de {@code intervaloAposFalha}, para não martelar um provedor fora do ar.
+ * <p>
+ * Cada valor publicado ganha uma versão crescente e já nasce com as duas leituras possíveis (HIT e
+ * STALE) prontas, então ler um valor em cache não aloca nada: é um get no mapa e uma comparação de millis.
+ * Os valores devem ser imutáveis (records).
+ */
+@Slf4j
+public class StaleWhileRevalidateCache<K, V> {
+
+    public enum Status {
+        /** Valor dentro do TTL. */
+        HIT,
+        /** Valor vencido, servido enquanto a recarga roda em background. */
+        STALE,
+        /** Nada em cache: o chamador esperou a primeira carga (ou ela não terminou a tempo). */
+        MISS
+    }
+
+    /**
+     * Snapshot publicado: valor, instante da carga (epoch millis) e versão. {@code valor} é {@code null}
+     * e {@code versao} é zero só em MISS sem carga concluída.
+     */
+    public record Leitura<V>(V valor, long atualizadoEmMillis, long versao, Status status) {
+
+        public static <V> Leitura<V> semCache(V fallback) {
+            return new Leitura<>(fallback, 0L, 0L, Status.MISS);
+        }
+
+        public boolean temValor() {
+            return versao > 0;
+        }
+
+        /** Idade do valor em segundos, para o header {@code Age}. */
+        public long idadeSegundos() {
+            return temValor() ? Math.max(0, (System.currentTimeMillis() - atualizadoEmMillis) / 1000) : 0;
+        }
+    }
+
+    private record Entrada<V>(Leitura<V> fresca, Leitura<V> vencida) {
+
+        Entrada(V valor, long atualizadoEmMillis, long versao) {
+            this(new Leitura<>(valor, atualizadoEmMillis, versao, Status.HIT),
+                    new Leitura<>(valor, atualizadoEmMillis, versao, Status.STALE));
+        }
+
+        V valor() {
+            return fresca.valor();
+        }
+    }
+
+    private static final Duration INTERVALO_APOS_FALHA_PADRAO = Duration.ofMinutes(1);
+
+    private final String nome;
+    private final long ttlMillis;
+    private final Duration esperaPrimeiraCarga;
+    private final Duration intervaloAposFalha;
+    private final Function<K, V> carregador;
+    private final BiConsumer<K, V> aoAtualizar;
+    private final Executor executor;
+    private final Clock relogio;
+
+    private final Map<K, Entrada<V>> entradas = new ConcurrentHashMap<>();
+    private final Map<K, CompletableFuture<V>> recargas = new ConcurrentHashMap<>();
+    private final Map<K, Long> proximaTentativa = new ConcurrentHashMap<>();
+    private final AtomicLong versoes = new AtomicLong();
+
+    /**
+     * @param carregador  busca o valor no provedor (pode bloquear; roda no {@code executor})
+     * @param aoAtualizar chamado depois que um valor novo entra no cache (ex: publicar evento)
+     */
+    public StaleWhileRevalidateCache(String nome, Duration ttl, Duration esperaPrimeiraCarga,
+                                     Function<K, V> carregador, BiConsumer<K, V> aoAtualizar, Executor executor) {
+        this(nome, ttl, esperaPrimeiraCarga, INTERVALO_APOS_FALHA_PADRAO, carregador, aoAtualizar, executor, Clock.systemUTC());
+    }
+
+    StaleWhileRevalidateCache(String nome, Duration ttl, Duration esperaPrimeiraCarga, Duration intervaloAposFalha,
+                              Function<K, V> carregador, BiConsumer<K, V> aoAtualizar, Executor executor, Clock relogio) {
+        this.nome = nome;
+        this.ttlMillis = ttl.toMillis();
+        this.esperaPrimeiraCarga = esperaPrimeiraCarga;
+        this.intervaloAposFalha = intervaloAposFalha;
+        this.carregador = carregador;
+        this.aoAtualizar = aoAtualizar;
+        this.executor = executor;
+        this.relogio = relogio;
+    }
+
+    public Leitura<V> get(K chave) {
+        Entrada<V> entrada = entradas.get(chave);
+        if (entrada != null) {
+            long agora = relogio.millis();
+            if (agora - entrada.fresca().atualizadoEmMillis() < ttlMillis) {
+                return entrada.fresca();
+            }
+            if (podeTentar(chave, agora)) {
+                recarregar(chave);
+            }
+            return entrada.vencida();
+        }
+
+        // Primeira leitura: não há o que servir, então espera a carga (compartilhada) por um tempo limitado
+        try {
+            recarregar(chave).get(esperaPrimeiraCarga.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("Primeira carga de {}:{} ainda em andamento", nome, chave);
+        } catch (Exception e) {
+            // Já registrado pela recarga
+        }
+        Entrada<V> carregada = entradas.get(chave);
+        return carregada != null
+                ? new Leitura<>(carregada.valor(), carregada.fresca().atualizadoEmMillis(), carregada.fresca().versao(), Status.MISS)
+                : Leitura.semCache(null);
+    }
+
+    /**
+     * Dispara a recarga da chave, ou devolve a que já está em andamento.
+     * O futuro completa com o valor novo ou com a exceção do carregador.
+     */
+    public CompletableFuture<V> recarregar(K chave) {
+        CompletableFuture<V> recarga = new CompletableFuture<>();
+        CompletableFuture<V> emAndamento = recargas.putIfAbsent(chave, recarga);
+        if (emAndamento != null) {
+            return emAndamento;
+        }
+
+        try {
+            executor.execute(() -> carregar(chave, recarga));
+        } catch (RejectedExecutionException e) {
+            recargas.remove(chave, recarga);
+            recarga.completeExceptionally(e);
+        }
+        return recarga;
+    }
+
+    private void carregar(K chave, CompletableFuture<V> recarga) {
+        try {
+            V valor = carregador.apply(chave);
+            if (valor == null) {
+                throw new IllegalStateException("Carga de " + nome + " sem valor");
+            }
+            proximaTentativa.remove(chave);
+            // Carregador que já foi publicando via atualizar() devolve o próprio valor do cache
+            if (valor != peek(chave)) {
+                publicar(chave, valor);
+            }
+            recarga.complete(valor);
+        } catch (Throwable e) {
+            proximaTentativa.put(chave, relogio.millis() + intervaloAposFalha.toMillis());
+            log.warn("Falha ao recarregar {}:{} (mantendo o último valor): {}", nome, chave, e.getMessage());
+            recarga.completeExceptionally(e);
+        } finally {
+            recargas.remove(chave, recarga);
+        }
+    }
+
+    /**
+     * Atualiza o valor a partir do atual ({@code null} se não houver) de forma atômica por chave.
+     * Se a função devolver o mesmo objeto, nada muda (nem o instante da atualização).
+     */
+    public void atualizar(K chave, UnaryOperator<V> funcao) {
+        boolean[] mudou = {false};
+        Entrada<V> nova = entradas.compute(chave, (k, atual) -> {
+            V anterior = atual != null ? atual.valor() : null;
+            V valor = funcao.apply(anterior);
+            if (valor == null || valor == anterior) return atual;
+            mudou[0] = true;
+            return new Entrada<>(valor, relogio.millis(), versoes.incrementAndGet());
+        });
+        if (mudou[0]) {
+            aoAtualizar.accept(chave, nova.valor());
+        }
+    }
+
+    /** Último valor da chave, vencido ou não, sem disparar recarga. */
+    public V peek(K chave) {
+        Entrada<V> entrada = entradas.get(chave);
+        return entrada != null ? entrada.valor() : null;
+    }
+
+    private void publicar(K chave, V valor) {
+        entradas.put(chave, new Entrada<>(valor, relogio.millis(), versoes.incrementAndGet()));
+        aoAtualizar.accept(chave, valor);
+    }
+
+    private boolean podeTentar(K chave, long agora) {
+        Long tentativa = proximaTentativa.get(chave);
+        return tentativa == null || agora >= tentativa;
+    }
+}
@@ -0,0 +1,126 @@
+package com.gestao.financeira.externalservice;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Série diária de um índice (CDI ou SELIC, em % ao dia) com a tabela de produtos acumulados
+ * dos fatores {@code (1 + taxa/100)}. O fator entre duas datas é a razão entre duas posições da
+ * tabela, então o rendimento de qualquer aplicação sai em O(1).
+ * <p>
+ * Convenção: uma aplicação feita na data D rende as taxas dos dias úteis D, D+1, ... até a
+ * véspera da data final. A série do BCB só tem dias úteis, então feriados já estão descontados.
+ * Imutável: uma nova série gera uma nova tabela.
+ */
+public final class TabelaFatoresDiarios {
+
+    private final LocalDate[] datas;
+    private final double[] taxas;
+    private final LocalDate primeiroDia;
+    // indicePorDia[d] = quantidade de dias úteis da série antes de (primeiroDia + d)
+    private final int[] indicePorDia;
+    // Tabelas de prefixo por percentual do índice (10000 = 100,00%), montadas sob demanda
+    private final Map<Long, double[]> acumuladosPorPercentual = new ConcurrentHashMap<>();
+    private static final int MAX_PERCENTUAIS_EM_CACHE = 64;
+
+    public TabelaFatoresDiarios(LocalDate[] datas, double[] taxas) {
+        if (datas.length == 0 || datas.length != taxas.length) {
+            throw new IllegalArgumentException("Série vazia ou inconsistente");
+        }
+        this.datas = datas;
+        this.taxas = taxas;
+        this.primeiroDia = datas[0];
+
+        int totalDias = (int) (datas[datas.length - 1].toEpochDay() - primeiroDia.toEpochDay()) + 2;
+        this.indicePorDia = new int[totalDias];
+        int proximo = 0;
+        for (int dia = 0; dia < totalDias; dia++) {
+            long epochDay = primeiroDia.toEpochDay() + dia;
+            while (proximo < datas.length && datas[proximo].toEpochDay() < epochDay) {
+                proximo++;
+            }
+            indicePorDia[dia] = proximo;
+        }
+        acumulado(10_000L); // 100% do índice é o caso mais comum, já deixa pronto
+    }
+
+    /**
+     * Fator acumulado entre {@code de} (inclusive) e {@code ate} (exclusive) para um percentual
+     * do índice (ex: 110 para 110% do CDI). Datas fora da série são limitadas às pontas dela.
+     */
+    public double fator(LocalDate de, LocalDate ate, double percentual) {
+        double[] acumulado = acumulado(Math.round(percentual * 100));
+        int inicio = indice(de);
+        int fim = indice(ate);
+        return fim <= inicio ? 1.0 : acumulado[fim] / acumulado[inicio];
+    }
+
+    /**
+     * Quantidade de dias úteis (da série) entre {@code de} (inclusive) e {@code ate} (exclusive).
+     */
+    public int diasUteis(LocalDate de, LocalDate ate) {
+        return Math.max(0, indice(ate) - indice(de));
+    }
+
+    public LocalDate getPrimeiraData() {
+        return datas[0];
+    }
+
+    public LocalDate getUltimaData() {
+        return datas[datas.length - 1];
+    }
+
+    /**
+     * Nova tabela com os pontos posteriores à última data desta.
+     */
+    public TabelaFatoresDiarios comNovosPontos(LocalDate[] novasDatas, double[] novasTaxas) {
+        int validos = 0;
+        LocalDate[] datasFiltradas = new LocalDate[novasDatas.length];
+        double[] taxasFiltradas = new double[novasTaxas.length];
+        for (int i = 0; i < novasDatas.length; i++) {
+            if (novasDatas[i].isAfter(getUltimaData())) {
+                datasFiltradas[validos] = novasDatas[i];
+                taxasFiltradas[validos] = novasTaxas[i];
+                validos++;
+            }
+        }
+        if (validos == 0) return this;
+
+        LocalDate[] todasDatas = Arrays.copyOf(datas, datas.length + validos);
+        double[] todasTaxas = Arrays.copyOf(taxas, taxas.length + validos);
+        System.arraycopy(datasFiltradas, 0, todasDatas, datas.length, validos);
+        System.arraycopy(taxasFiltradas, 0, todasTaxas, taxas.length, validos);
+        return new TabelaFatoresDiarios(todasDatas, todasTaxas);
+    }
+
+    private int indice(LocalDate data) {
+        long dia = data.toEpochDay() - primeiroDia.toEpochDay();
+        if (dia <= 0) return 0;
+        if (dia >= indicePorDia.length) return datas.length;
+        return indicePorDia[(int) dia];
+    }
+
+    private double[] acumulado(long percentualBase10000) {
+        double[] pronto = acumuladosPorPercentual.get(percentualBase10000);
+        if (pronto != null) return pronto;
+
+        double[] acumulado = montarAcumulado(percentualBase10000);
+        // O percentual vem do usuário: limita quantas tabelas ficam guardadas
+        if (acumuladosPorPercentual.size() < MAX_PERCENTUAIS_EM_CACHE) {
+            acumuladosPorPercentual.putIfAbsent(percentualBase10000, acumulado);
+        }
+        return acumulado;
+    }
+
+    private double[] montarAcumulado(long percentualBase10000) {
+        double multiplicador = percentualBase10000 / 10_000.0;
+        double[] acumulado = new double[taxas.length + 1];
+        acumulado[0] = 1.0;
+        for (int i = 0; i < taxas.length; i++) {
+            acumulado[i + 1] = acumulado[i] * (1 + taxas[i] / 100 * multiplicador);
+        }
+        return acumulado;
+    }
+}
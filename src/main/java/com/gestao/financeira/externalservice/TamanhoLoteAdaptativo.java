@@ -0,0 +1,59 @@
+package com.gestao.financeira.externalservice;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Tamanho dos lotes multi-ticker. Quando o provedor recusa um lote por limite do plano, o tamanho cai
+ * para a metade do lote recusado e fica assim por {@code janela}; passada a janela sem nova recusa, volta
+ * a dobrar até o configurado. Uma recusa isolada não prende o serviço em um ticker por requisição.
+ */
+@Slf4j
+class TamanhoLoteAdaptativo {
+
+    private final String nome;
+    private final int configurado;
+    private final Duration janela;
+    private final Clock relogio;
+
+    private int atual;
+    private long revisarEmMillis;
+
+    TamanhoLoteAdaptativo(String nome, int configurado, Duration janela) {
+        this(nome, configurado, janela, Clock.systemUTC());
+    }
+
+    TamanhoLoteAdaptativo(String nome, int configurado, Duration janela, Clock relogio) {
+        this.nome = nome;
+        this.configurado = Math.max(1, configurado);
+        this.janela = janela;
+        this.relogio = relogio;
+        this.atual = this.configurado;
+    }
+
+    synchronized int atual() {
+        long agora = relogio.millis();
+        if (atual < configurado && agora >= revisarEmMillis) {
+            atual = Math.min(configurado, atual * 2);
+            revisarEmMillis = agora + janela.toMillis();
+            log.info("Lotes de {} voltando a {} tickers", nome, atual);
+        }
+        return atual;
+    }
+
+    /**
+     * Um lote de {@code tamanhoRecusado} tickers passou do limite do plano. Lotes antigos recusados
+     * depois da redução não reduzem de novo. Devolve o tamanho a usar no reenvio.
+     */
+    synchronized int reduzir(int tamanhoRecusado) {
+        int novo = Math.max(1, Math.min(atual, tamanhoRecusado / 2));
+        if (novo < atual) {
+            log.warn("Lotes de {} reduzidos de {} para {} tickers por {}", nome, atual, novo, janela);
+        }
+        atual = novo;
+        revisarEmMillis = relogio.millis() + janela.toMillis();
+        return novo;
+    }
+}
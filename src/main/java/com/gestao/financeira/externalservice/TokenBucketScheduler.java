@@ -0,0 +1,87 @@
+package com.gestao.financeira.externalservice;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fila FIFO de tarefas liberadas por um token bucket (Bucket4j).
+ * Quando não há token disponível, a drenagem é reagendada para o instante da próxima recarga,
+ * então nenhuma thread fica parada em Thread.sleep esperando o rate limit do provedor.
+ */
+@Slf4j
+public class TokenBucketScheduler {
+
+    private final String nome;
+    private final Bucket bucket;
+    private final ScheduledExecutorService executor;
+    private final Queue<Runnable> fila = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drenando = new AtomicBoolean(false);
+
+    /**
+     * @param tokens  quantidade de tarefas liberadas por período
+     * @param periodo janela do limite. Os tokens são espaçados uniformemente (sem rajadas).
+     */
+    public TokenBucketScheduler(String nome, int tokens, Duration periodo) {
+        if (tokens < 1) {
+            throw new IllegalArgumentException("Scheduler '" + nome + "' precisa de pelo menos 1 tarefa por período (recebeu " + tokens + ")");
+        }
+        this.nome = nome;
+        this.bucket = Bucket.builder()
+                .addLimit(Bandwidth.builder().capacity(1).refillGreedy(1, periodo.dividedBy(tokens)).build())
+                .build();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-bucket-" + nome);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void submeter(Runnable tarefa) {
+        fila.add(tarefa);
+        if (drenando.compareAndSet(false, true)) {
+            executor.execute(this::drenar);
+        }
+    }
+
+    public int pendentes() {
+        return fila.size();
+    }
+
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private void drenar() {
+        Runnable tarefa;
+        while ((tarefa = fila.peek()) != null) {
+            ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(1);
+            if (!probe.isConsumed()) {
+                // Continua "drenando": apenas volta quando o próximo token existir
+                executor.schedule(this::drenar, probe.getNanosToWaitForRefill(), TimeUnit.NANOSECONDS);
+                return;
+            }
+            fila.poll();
+            try {
+                tarefa.run();
+            } catch (Exception e) {
+                log.error("Tarefa do scheduler '{}' falhou: {}", nome, e.getMessage());
+            }
+        }
+        drenando.set(false);
+
+        // Alguém pode ter enfileirado entre o último peek e o set(false)
+        if (!fila.isEmpty() && drenando.compareAndSet(false, true)) {
+            executor.execute(this::drenar);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.event.SaldoAlteradoEvent;
+import com.gestao.financeira.repository.SaldoRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Conjunto de tickers que a RendaVariavelService precisa manter cotados: a vitrine fixa de cada
+ * categoria mais os símbolos que algum usuário tem em carteira.
+ * <p>
+ * A contagem de referências é carregada uma vez na subida e depois mantida incrementalmente pelos
+ * eventos de saldo, então o volume de chamadas à Brapi cresce com os símbolos distintos, não com
+ * o número de usuários. Quando ninguém mais detém um símbolo ele sai do universo.
+ * <p>
+ * O símbolo vem digitado pelo usuário e acaba numa requisição à Brapi: só entra no universo se tiver
+ * cara de ticker da B3 (PETR4, BPAC11, ITUB4F), e o universo tem um teto de símbolos. O que não passa
+ * continua salvo no saldo, só não é cotado.
+ */
+@Component
+@Slf4j
+public class UniversoTickers {
+
+    private static final Pattern TICKER_B3 = Pattern.compile("^[A-Z]{4}\\d{1,2}[A-Z]?$");
+
+    private final SaldoRepository saldoRepository;
+    private final int maximoSimbolos;
+    private final Map<CategoriaRendaVariavel, Map<String, Integer>> referencias = new EnumMap<>(CategoriaRendaVariavel.class);
+    private final AtomicInteger rastreados = new AtomicInteger();
+
+    private volatile BiConsumer<CategoriaRendaVariavel, String> aoEntrarTicker = (c, t) -> {};
+
+    public UniversoTickers(SaldoRepository saldoRepository,
+                           @Value("${app.universo.max-simbolos:2000}") int maximoSimbolos) {
+        this.saldoRepository = saldoRepository;
+        this.maximoSimbolos = maximoSimbolos;
+        for (CategoriaRendaVariavel categoria : CategoriaRendaVariavel.values()) {
+            referencias.put(categoria, new ConcurrentHashMap<>());
+        }
+    }
+
+    @PostConstruct
+    void carregar() {
+        List<String> tipos = Arrays.stream(CategoriaRendaVariavel.values())
+                .map(CategoriaRendaVariavel::getTipoSaldo)
+                .toList();
+
+        int ignorados = 0;
+        for (SaldoRepository.SimboloContagem contagem : saldoRepository.contarSimbolosPorTipo(tipos)) {
+            String simbolo = normalizar(contagem.getSimbolo());
+            Optional<CategoriaRendaVariavel> categoria = CategoriaRendaVariavel.doTipoSaldo(contagem.getTipo());
+            if (simbolo == null || categoria.isEmpty() || rastreados.get() >= maximoSimbolos) {
+                ignorados++;
+                continue;
+            }
+            if (referencias.get(categoria.get()).putIfAbsent(simbolo, contagem.getQuantidade().intValue()) == null) {
+                rastreados.incrementAndGet();
+            }
+        }
+        log.info("Universo de tickers carregado: {} símbolos em carteira ({} ignorados)", rastreados.get(), ignorados);
+    }
+
+    /**
+     * Vitrine + símbolos em carteira, sem repetição e com a vitrine primeiro.
+     */
+    public List<String> tickers(CategoriaRendaVariavel categoria) {
+        Set<String> tickers = new LinkedHashSet<>(categoria.getVitrine());
+        tickers.addAll(referencias.get(categoria).keySet());
+        return List.copyOf(tickers);
+    }
+
+    /**
+     * Callback chamado quando um símbolo passa a ser detido por alguém (0 -> 1 referência).
+     */
+    public void aoEntrarTicker(BiConsumer<CategoriaRendaVariavel, String> callback) {
+        this.aoEntrarTicker = callback;
+    }
+
+    // Só conta o que foi de fato gravado; fora de transação executa na hora
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSaldoAlterado(SaldoAlteradoEvent event) {
+        // Adiciona antes de remover: editar um saldo sem trocar o símbolo não pode zerar a contagem
+        if (event.atual() != null) {
+            adicionar(event.atual());
+        }
+        if (event.anterior() != null) {
+            remover(event.anterior());
+        }
+    }
+
+    private void adicionar(SaldoAlteradoEvent.Ativo ativo) {
+        String simbolo = normalizar(ativo.simbolo());
+        if (simbolo == null) return;
+
+        CategoriaRendaVariavel.doTipoSaldo(ativo.tipo()).ifPresent(categoria -> {
+            Map<String, Integer> contagens = referencias.get(categoria);
+            if (!contagens.containsKey(simbolo) && rastreados.get() >= maximoSimbolos) {
+                log.warn("Universo de tickers no teto ({} símbolos): {} não será cotado", maximoSimbolos, simbolo);
+                return;
+            }
+            int total = contagens.merge(simbolo, 1, Integer::sum);
+            if (total == 1) {
+                rastreados.incrementAndGet();
+                if (!categoria.getVitrine().contains(simbolo)) {
+                    aoEntrarTicker.accept(categoria, simbolo);
+                }
+            }
+        });
+    }
+
+    private void remover(SaldoAlteradoEvent.Ativo ativo) {
+        String simbolo = normalizar(ativo.simbolo());
+        if (simbolo == null) return;
+
+        CategoriaRendaVariavel.doTipoSaldo(ativo.tipo()).ifPresent(categoria ->
+                referencias.get(categoria).computeIfPresent(simbolo, (s, total) -> {
+                    if (total > 1) return total - 1;
+                    rastreados.decrementAndGet();
+                    return null;
+                }));
+    }
+
+    // null para o que não é ticker da B3
+    static String normalizar(String simbolo) {
+        if (simbolo == null) return null;
+        String normalizado = simbolo.trim().toUpperCase(Locale.ROOT);
+        return TICKER_B3.matcher(normalizado).matches() ? normalizado : null;
+    }
+}
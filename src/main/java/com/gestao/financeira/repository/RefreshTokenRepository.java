@@ -0,0 +1,32 @@
+package com.gestao.financeira.repository;
+
+import com.gestao.financeira.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // Marca como usado só se ainda não estava: dois refresh concorrentes com o mesmo token não passam juntos
+    @Modifying
+    @Query("update RefreshToken r set r.usado = true where r.id = :id and r.usado = false")
+    int marcarUsado(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.familia = :familia")
+    int deleteByFamilia(@Param("familia") String familia);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.expiresAt < :agora")
+    int deleteExpirados(@Param("agora") Instant agora);
+}
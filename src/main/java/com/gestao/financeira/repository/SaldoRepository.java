@@ -1,12 +1,40 @@
 package com.gestao.financeira.repository;
 
 
+import com.gestao.financeira.dto.SaldoResponseDTO;
 import com.gestao.financeira.entity.Saldo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface SaldoRepository extends JpaRepository<Saldo, Long> {
+public interface SaldoRepository extends JpaRepository<Saldo, Long>, SaldoRepositoryCustom {
     List<Saldo> findByUserId(Long userId);
     boolean existsByUserId(Long userId);
+
+    // Projeção direta no DTO: leitura sem entidades gerenciadas nem snapshots de dirty-check
+    @Query("""
+            select new com.gestao.financeira.dto.SaldoResponseDTO(
+                s.id, s.nomeConta, s.valor, s.moeda, s.tipo, s.simbolo, s.quantidade, s.taxa,
+                s.indexador, s.data, s.observacao)
+            from Saldo s
+            where s.user.id = :userId
+            """)
+    List<SaldoResponseDTO> listarProjetadoPorUsuario(@Param("userId") Long userId);
+
+    @Query("""
+            select upper(s.tipo) as tipo, upper(trim(s.simbolo)) as simbolo, count(s) as quantidade
+            from Saldo s
+            where upper(s.tipo) in :tipos and s.simbolo is not null
+            group by upper(s.tipo), upper(trim(s.simbolo))
+            """)
+    List<SimboloContagem> contarSimbolosPorTipo(@Param("tipos") Collection<String> tipos);
+
+    interface SimboloContagem {
+        String getTipo();
+        String getSimbolo();
+        Long getQuantidade();
+    }
 }
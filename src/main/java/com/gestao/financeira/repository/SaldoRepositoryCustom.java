@@ -0,0 +1,18 @@
+package com.gestao.financeira.repository;
+
+import com.gestao.financeira.dto.SaldoFiltroDTO;
+import com.gestao.financeira.dto.SaldoResponseDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SaldoRepositoryCustom {
+
+    /**
+     * Saldos do usuário ordenados por (data desc, id desc), começando logo depois da posição
+     * (cursorData, cursorId). Sem cursor, começa do início. Saldos sem data vêm por último.
+     * Projeta direto no DTO, sem carregar entidades no contexto de persistência.
+     */
+    List<SaldoResponseDTO> buscarPagina(Long userId, SaldoFiltroDTO filtro, boolean temCursor,
+                             LocalDate cursorData, Long cursorId, int limite);
+}
@@ -0,0 +1,97 @@
+package com.gestao.financeira.repository;
+
+import com.gestao.financeira.dto.SaldoFiltroDTO;
+import com.gestao.financeira.dto.SaldoResponseDTO;
+import com.gestao.financeira.entity.Saldo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Listagem por keyset (seek): em vez de OFFSET, filtra pelo último (data, id) visto, então cada
+ * página custa o mesmo não importa quão fundo o usuário esteja.
+ * <p>
+ * A ordem (data desc, id desc) é a do índice (user_id, data, id) de {@link Saldo} lido de trás para
+ * frente. Saldos sem data ficam por último, mas não via {@code NULLS LAST}: Postgres e SQLite põem o
+ * NULL em pontas opostas do índice e nenhum dos dois casaria com a ordenação. São dois trechos, cada um
+ * casando com o índice: primeiro os datados ({@code data IS NOT NULL}), depois os sem data por id.
+ * Tipo, moeda e símbolo são gravados em maiúsculas ({@link Saldo#normalizar}), então o filtro compara
+ * direto com o valor normalizado e o filtro de tipo usa o índice (user_id, tipo, data, id).
+ */
+class SaldoRepositoryCustomImpl implements SaldoRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    SaldoRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<SaldoResponseDTO> buscarPagina(Long userId, SaldoFiltroDTO filtro, boolean temCursor,
+                                    LocalDate cursorData, Long cursorId, int limite) {
+        List<SaldoResponseDTO> pagina = new ArrayList<>();
+        // Cursor num saldo sem data: os datados já foram todos
+        if (!temCursor || cursorData != null) {
+            pagina.addAll(buscarTrecho(userId, filtro, true, temCursor ? cursorData : null, temCursor ? cursorId : null, limite));
+        }
+        if (pagina.size() < limite) {
+            Long depoisDoId = temCursor && cursorData == null ? cursorId : null;
+            pagina.addAll(buscarTrecho(userId, filtro, false, null, depoisDoId, limite - pagina.size()));
+        }
+        return pagina;
+    }
+
+    private List<SaldoResponseDTO> buscarTrecho(Long userId, SaldoFiltroDTO filtro, boolean datados,
+                                                LocalDate cursorData, Long cursorId, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<SaldoResponseDTO> query = cb.createQuery(SaldoResponseDTO.class);
+        Root<Saldo> saldo = query.from(Saldo.class);
+        Path<LocalDate> data = saldo.get("data");
+        Path<Long> id = saldo.get("id");
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(saldo.get("user").get("id"), userId));
+        where.add(datados ? cb.isNotNull(data) : cb.isNull(data));
+
+        if (filtro != null) {
+            if (filtro.tipo() != null) {
+                where.add(cb.equal(saldo.get("tipo"), filtro.tipo().trim().toUpperCase(Locale.ROOT)));
+            }
+            if (filtro.moeda() != null) {
+                where.add(cb.equal(saldo.get("moeda"), filtro.moeda().trim().toUpperCase(Locale.ROOT)));
+            }
+            if (filtro.simbolo() != null) {
+                where.add(cb.equal(saldo.get("simbolo"), filtro.simbolo().trim().toUpperCase(Locale.ROOT)));
+            }
+            if (filtro.dataInicio() != null) where.add(cb.greaterThanOrEqualTo(data, filtro.dataInicio()));
+            if (filtro.dataFim() != null) where.add(cb.lessThanOrEqualTo(data, filtro.dataFim()));
+        }
+
+        if (cursorData != null) {
+            where.add(cb.or(
+                    cb.lessThan(data, cursorData),
+                    cb.and(cb.equal(data, cursorData), cb.lessThan(id, cursorId))));
+        } else if (cursorId != null) {
+            where.add(cb.lessThan(id, cursorId));
+        }
+
+        query.select(cb.construct(SaldoResponseDTO.class,
+                        id, saldo.get("nomeConta"), saldo.get("valor"), saldo.get("moeda"), saldo.get("tipo"),
+                        saldo.get("simbolo"), saldo.get("quantidade"), saldo.get("taxa"),
+                        saldo.get("indexador"), data, saldo.get("observacao")))
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(datados ? List.of(cb.desc(data), cb.desc(id)) : List.of(cb.desc(id)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
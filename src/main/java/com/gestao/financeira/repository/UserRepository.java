@@ -2,12 +2,22 @@ package com.gestao.financeira.repository;
 
 import com.gestao.financeira.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
     Optional<User> findByEmailVerificationTokenLookup(String lookup);
-    Optional<User> findByPasswordResetTokenLookup(String lookup);
+    List<User> findByUpdatedAtAfter(Instant desde);
+
+    // Update direto: não passa pelo @PreUpdate nem regrava as coleções do usuário
+    @Modifying
+    @Query("update User u set u.failedLoginAttempts = :tentativas, u.lockedUntil = :ate where u.id = :id")
+    int bloquear(@Param("id") Long id, @Param("tentativas") int tentativas, @Param("ate") Instant ate);
 }
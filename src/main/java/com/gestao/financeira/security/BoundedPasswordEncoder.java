@@ -0,0 +1,153 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa o hash/verificação de senha (BCrypt) num pool próprio, do tamanho da CPU e com fila
+ * limitada, em vez de nas threads do Tomcat. Com a fila cheia a chamada falha na hora com
+ * {@link ServiceOverloadedException} (503), e uma rajada de logins não trava o resto da API.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final String MENSAGEM_SOBRECARGA = "Servidor ocupado. Tente novamente em instantes.";
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final Timer tempoEncode;
+    private final Timer tempoMatches;
+    private final Counter rejeitados;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int capacidadeFila, MeterRegistry registry) {
+        this.delegate = delegate;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                r -> {
+                    Thread thread = new Thread(r, "password-hash-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("security.password.queue.depth", executor, e -> e.getQueue().size())
+                .description("Operações de senha aguardando na fila")
+                .register(registry);
+        Gauge.builder("security.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Operações de senha em execução")
+                .register(registry);
+        this.tempoEncode = Timer.builder("security.password.hash")
+                .tag("operation", "encode")
+                .register(registry);
+        this.tempoMatches = Timer.builder("security.password.hash")
+                .tag("operation", "matches")
+                .register(registry);
+        this.rejeitados = Counter.builder("security.password.rejected")
+                .description("Operações de senha recusadas por fila cheia")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return aguardar(submeter(() -> tempoEncode.recordCallable(() -> delegate.encode(rawPassword))));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return aguardar(submeter(() -> tempoMatches.recordCallable(() -> delegate.matches(rawPassword, encodedPassword))));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Verifica a senha contra vários hashes em paralelo (ex: histórico de senhas).
+     * Assim que um bate, as verificações restantes são canceladas.
+     */
+    public boolean matchesAny(CharSequence rawPassword, Collection<String> encodedPasswords) {
+        if (encodedPasswords.isEmpty()) return false;
+
+        ExecutorCompletionService<Boolean> conclusoes = new ExecutorCompletionService<>(executor);
+        List<Future<Boolean>> tarefas = new ArrayList<>(encodedPasswords.size());
+        try {
+            for (String hash : encodedPasswords) {
+                tarefas.add(conclusoes.submit(() -> tempoMatches.recordCallable(() -> delegate.matches(rawPassword, hash))));
+            }
+            for (int i = 0; i < tarefas.size(); i++) {
+                if (aguardar(conclusoes.take())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (RejectedExecutionException e) {
+            rejeitados.increment();
+            throw new ServiceOverloadedException(MENSAGEM_SOBRECARGA);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException(MENSAGEM_SOBRECARGA);
+        } finally {
+            // Do fim para o começo: as da fila caem antes de interromper as que estão rodando, senão o
+            // worker liberado pela interrupção ainda pegaria a próxima da fila
+            for (int i = tarefas.size() - 1; i >= 0; i--) {
+                tarefas.get(i).cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Trabalho de CPU ligado às senhas (ex: calibração do BCrypt) nos mesmos workers, sem esperar
+     * pelo resultado. Fila cheia recusa com {@link ServiceOverloadedException}.
+     */
+    public void executar(Runnable tarefa) {
+        submeter(() -> {
+            tarefa.run();
+            return null;
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> Future<T> submeter(Callable<T> tarefa) {
+        try {
+            return executor.submit(tarefa);
+        } catch (RejectedExecutionException e) {
+            rejeitados.increment();
+            throw new ServiceOverloadedException(MENSAGEM_SOBRECARGA);
+        }
+    }
+
+    private <T> T aguardar(Future<T> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            futuro.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException(MENSAGEM_SOBRECARGA);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
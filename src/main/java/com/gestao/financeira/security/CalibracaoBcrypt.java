@@ -0,0 +1,190 @@
+package com.gestao.financeira.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.info.Info;
+import org.springframework.boot.actuate.info.InfoContributor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Custo do BCrypt: fixo ({@code app.security.bcrypt.cost}) ou calibrado no host atual, escolhendo o
+ * maior custo cujo tempo cabe no orçamento de latência. A calibração roda em segundo plano assim que
+ * a aplicação sobe ({@link #calibrar}); até ela terminar nenhuma requisição espera: hashes novos saem
+ * no custo mínimo e {@link PasswordEncoder#upgradeEncoding} responde {@code false}. Depois, hashes com
+ * outro custo são refeitos no próximo login. O resultado aparece em /actuator/info.
+ */
+@Slf4j
+public class CalibracaoBcrypt implements InfoContributor {
+
+    private static final Pattern CUSTO_DO_HASH = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+    private static final int AMOSTRAS = 3;
+
+    private final long orcamentoMs;
+    private final int custoMinimo;
+    private final int custoMaximo;
+    private volatile Resultado resultado;
+
+    private CalibracaoBcrypt(long orcamentoMs, int custoMinimo, int custoMaximo, Resultado resultado) {
+        this.orcamentoMs = orcamentoMs;
+        this.custoMinimo = custoMinimo;
+        this.custoMaximo = custoMaximo;
+        this.resultado = resultado;
+    }
+
+    /**
+     * Custo fixo, sem medir.
+     */
+    public static CalibracaoBcrypt fixo(int custo) {
+        return new CalibracaoBcrypt(0, custo, custo, new Resultado(custo, Map.of()));
+    }
+
+    /**
+     * Mede (em {@link #calibrar}) o maior custo entre {@code custoMinimo} e {@code custoMaximo} que cabe em {@code orcamentoMs}.
+     */
+    public static CalibracaoBcrypt sobDemanda(long orcamentoMs, int custoMinimo, int custoMaximo) {
+        return new CalibracaoBcrypt(orcamentoMs, custoMinimo, custoMaximo, null);
+    }
+
+    private record Resultado(int custo, Map<Integer, Double> temposMs) {}
+
+    /**
+     * Dispara a calibração no {@code executor} sem esperar por ela. Com custo fixo ou já calibrado
+     * não faz nada.
+     */
+    public CompletableFuture<Void> calibrar(Executor executor) {
+        if (resultado != null) return CompletableFuture.completedFuture(null);
+        try {
+            return CompletableFuture.runAsync(this::resultado, executor);
+        } catch (RuntimeException e) {
+            // Executor recusou a tarefa: o custo mínimo continua valendo
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Resultado resultado() {
+        Resultado atual = resultado;
+        if (atual == null) {
+            synchronized (this) {
+                atual = resultado;
+                if (atual == null) {
+                    atual = medir();
+                    resultado = atual;
+                }
+            }
+        }
+        return atual;
+    }
+
+    private Resultado medir() {
+        String senha = UUID.randomUUID().toString();
+        new BCryptPasswordEncoder(custoMinimo).encode(senha); // aquecimento do JIT
+
+        Map<Integer, Double> tempos = new LinkedHashMap<>();
+        int escolhido = custoMinimo;
+        for (int custo = custoMinimo; custo <= custoMaximo; custo++) {
+            double tempo = medianaMs(new BCryptPasswordEncoder(custo), senha);
+            tempos.put(custo, tempo);
+            if (tempo > orcamentoMs) break;
+            escolhido = custo;
+            // Cada custo dobra o tempo: se o próximo com certeza estoura, nem mede
+            if (tempo * 2 > orcamentoMs * 1.5) break;
+        }
+
+        log.info("BCrypt calibrado: custo {} (orçamento {} ms, tempos {})", escolhido, orcamentoMs, tempos);
+        return new Resultado(escolhido, Collections.unmodifiableMap(tempos));
+    }
+
+    private static double medianaMs(BCryptPasswordEncoder encoder, String senha) {
+        double[] amostras = new double[AMOSTRAS];
+        for (int i = 0; i < AMOSTRAS; i++) {
+            long inicio = System.nanoTime();
+            encoder.encode(senha);
+            amostras[i] = (System.nanoTime() - inicio) / 1_000_000.0;
+        }
+        Arrays.sort(amostras);
+        return Math.round(amostras[AMOSTRAS / 2] * 10) / 10.0;
+    }
+
+    /**
+     * BCrypt no custo escolhido, pedindo rehash de qualquer hash com custo diferente (maior ou menor).
+     * Nenhum método espera pela calibração: verificar não depende do custo, e antes dela o hash sai
+     * no custo mínimo, que é refeito no login seguinte à calibração.
+     */
+    public PasswordEncoder encoder() {
+        return new PasswordEncoder() {
+            private final BCryptPasswordEncoder provisorio = new BCryptPasswordEncoder(custoMinimo);
+            private volatile BCryptPasswordEncoder delegado;
+
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return delegado().encode(rawPassword);
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return delegado != null
+                        ? delegado.matches(rawPassword, encodedPassword)
+                        : new BCryptPasswordEncoder().matches(rawPassword, encodedPassword);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String encodedPassword) {
+                Resultado calibrado = resultado;
+                Integer custoDoHash = custoDe(encodedPassword);
+                return calibrado != null && custoDoHash != null && custoDoHash != calibrado.custo();
+            }
+
+            private BCryptPasswordEncoder delegado() {
+                BCryptPasswordEncoder atual = delegado;
+                if (atual == null) {
+                    Resultado calibrado = resultado;
+                    if (calibrado == null) return provisorio;
+                    atual = new BCryptPasswordEncoder(calibrado.custo());
+                    delegado = atual;
+                }
+                return atual;
+            }
+        };
+    }
+
+    /**
+     * Custo escolhido; calibra na hora (bloqueando) se ainda não calibrou.
+     */
+    public int getCusto() {
+        return resultado().custo();
+    }
+
+    /**
+     * Custo escolhido, ou {@code NaN} enquanto a calibração não rodou (para métricas, que não devem dispará-la).
+     */
+    public double custoSeCalibrado() {
+        Resultado atual = resultado;
+        return atual != null ? atual.custo() : Double.NaN;
+    }
+
+    static Integer custoDe(String hash) {
+        if (hash == null) return null;
+        Matcher matcher = CUSTO_DO_HASH.matcher(hash);
+        return matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    @Override
+    public void contribute(Info.Builder builder) {
+        Resultado atual = resultado;
+        Map<String, Object> detalhes = new LinkedHashMap<>();
+        detalhes.put("cost", atual != null ? atual.custo() : null);
+        detalhes.put("budgetMs", orcamentoMs);
+        detalhes.put("timingsMs", atual != null ? atual.temposMs() : Map.of());
+        builder.withDetail("bcrypt", detalhes);
+    }
+}
@@ -0,0 +1,83 @@
+package com.gestao.financeira.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.function.Predicate;
+
+/**
+ * Verifica localmente um ID token (JWT RS256) de um provedor: assinatura pelas chaves do
+ * {@link JwksKeyCache}, {@code exp} (com 60 s de tolerância), {@code aud} igual ao client id e {@code iss} aceito.
+ */
+public class IdTokenVerifier {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String clientId;
+    private final Predicate<Claims> emissorValido;
+    private final JwtParser parser;
+
+    public IdTokenVerifier(JwksKeyCache chaves, String clientId, Predicate<Claims> emissorValido) {
+        this.clientId = clientId;
+        this.emissorValido = emissorValido;
+        this.parser = Jwts.parserBuilder()
+                .setAllowedClockSkewSeconds(60)
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    // A assinatura raw vem da própria API do jjwt 0.11; o cabeçalho segue tipado daqui em diante
+                    @Override
+                    @SuppressWarnings("rawtypes")
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return chaveDe(chaves, header);
+                    }
+                })
+                .build();
+    }
+
+    private static Key chaveDe(JwksKeyCache chaves, JwsHeader<?> header) {
+        // Só RS256: impede que um token HS256 seja "assinado" com a chave pública
+        if (!"RS256".equals(header.getAlgorithm())) {
+            throw new JwtException("Algoritmo não aceito: " + header.getAlgorithm());
+        }
+        return chaves.chave(header.getKeyId());
+    }
+
+    /**
+     * Verifica o token e devolve os claims. Lança {@link JwtException} se qualquer checagem falhar.
+     */
+    public Claims verificar(String idToken) {
+        Claims claims = parser.parseClaimsJws(idToken).getBody();
+
+        if (!clientId.equals(claims.getAudience())) {
+            throw new JwtException("Token não pertence a esta aplicação (aud inválido).");
+        }
+        if (!emissorValido.test(claims)) {
+            throw new JwtException("Emissor do token não aceito: " + claims.getIssuer());
+        }
+        return claims;
+    }
+
+    /**
+     * Indica se o token parece um ID token emitido para este client id (JWT cujo {@code aud} é o nosso),
+     * sem verificar nada. Access tokens opacos ou de outra API (Graph) não passam e seguem a validação remota.
+     */
+    public boolean ehIdTokenDestaAplicacao(String token) {
+        String[] partes = token.split("\\.");
+        if (partes.length != 3) {
+            return false;
+        }
+        try {
+            JsonNode payload = MAPPER.readTree(Base64.getUrlDecoder().decode(partes[1]));
+            return clientId.equals(payload.path("aud").asText(null));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
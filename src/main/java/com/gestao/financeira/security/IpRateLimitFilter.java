@@ -1,50 +0,0 @@
-package com.gestao.financeira.security;
-
-import com.gestao.financeira.service.RateLimitService;
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.stereotype.Component;
-import org.springframework.web.filter.OncePerRequestFilter;
-
-import java.io.IOException;
-
-@Component
-public class IpRateLimitFilter extends OncePerRequestFilter {
-
-    private final RateLimitService rateLimitService;
-
-    public IpRateLimitFilter(RateLimitService rateLimitService) {
-        this.rateLimitService = rateLimitService;
-    }
-
-    @Override
-    protected void doFilterInternal(HttpServletRequest request,
-                                    HttpServletResponse response,
-                                    FilterChain filterChain)
-            throws ServletException, IOException {
-
-        String path = request.getRequestURI();
-
-        if (path.equals("/api/auth/register") ||
-                path.equals("/api/auth/forgot-password") ||
-                path.equals("/api/auth/login") ||
-                path.equals("/api/auth/social-login") ||
-                path.equals("/public/health")) {
-
-            String ip = getClientIp(request);
-            rateLimitService.consume("ip:" + ip, 10, 60);
-        }
-
-        filterChain.doFilter(request, response);
-    }
-
-    private String getClientIp(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        return request.getRemoteAddr();
-    }
-}
@@ -0,0 +1,162 @@
+package com.gestao.financeira.security;
+
+import io.jsonwebtoken.JwtException;
+import com.gestao.financeira.externalservice.CircuitBreaker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClient;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Chaves públicas (JWKS) de um provedor OAuth, em memória pelo tempo do {@code Cache-Control: max-age}
+ * da resposta. Vencido o prazo, as chaves atuais continuam valendo enquanto uma nova busca roda em
+ * segundo plano; só se a busca falhar por muito tempo ({@link #TOLERANCIA_VENCIDO}) o login passa a esperar
+ * pela rede. Um {@code kid} desconhecido força uma nova busca (rotação de chaves), no máximo uma por minuto.
+ * As buscas passam pelo circuit breaker do provedor: com o circuito aberto a atualização em segundo plano
+ * mantém as chaves atuais e a busca obrigatória falha na hora, sem esperar o timeout.
+ */
+@Slf4j
+public class JwksKeyCache {
+
+    private static final Duration VALIDADE_PADRAO = Duration.ofHours(1);
+    private static final Duration VALIDADE_MINIMA = Duration.ofMinutes(5);
+    private static final Duration TOLERANCIA_VENCIDO = Duration.ofHours(24);
+    private static final Duration INTERVALO_MINIMO_BUSCA = Duration.ofMinutes(1);
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private record Snapshot(Map<String, PublicKey> chaves, Instant expiraEm, Instant buscadoEm) {}
+
+    private final RestClient restClient;
+    private final String url;
+    private final CircuitBreaker circuitBreaker;
+    private final Duration intervaloMinimoBusca;
+    private final AtomicBoolean atualizando = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+
+    public JwksKeyCache(RestClient restClient, String url, CircuitBreaker circuitBreaker) {
+        this(restClient, url, circuitBreaker, INTERVALO_MINIMO_BUSCA);
+    }
+
+    JwksKeyCache(RestClient restClient, String url, CircuitBreaker circuitBreaker, Duration intervaloMinimoBusca) {
+        this.restClient = restClient;
+        this.url = url;
+        this.circuitBreaker = circuitBreaker;
+        this.intervaloMinimoBusca = intervaloMinimoBusca;
+    }
+
+    public PublicKey chave(String kid) {
+        Instant agora = Instant.now();
+        Snapshot atual = snapshot;
+
+        if (atual == null || agora.isAfter(atual.expiraEm().plus(TOLERANCIA_VENCIDO))) {
+            atual = buscarAgora(atual);
+        } else if (agora.isAfter(atual.expiraEm())) {
+            atualizarEmSegundoPlano();
+        }
+
+        PublicKey chave = atual.chaves().get(kid);
+        if (chave == null && agora.isAfter(atual.buscadoEm().plus(intervaloMinimoBusca))) {
+            chave = buscarAgora(atual).chaves().get(kid);
+        }
+        if (chave == null) {
+            throw new JwtException("Chave de assinatura desconhecida: " + kid);
+        }
+        return chave;
+    }
+
+    private synchronized Snapshot buscarAgora(Snapshot visto) {
+        // Outra thread pode ter buscado enquanto esta esperava o lock
+        if (snapshot != visto) {
+            return snapshot;
+        }
+        snapshot = buscar();
+        return snapshot;
+    }
+
+    private void atualizarEmSegundoPlano() {
+        if (!atualizando.compareAndSet(false, true)) {
+            return;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                Snapshot novo = buscar();
+                synchronized (this) {
+                    snapshot = novo;
+                }
+            } catch (Exception e) {
+                log.warn("Falha ao atualizar JWKS de {}; mantendo as chaves atuais: {}", url, e.getMessage());
+            } finally {
+                atualizando.set(false);
+            }
+        });
+    }
+
+    private Snapshot buscar() {
+        ResponseEntity<Map<String, Object>> resposta = circuitBreaker.executar(() -> restClient.get()
+                .uri(url)
+                .retrieve()
+                .toEntity(new ParameterizedTypeReference<Map<String, Object>>() {}));
+        Map<String, Object> corpo = resposta.getBody();
+        if (corpo == null || !(corpo.get("keys") instanceof List<?> chaves)) {
+            throw new JwtException("JWKS sem chaves em " + url);
+        }
+
+        Map<String, PublicKey> porKid = new HashMap<>();
+        for (Object item : chaves) {
+            if (!(item instanceof Map<?, ?> jwk) || !"RSA".equals(jwk.get("kty")) || !(jwk.get("kid") instanceof String kid)) {
+                continue;
+            }
+            porKid.put(kid, rsa(texto(jwk.get("n")), texto(jwk.get("e"))));
+        }
+
+        Instant agora = Instant.now();
+        Duration validade = validade(resposta.getHeaders());
+        log.info("JWKS de {} carregado: {} chaves, válido por {}", url, porKid.size(), validade);
+        return new Snapshot(Map.copyOf(porKid), agora.plus(validade), agora);
+    }
+
+    private static Duration validade(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                Duration maxAge = Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+                return maxAge.compareTo(VALIDADE_MINIMA) < 0 ? VALIDADE_MINIMA : maxAge;
+            }
+        }
+        return VALIDADE_PADRAO;
+    }
+
+    private static String texto(Object valor) {
+        return valor instanceof String texto ? texto : null;
+    }
+
+    private static PublicKey rsa(String n, String e) {
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            RSAPublicKeySpec spec = new RSAPublicKeySpec(
+                    new BigInteger(1, decoder.decode(n)),
+                    new BigInteger(1, decoder.decode(e)));
+            return KeyFactory.getInstance("RSA").generatePublic(spec);
+        } catch (GeneralSecurityException | IllegalArgumentException | NullPointerException ex) {
+            throw new JwtException("Chave RSA inválida no JWKS", ex);
+        }
+    }
+}
@@ -1,14 +1,12 @@
 package com.gestao.financeira.security;
 
-import com.gestao.financeira.entity.User;
-import com.gestao.financeira.repository.UserRepository;
 import com.gestao.financeira.service.JwtService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,11 +17,15 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final RevogacaoTokens revogacaoTokens;
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserRepository userRepository) {
+    public JwtAuthenticationFilter(JwtService jwtService,
+                                   PrincipalCache principalCache,
+                                   RevogacaoTokens revogacaoTokens) {
         this.jwtService = jwtService;
-        this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.revogacaoTokens = revogacaoTokens;
     }
 
     @Override
@@ -46,34 +48,43 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 return;
             }
 
-            Long userId = jwtService.extractUserId(token);
+            TokenClaims claims = jwtService.parseToken(token);
 
-            if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                User user = userRepository.findById(userId).orElse(null);
+            if (claims.userId() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserPrincipal principal;
 
-                if (user != null) {
-                    if (!user.isEnabled()) {
+                if (claims.securityVersion() != null) {
+                    // Token atual: tudo vem das claims, só a lista de revogações em memória é consultada
+                    if (revogacaoTokens.revogado(claims.userId(), claims.securityVersion())) {
+                        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Sessão expirada. Faça login novamente.");
+                        return;
+                    }
+                    principal = new UserPrincipal(claims.userId(), claims.email(), claims.roles(), true, null);
+                } else {
+                    // Tokens longos emitidos antes do claim "ver": conferidos contra o usuário até expirarem
+                    principal = principalCache.buscar(claims.userId());
+                    if (principal != null && !principal.isEnabled()) {
                         response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Conta desativada ou banida.");
                         return;
                     }
-
-                    long tokenPwdChange = jwtService.extractPwdChange(token);
-                    long userPwdChange = user.getLastPasswordChange() != null
-                            ? user.getLastPasswordChange().toEpochMilli()
-                            : 0L;
-
-                    if (tokenPwdChange != userPwdChange) {
+                    if (principal != null
+                            && (claims.pwdChange() == null || claims.pwdChange() != principal.lastPasswordChangeMillis())) {
                         response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Sessão expirada. Faça login novamente.");
                         return;
                     }
+                }
+
+                if (principal != null) {
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            user, null,
-                            user.getRoles().stream().map(SimpleGrantedAuthority::new).toList()
+                            principal, null, principal.getAuthorities()
                     );
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
             }
 
+        } catch (BadCredentialsException e) {
+            // Já registrado pelo JwtService (uma vez por token)
+            SecurityContextHolder.clearContext();
         } catch (Exception e) {
             logger.warn("Token ignorado (inválido ou expirado): " + e.getMessage());
             SecurityContextHolder.clearContext();
@@ -0,0 +1,56 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+/**
+ * Cache limitado de {@link UserPrincipal} por id, para o filtro JWT não ir à tabela users em toda
+ * requisição. Quem altera email, senha, roles ou status do usuário deve chamar {@link #invalidar}.
+ * O TTL é só uma rede de segurança para alterações feitas fora da aplicação.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, UserPrincipal> cache;
+
+    public PrincipalCache(UserRepository userRepository,
+                          @Value("${app.security.principal-cache.max-size:10000}") long tamanhoMaximo,
+                          @Value("${app.security.principal-cache.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Principal do usuário, ou null se ele não existe mais.
+     */
+    public UserPrincipal buscar(Long userId) {
+        return cache.get(userId, id -> userRepository.findById(id).map(UserPrincipal::from).orElse(null));
+    }
+
+    /**
+     * Remove o usuário na hora e de novo depois do commit: uma requisição concorrente que leia o
+     * banco antes do commit não deixa o valor antigo no cache.
+     */
+    public void invalidar(Long userId) {
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+}
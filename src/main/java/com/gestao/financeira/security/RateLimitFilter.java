@@ -0,0 +1,141 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.config.RateLimitProperties;
+import com.gestao.financeira.config.RateLimitProperties.Politica;
+import com.gestao.financeira.config.RateLimitProperties.TipoChave;
+import com.gestao.financeira.service.RateLimitService;
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica as políticas de {@code app.rate-limit.policies} que têm rotas. Roda depois do
+ * {@link JwtAuthenticationFilter} para já saber o usuário. Toda requisição limitada recebe
+ * {@code RateLimit-Limit/Remaining/Reset} da política mais apertada; a recusada recebe 429 e {@code Retry-After}.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private record Rota(Politica politica, List<PathPattern> padroes, Set<String> metodos) {
+
+        boolean casa(String metodo, PathContainer caminho) {
+            if (!metodos.isEmpty() && !metodos.contains(metodo)) {
+                return false;
+            }
+            for (PathPattern padrao : padroes) {
+                if (padrao.matches(caminho)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final RateLimitService rateLimitService;
+    private final List<Rota> rotas;
+
+    public RateLimitFilter(RateLimitService rateLimitService, RateLimitProperties properties) {
+        this.rateLimitService = rateLimitService;
+        // Padrões compilados no startup; por requisição só há o match
+        PathPatternParser parser = PathPatternParser.defaultInstance;
+        this.rotas = properties.policies().stream()
+                .filter(politica -> !politica.paths().isEmpty())
+                .map(politica -> new Rota(
+                        politica,
+                        politica.paths().stream().map(parser::parse).toList(),
+                        Set.copyOf(politica.methods())))
+                .toList();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        PathContainer caminho = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        String metodo = request.getMethod();
+
+        Politica maisApertada = null;
+        ConsumptionProbe menorSaldo = null;
+
+        for (Rota rota : rotas) {
+            if (!rota.casa(metodo, caminho)) {
+                continue;
+            }
+            String chave = chave(rota.politica().key(), request);
+            if (chave == null) {
+                continue;
+            }
+
+            ConsumptionProbe probe = rateLimitService.tryConsume(rota.politica().name(), chave);
+            if (!probe.isConsumed()) {
+                escreverCabecalhos(response, rota.politica(), probe);
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimitService.retryAfterSeconds(probe)));
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.setCharacterEncoding("UTF-8");
+                response.getWriter().write("{\"error\":\"" + RateLimitService.MENSAGEM_LIMITE + "\"}");
+                return;
+            }
+            if (menorSaldo == null || probe.getRemainingTokens() < menorSaldo.getRemainingTokens()) {
+                maisApertada = rota.politica();
+                menorSaldo = probe;
+            }
+        }
+
+        if (menorSaldo != null) {
+            escreverCabecalhos(response, maisApertada, menorSaldo);
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void escreverCabecalhos(HttpServletResponse response, Politica politica, ConsumptionProbe probe) {
+        response.setHeader("RateLimit-Limit", String.valueOf(politica.capacity()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(probe.getRemainingTokens()));
+        response.setHeader("RateLimit-Reset", String.valueOf(
+                TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForReset() + 999_999_999L)));
+    }
+
+    private String chave(TipoChave tipo, HttpServletRequest request) {
+        Long userId = usuarioAutenticado();
+        return switch (tipo) {
+            case IP -> "ip:" + getClientIp(request);
+            case USER -> userId != null ? "user:" + userId : null;
+            case USER_OR_IP -> userId != null ? "user:" + userId : "ip:" + getClientIp(request);
+        };
+    }
+
+    private Long usuarioAutenticado() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.id();
+        }
+        return null;
+    }
+
+    private String getClientIp(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+        return request.getRemoteAddr();
+    }
+}
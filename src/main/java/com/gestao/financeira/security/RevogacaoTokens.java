@@ -0,0 +1,174 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Revogações de access tokens em memória, para o filtro JWT não consultar o banco. Cada revogação
+ * guarda a menor {@code securityVersion} ainda aceita para o usuário (banido = nenhuma).
+ * <p>
+ * Um filtro de Bloom com os ids revogados responde "certamente não revogado" para quase toda
+ * requisição; só os positivos (revogados de fato ou falso-positivos) consultam o mapa exato.
+ * Nada precisa durar mais que um access token: as entradas expiram após duas vezes o
+ * {@code jwt.expiration}, e o Bloom é trocado por um vazio a cada período, mantendo a geração anterior.
+ * Revogações feitas em outras instâncias chegam pela sincronização periódica com a tabela users.
+ */
+@Component
+@Slf4j
+public class RevogacaoTokens {
+
+    private static final Duration MARGEM_SINCRONIZACAO = Duration.ofMinutes(1);
+
+    private final UserRepository userRepository;
+    private final int bitsBloom;
+    private final Cache<Long, Integer> versaoMinima;
+    private volatile FiltroBloom atual;
+    private volatile FiltroBloom anterior;
+    private volatile Instant ultimaSincronizacao;
+
+    public RevogacaoTokens(UserRepository userRepository,
+                           @Value("${jwt.expiration:900000}") long validadeTokenMs,
+                           @Value("${app.security.revocation.bloom-bits:1048576}") int bitsBloom) {
+        this.userRepository = userRepository;
+        this.bitsBloom = bitsBloom;
+        Duration validade = Duration.ofMillis(validadeTokenMs);
+        this.versaoMinima = Caffeine.newBuilder()
+                .expireAfterWrite(validade.multipliedBy(2))
+                .build();
+        this.atual = new FiltroBloom(bitsBloom);
+        this.anterior = new FiltroBloom(bitsBloom);
+        // No startup, recupera revogações recentes feitas antes do restart ou por outras instâncias
+        this.ultimaSincronizacao = Instant.now().minus(validade.multipliedBy(2));
+    }
+
+    /**
+     * Indica se um token com a versão dada deixou de valer para o usuário.
+     */
+    public boolean revogado(Long userId, int versao) {
+        if (!atual.talvezContenha(userId) && !anterior.talvezContenha(userId)) {
+            return false;
+        }
+        Integer minima = versaoMinima.getIfPresent(userId);
+        return minima != null && versao < minima;
+    }
+
+    /**
+     * Revoga os tokens emitidos antes do estado atual do usuário (versão incrementada ou conta desativada).
+     * Dentro de uma transação, só vale depois do commit.
+     */
+    public void revogar(User user) {
+        Long userId = user.getId();
+        int minima = user.isEnabled() ? user.getSecurityVersion() : Integer.MAX_VALUE;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    registrar(userId, minima);
+                }
+            });
+        } else {
+            registrar(userId, minima);
+        }
+    }
+
+    /**
+     * Revoga tudo do usuário, sem depender do estado dele (ex: usuário excluído).
+     */
+    public void revogarTudo(Long userId) {
+        registrar(userId, Integer.MAX_VALUE);
+    }
+
+    private void registrar(Long userId, int minima) {
+        versaoMinima.asMap().merge(userId, minima, Math::max);
+        atual.adicionar(userId);
+    }
+
+    @Scheduled(fixedRateString = "${jwt.expiration:900000}", initialDelayString = "${jwt.expiration:900000}")
+    void rotacionarBloom() {
+        // Entradas que ainda estão no mapa exato voltam para o filtro novo
+        FiltroBloom novo = new FiltroBloom(bitsBloom);
+        versaoMinima.asMap().keySet().forEach(novo::adicionar);
+        anterior = atual;
+        atual = novo;
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.revocation.sync-interval-ms:30000}")
+    void sincronizar() {
+        Instant inicio = Instant.now();
+        int revogados = 0;
+        for (User user : userRepository.findByUpdatedAtAfter(ultimaSincronizacao.minus(MARGEM_SINCRONIZACAO))) {
+            if (!user.isEnabled() || user.getSecurityVersion() > 0) {
+                registrar(user.getId(), user.isEnabled() ? user.getSecurityVersion() : Integer.MAX_VALUE);
+                revogados++;
+            }
+        }
+        ultimaSincronizacao = inicio;
+        if (revogados > 0) {
+            log.debug("Revogações sincronizadas: {} usuários.", revogados);
+        }
+    }
+
+    /**
+     * Bloom com k = 4 funções por double hashing sobre um hash de 64 bits do id.
+     */
+    static final class FiltroBloom {
+
+        private static final int FUNCOES = 4;
+
+        private final AtomicLongArray palavras;
+        private final int bits;
+
+        FiltroBloom(int bits) {
+            this.bits = bits;
+            this.palavras = new AtomicLongArray((bits + 63) / 64);
+        }
+
+        void adicionar(long valor) {
+            long hash = misturar(valor);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < FUNCOES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                long mascara = 1L << bit;
+                int indice = bit >>> 6;
+                long antigo;
+                do {
+                    antigo = palavras.get(indice);
+                } while ((antigo & mascara) == 0 && !palavras.compareAndSet(indice, antigo, antigo | mascara));
+            }
+        }
+
+        boolean talvezContenha(long valor) {
+            long hash = misturar(valor);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 0; i < FUNCOES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, bits);
+                if ((palavras.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // SplitMix64: ids sequenciais viram bits bem espalhados
+        private static long misturar(long valor) {
+            long z = valor + 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
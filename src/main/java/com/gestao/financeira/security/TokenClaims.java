@@ -0,0 +1,17 @@
+package com.gestao.financeira.security;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Claims de um access token já verificado. {@code securityVersion} é nulo em tokens antigos (sem a claim
+ * "ver"), que ainda são conferidos pelo {@code pwdChange} contra o banco até expirarem.
+ */
+public record TokenClaims(
+        Long userId,
+        String email,
+        Set<String> roles,
+        Integer securityVersion,
+        Long pwdChange,
+        Instant expiresAt
+) {}
@@ -0,0 +1,45 @@
+package com.gestao.financeira.security;
+
+import org.apache.commons.codec.digest.HmacAlgorithms;
+import org.apache.commons.codec.digest.HmacUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * HMAC-SHA256 dos tokens curtos (confirmação de email, código de reset). O valor gravado nas
+ * colunas *TokenLookup serve ao mesmo tempo de índice e de verificação: sem a chave não dá para
+ * calcular o HMAC de um palpite, então não é preciso um BCrypt por cima. A chave é própria
+ * ({@code app.security.token-secret}): vazar o segredo do JWT não expõe os tokens gravados.
+ */
+@Component
+public class TokenHasher {
+
+    private final HmacUtils hmac;
+
+    public TokenHasher(@Value("${app.security.token-secret}") String segredo) {
+        if (segredo == null || segredo.length() < 32) {
+            throw new IllegalStateException("Segredo dos tokens deve ter no mínimo 32 caracteres");
+        }
+        this.hmac = new HmacUtils(HmacAlgorithms.HMAC_SHA_256, segredo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * HMAC em hexadecimal (64 caracteres, cabe nas colunas *TokenLookup).
+     */
+    public String hash(String token) {
+        return hmac.hmacHex(token);
+    }
+
+    /**
+     * Compara o token com o HMAC gravado em tempo constante.
+     */
+    public boolean confere(String token, String hashGravado) {
+        if (token == null || hashGravado == null) return false;
+        return MessageDigest.isEqual(
+                hash(token).getBytes(StandardCharsets.US_ASCII),
+                hashGravado.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,56 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Snapshot imutável do usuário autenticado: só o que a autenticação e os controllers precisam.
+ * É o que fica no SecurityContext (e no {@link PrincipalCache}), no lugar da entidade User.
+ */
+public record UserPrincipal(
+        Long id,
+        String email,
+        Set<String> roles,
+        boolean enabled,
+        Instant lastPasswordChange
+) implements UserDetails {
+
+    public UserPrincipal {
+        roles = Set.copyOf(roles);
+    }
+
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getEmail(), user.getRoles(),
+                user.isEnabled(), user.getLastPasswordChange());
+    }
+
+    public long lastPasswordChangeMillis() {
+        return lastPasswordChange != null ? lastPasswordChange.toEpochMilli() : 0L;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles.stream().map(SimpleGrantedAuthority::new).toList();
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
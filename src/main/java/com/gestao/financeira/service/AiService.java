@@ -2,9 +2,11 @@ package com.gestao.financeira.service;
 
 import com.gestao.financeira.dto.GeminiRequestDTO;
 import com.gestao.financeira.dto.GeminiResponseDTO;
-import com.gestao.financeira.entity.Saldo;
-import com.gestao.financeira.entity.User;
+import com.gestao.financeira.dto.SaldoResponseDTO;
 import com.gestao.financeira.exception.AiServiceException;
+import com.gestao.financeira.externalservice.CircuitBreaker;
+import com.gestao.financeira.externalservice.CircuitBreakers;
+import com.gestao.financeira.security.UserPrincipal;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
@@ -22,6 +24,7 @@ import java.util.stream.Collectors;
 public class AiService {
 
     private final RestClient restClient;
+    private final CircuitBreaker circuitBreaker;
     private final RateLimitService rateLimitService;
     private final SaldoService saldoService;
 
@@ -33,16 +36,18 @@ public class AiService {
 
     public AiService(RateLimitService rateLimitService,
                      SaldoService saldoService,
-                     RestClient restClient) {
+                     RestClient restClient,
+                     CircuitBreakers circuitBreakers) {
         this.rateLimitService = rateLimitService;
         this.saldoService = saldoService;
         this.restClient = restClient;
+        this.circuitBreaker = circuitBreakers.get("gemini");
     }
 
-    @Cacheable(value = "ai-analise", key = "#user.email", unless = "#result == null")
-    public String analisarInvestimentos(User user) {
-        rateLimitService.consume("ai_analysis:" + user.getEmail(), 1, 1000);
-        List<Saldo> saldos = saldoService.listarDoUsuario(user);
+    @Cacheable(value = "ai-analise", key = "#user.username", unless = "#result == null")
+    public String analisarInvestimentos(UserPrincipal user) {
+        rateLimitService.consume("ai-analysis", "user:" + user.id());
+        List<SaldoResponseDTO> saldos = saldoService.listarDoUsuario(user.id());
 
         if (saldos == null || saldos.isEmpty()) {
             return "Você ainda não possui investimentos cadastrados para análise. Adicione saldos e tente novamente.";
@@ -50,12 +55,12 @@ public class AiService {
 
         try {
             String prompt = construirPromptOtimizado(saldos);
-            GeminiResponseDTO response = restClient.post()
+            GeminiResponseDTO response = circuitBreaker.executar(() -> restClient.post()
                     .uri(geminiUrl + geminiKey)
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(GeminiRequestDTO.of(prompt))
                     .retrieve()
-                    .body(GeminiResponseDTO.class);
+                    .body(GeminiResponseDTO.class));
 
             if (response == null || response.getText() == null) {
                 throw new AiServiceException("A IA não retornou nenhuma sugestão válida.");
@@ -64,22 +69,22 @@ public class AiService {
             return response.getText();
 
         } catch (Exception e) {
-            log.error("Erro API Gemini para usuário {}: {}", user.getEmail(), e.getMessage());
+            log.error("Erro API Gemini para usuário {}: {}", user.email(), e.getMessage());
             throw new AiServiceException("O consultor financeiro está indisponível no momento. Tente mais tarde.");
         }
     }
 
-    private String construirPromptOtimizado(List<Saldo> saldos) {
+    private String construirPromptOtimizado(List<SaldoResponseDTO> saldos) {
         String resumoSaldos = saldos.stream()
-                .filter(s -> s.getValor() != null && s.getValor().compareTo(BigDecimal.ZERO) > 0)
-                .sorted(Comparator.comparing(Saldo::getValor).reversed())
+                .filter(s -> s.valor() != null && s.valor().compareTo(BigDecimal.ZERO) > 0)
+                .sorted(Comparator.comparing(SaldoResponseDTO::valor).reversed())
                 .limit(30)
                 .map(s -> String.format(
                         "- Conta: %s | Tipo: %s | Valor: %s %s",
-                        s.getNomeConta(),
-                        s.getTipo(), // Enum já vira string
-                        s.getMoeda() != null ? s.getMoeda() : "BRL",
-                        s.getValor()
+                        s.nomeConta(),
+                        s.tipo(), // Enum já vira string
+                        s.moeda() != null ? s.moeda() : "BRL",
+                        s.valor()
                 ))
                 .collect(Collectors.joining("\n"));
 
@@ -8,6 +8,9 @@ import java.security.SecureRandom;
 import com.gestao.financeira.dto.*;
 import com.gestao.financeira.entity.User;
 import com.gestao.financeira.repository.UserRepository;
+import com.gestao.financeira.security.PrincipalCache;
+import com.gestao.financeira.security.RevogacaoTokens;
+import com.gestao.financeira.security.TokenHasher;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.authentication.LockedException;
@@ -22,7 +25,7 @@ public class AuthService {
 
     @Value("${app.frontend-url}")
     private String frontendUrl;
-    @Value("${jwt.expiration:604800000}")
+    @Value("${jwt.expiration:900000}")
     private Long jwtExpiration;
 
     private final UserRepository userRepository;
@@ -31,34 +34,51 @@ public class AuthService {
     private final RateLimitService rateLimitService;
     private final UserService userService;
     private final SocialService socialService;
+    private final PrincipalCache principalCache;
+    private final TokenHasher tokenHasher;
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final RefreshTokenService refreshTokenService;
+    private final RevogacaoTokens revogacaoTokens;
 
     public AuthService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
                        JwtService jwtService,
                        RateLimitService rateLimitService,
                        UserService userService,
-                       SocialService socialService) {
+                       SocialService socialService,
+                       PrincipalCache principalCache,
+                       TokenHasher tokenHasher,
+                       LoginAttemptTracker loginAttemptTracker,
+                       RefreshTokenService refreshTokenService,
+                       RevogacaoTokens revogacaoTokens) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtService = jwtService;
         this.rateLimitService = rateLimitService;
         this.userService = userService;
         this.socialService = socialService;
+        this.principalCache = principalCache;
+        this.tokenHasher = tokenHasher;
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.refreshTokenService = refreshTokenService;
+        this.revogacaoTokens = revogacaoTokens;
     }
 
-    @Transactional
+    // Senha errada confirma a transação: o bloqueio gravado pelo LoginAttemptTracker tem que ficar
+    @Transactional(noRollbackFor = BadCredentialsException.class)
     public LoginResponseDTO login(LoginDTO dto) {
         applyLoginRateLimit(dto.email());
         User user = loadUserByEmail(dto.email());
         validateLoginPreConditions(user);
         validatePassword(dto.password(), user);
+        rehashIfNeeded(dto.password(), user);
         onSuccessfulLogin(user);
         return generateLoginResponse(user);
     }
 
     @Transactional
     public LoginResponseDTO socialLogin(SocialLoginDTO dto) {
-        rateLimitService.consume("social-login-attempt", 10, 60);
+        rateLimitService.consume("social-login", "global");
 
         SocialUserInfo info = socialService.validateToken(dto);
         User user = userRepository.findByEmail(info.email().toLowerCase().trim())
@@ -94,7 +114,7 @@ public class AuthService {
     }
 
     public String register(UserRegistrationDTO dto) {
-        rateLimitService.consume("register:" + dto.email(), 3, 3600);
+        rateLimitService.consume("register", dto.email().toLowerCase().trim());
         validateEmailAvailability(dto.email());
         User user = createUser(dto);
         String token = generateEmailVerification(user);
@@ -112,7 +132,9 @@ public class AuthService {
 
     @Transactional
     public void resetPassword(ResetPasswordDTO dto) {
-        User user = loadUserByPasswordResetToken(dto.token());
+        String email = dto.email().toLowerCase().trim();
+        rateLimitService.consume("reset-password", email);
+        User user = loadUserForPasswordReset(email);
         if (user.getAuthProvider() != User.AuthProvider.LOCAL) {
             throw new RegraDeNegocioException(
                     "Conta criada via login social."
@@ -121,6 +143,8 @@ public class AuthService {
         validatePasswordResetToken(dto.token(), user);
         userService.validatePasswordReuse(user, dto.newPassword());
         applyNewPassword(dto.newPassword(), user);
+        principalCache.invalidar(user.getId());
+        revogacaoTokens.revogar(user);
     }
 
     public String forgotPassword(String email) {
@@ -142,7 +166,7 @@ public class AuthService {
     }
 
     private void applyLoginRateLimit(String email) {
-        rateLimitService.consume("login:" + email, 5, 3600);
+        rateLimitService.consume("login", email.toLowerCase().trim());
     }
 
     private User loadUserByEmail(String email) {
@@ -173,20 +197,36 @@ public class AuthService {
 
     private void validatePassword(String rawPassword, User user) {
         if (!passwordEncoder.matches(rawPassword, user.getPasswordHash())) {
-            user.incrementFailedAttempts();
-            userRepository.save(user);
+            loginAttemptTracker.registrarFalha(user);
             throw new BadCredentialsException("Senha incorreta.");
         }
     }
 
+    // O custo do BCrypt é calibrado por host: hashes com outro custo são refeitos com a senha em mãos
+    private void rehashIfNeeded(String rawPassword, User user) {
+        String oldHash = user.getPasswordHash();
+        if (!passwordEncoder.upgradeEncoding(oldHash)) {
+            return;
+        }
+        String newHash = passwordEncoder.encode(rawPassword);
+        user.setPasswordHash(newHash);
+        user.getPasswordHistory().replaceAll(hash -> hash.equals(oldHash) ? newHash : hash);
+    }
+
+    // Contadores de falha ficam com o LoginAttemptTracker; a entidade não é tocada (nem o updatedAt)
     private void onSuccessfulLogin(User user) {
-        user.resetFailedAttempts();
-        userRepository.save(user);
+        loginAttemptTracker.registrarSucesso(user);
     }
 
-    private LoginResponseDTO generateLoginResponse(User user) {
+    public LoginResponseDTO generateLoginResponse(User user) {
         String token = jwtService.generateToken(user);
-        return new LoginResponseDTO(token, jwtExpiration);
+        return new LoginResponseDTO(token, jwtExpiration, refreshTokenService.emitir(user));
+    }
+
+    public LoginResponseDTO refresh(RefreshTokenDTO dto) {
+        RefreshTokenService.Rotacao rotacao = refreshTokenService.rotacionar(dto.refreshToken());
+        String token = jwtService.generateToken(rotacao.user());
+        return new LoginResponseDTO(token, jwtExpiration, rotacao.refreshToken());
     }
 
     private User createUser(UserRegistrationDTO dto) {
@@ -210,22 +250,24 @@ public class AuthService {
         user.clearEmailVerificationToken();
         String token = UUID.randomUUID().toString();
 
-        user.setEmailVerificationTokenHash(passwordEncoder.encode(token));
-        user.setEmailVerificationTokenLookup(DigestUtils.sha256Hex(token));
+        user.setEmailVerificationTokenLookup(tokenHasher.hash(token));
         user.setEmailVerificationExpiry(Instant.now().plusSeconds(3600));
 
         return token;
     }
 
     private User loadUserByEmailVerificationToken(String token) {
-        String lookup = DigestUtils.sha256Hex(token);
-
-        return userRepository.findByEmailVerificationTokenLookup(lookup)
+        return userRepository.findByEmailVerificationTokenLookup(tokenHasher.hash(token))
+                // Tokens emitidos antes do HMAC (SHA-256 + BCrypt) continuam valendo até expirar
+                .or(() -> userRepository.findByEmailVerificationTokenLookup(DigestUtils.sha256Hex(token)))
                 .orElseThrow(() -> new RegraDeNegocioException("Token inválido ou expirado"));
     }
 
     private void validateEmailVerificationToken(String token, User user) {
-        if (!passwordEncoder.matches(token, user.getEmailVerificationTokenHash())) {
+        boolean valid = user.getEmailVerificationTokenHash() != null
+                ? passwordEncoder.matches(token, user.getEmailVerificationTokenHash())
+                : tokenHasher.confere(token, user.getEmailVerificationTokenLookup());
+        if (!valid) {
             throw new RegraDeNegocioException("Token inválido");
         }
 
@@ -241,15 +283,18 @@ public class AuthService {
         userRepository.save(user);
     }
 
-    private User loadUserByPasswordResetToken(String token) {
-        String lookup = DigestUtils.sha256Hex(token);
-
-        return userRepository.findByPasswordResetTokenLookup(lookup)
+    // O código é conferido contra a conta informada: os palpites contam no bucket daquela conta,
+    // e um email sem cadastro responde igual a um código errado
+    private User loadUserForPasswordReset(String email) {
+        return userRepository.findByEmail(email)
                 .orElseThrow(() -> new IllegalArgumentException("Token inválido"));
     }
 
     private void validatePasswordResetToken(String token, User user) {
-        if (!passwordEncoder.matches(token, user.getPasswordResetToken())) {
+        boolean valid = user.getPasswordResetToken() != null
+                ? passwordEncoder.matches(token, user.getPasswordResetToken())
+                : tokenHasher.confere(token, user.getPasswordResetTokenLookup());
+        if (!valid) {
             throw new IllegalArgumentException("Token inválido");
         }
 
@@ -263,13 +308,14 @@ public class AuthService {
         user.setPasswordHash(newHash);
         user.addToPasswordHistory(newHash);
         user.setLastPasswordChange(Instant.now());
+        user.incrementSecurityVersion();
         user.clearPasswordResetToken();
         user.setPasswordResetTokenLookup(null);
         userRepository.save(user);
     }
 
     private void applyForgotPasswordRateLimit(String email) {
-        rateLimitService.consume("forgot:" + email, 3, 3600);
+        rateLimitService.consume("forgot-password", email.toLowerCase().trim());
     }
 
     private User findUserByEmailSilently(String email) {
@@ -281,8 +327,7 @@ public class AuthService {
 
         SecureRandom random = new SecureRandom();
         String code = String.format("%06d", random.nextInt(1000000));
-        user.setPasswordResetToken(passwordEncoder.encode(code));
-        user.setPasswordResetTokenLookup(DigestUtils.sha256Hex(code));
+        user.setPasswordResetTokenLookup(tokenHasher.hash(code));
         user.setPasswordResetExpiry(Instant.now().plusSeconds(3600));
 
         userRepository.save(user);
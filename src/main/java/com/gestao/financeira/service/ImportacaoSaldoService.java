@@ -0,0 +1,174 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.ImportacaoResultadoDTO;
+import com.gestao.financeira.dto.ImportacaoResultadoDTO.ErroLinha;
+import com.gestao.financeira.dto.SaldoRequestDTO;
+import com.gestao.financeira.entity.Saldo;
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.event.SaldoAlteradoEvent;
+import com.gestao.financeira.exception.RegraDeNegocioException;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Importa saldos de extratos CSV/OFX. O arquivo é lido em streaming e gravado em lotes, cada lote
+ * na sua própria transação, então a memória usada não depende do tamanho do arquivo.
+ */
+@Service
+@Slf4j
+public class ImportacaoSaldoService {
+
+    // Linhas por transação; o Hibernate ainda agrupa os INSERTs em lotes de hibernate.jdbc.batch_size
+    private static final int LINHAS_POR_TRANSACAO = 500;
+    private static final int MAX_ERROS_REPORTADOS = 200;
+
+    private final SaldoService saldoService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ImportacaoSaldoService(SaldoService saldoService, EntityManager entityManager,
+                                  TransactionTemplate transactionTemplate, Validator validator,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.saldoService = saldoService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public ImportacaoResultadoDTO importar(MultipartFile arquivo, Long userId, String nomeConta) {
+        if (arquivo == null || arquivo.isEmpty()) {
+            throw new RegraDeNegocioException("Arquivo vazio");
+        }
+
+        boolean ofx = isOfx(arquivo);
+        LeitorExtrato leitor = ofx ? new LeitorOfxSaldos(nomeConta) : new LeitorCsvSaldos();
+        // OFX de corretora costuma vir em CP1252/Latin-1; CSV exportado hoje é UTF-8
+        Charset charset = ofx ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+
+        Importacao importacao = new Importacao(userId);
+        try (Reader reader = new BufferedReader(new InputStreamReader(arquivo.getInputStream(), charset))) {
+            leitor.ler(reader, importacao::aceitar);
+        } catch (IOException e) {
+            throw new RegraDeNegocioException("Não foi possível ler o arquivo: " + e.getMessage());
+        }
+        importacao.gravarLote();
+
+        log.info("Importação de saldos (user {}): {} lidas, {} importadas, {} com erro",
+                userId, importacao.lidas, importacao.importados, importacao.comErro);
+        return new ImportacaoResultadoDTO(importacao.lidas, importacao.importados,
+                importacao.comErro, importacao.erros, importacao.avisos);
+    }
+
+    private boolean isOfx(MultipartFile arquivo) {
+        String nome = arquivo.getOriginalFilename();
+        String contentType = arquivo.getContentType();
+        return (nome != null && nome.toLowerCase(Locale.ROOT).endsWith(".ofx"))
+                || (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("ofx"));
+    }
+
+    /**
+     * Estado de uma importação: valida cada linha ao chegar e grava quando o lote enche.
+     */
+    private final class Importacao {
+        private final Long userId;
+        private final List<Saldo> lote = new ArrayList<>(LINHAS_POR_TRANSACAO);
+        private final List<Integer> linhasDoLote = new ArrayList<>(LINHAS_POR_TRANSACAO);
+        private final List<ErroLinha> erros = new ArrayList<>();
+        private final List<ErroLinha> avisos = new ArrayList<>();
+        private int lidas;
+        private int importados;
+        private int comErro;
+
+        Importacao(Long userId) {
+            this.userId = userId;
+        }
+
+        void aceitar(LeitorExtrato.LinhaExtrato linha) {
+            lidas++;
+            if (linha.erro() != null) {
+                registrarErro(linha.numero(), linha.erro());
+                return;
+            }
+
+            Set<ConstraintViolation<SaldoRequestDTO>> violacoes = validator.validate(linha.dto());
+            if (!violacoes.isEmpty()) {
+                registrarErro(linha.numero(), violacoes.stream()
+                        .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            try {
+                // O usuário é associado dentro da transação do lote
+                lote.add(saldoService.montarNovo(linha.dto(), null));
+                linhasDoLote.add(linha.numero());
+            } catch (RegraDeNegocioException e) {
+                registrarErro(linha.numero(), e.getMessage());
+                return;
+            }
+            if (linha.aviso() != null && avisos.size() < MAX_ERROS_REPORTADOS) {
+                avisos.add(new ErroLinha(linha.numero(), linha.aviso()));
+            }
+
+            if (lote.size() >= LINHAS_POR_TRANSACAO) {
+                gravarLote();
+            }
+        }
+
+        void gravarLote() {
+            if (lote.isEmpty()) return;
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    User referencia = entityManager.getReference(User.class, userId);
+                    for (Saldo saldo : lote) {
+                        saldo.setUser(referencia);
+                        entityManager.persist(saldo);
+                    }
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                importados += lote.size();
+                for (Saldo saldo : lote) {
+                    eventPublisher.publishEvent(new SaldoAlteradoEvent(userId, null, saldoService.ativoDo(saldo)));
+                }
+            } catch (RuntimeException e) {
+                log.error("Erro ao gravar lote da importação: {}", e.getMessage());
+                for (Integer numero : linhasDoLote) {
+                    registrarErro(numero, "Não foi possível gravar a linha");
+                }
+            } finally {
+                lote.clear();
+                linhasDoLote.clear();
+            }
+        }
+
+        private void registrarErro(int numero, String mensagem) {
+            comErro++;
+            if (erros.size() < MAX_ERROS_REPORTADOS) {
+                erros.add(new ErroLinha(numero, mensagem));
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.gestao.financeira.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.distributed.ExpirationAfterWriteStrategy;
+import io.github.bucket4j.distributed.proxy.ClientSideConfig;
+import io.github.bucket4j.distributed.proxy.RemoteBucketBuilder;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AbstractCompareAndSwapBasedProxyManager;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.AsyncCompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.generic.compare_and_swap.CompareAndSwapOperation;
+import io.github.bucket4j.distributed.proxy.optimization.DelayParameters;
+import io.github.bucket4j.distributed.proxy.optimization.Optimizations;
+import io.github.bucket4j.distributed.remote.RemoteBucketState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Buckets compartilhados entre instâncias, guardados na tabela {@code rate_limit_bucket} do próprio
+ * banco da aplicação (SQLite ou Postgres). Cada consumo lê o estado e grava com
+ * {@code UPDATE ... WHERE state = <lido>}: se outra instância gravou no meio, o Bucket4j relê e tenta de novo.
+ * <p>
+ * O compare-and-swap roda fora da transação de quem consome (suspensa durante a leitura e a escrita), em
+ * autocommit: a ficha gasta por um login com senha errada não volta quando o login faz rollback.
+ * <p>
+ * Near-cache: o proxy de cada chave fica em memória e, para limites maiores, consome uma fração da
+ * capacidade localmente antes de sincronizar (Optimizations.delaying), tirando as chaves quentes do banco.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "jdbc")
+@Slf4j
+public class JdbcRateLimitBackend extends AbstractCompareAndSwapBasedProxyManager<String> implements RateLimitBackend {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate foraDaTransacao;
+    private final double fracaoNaoSincronizada;
+    private final Duration intervaloSincronizacao;
+    private final Cache<String, Bucket> proxies;
+
+    public JdbcRateLimitBackend(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.rate-limit.jdbc.unsynchronized-fraction:0.05}") double fracaoNaoSincronizada,
+                                @Value("${app.rate-limit.jdbc.sync-interval:250ms}") Duration intervaloSincronizacao,
+                                @Value("${app.rate-limit.jdbc.near-cache-size:10000}") long tamanhoNearCache) {
+        super(ClientSideConfig.getDefault()
+                .withExpirationAfterWriteStrategy(
+                        ExpirationAfterWriteStrategy.basedOnTimeForRefillingBucketUpToMax(Duration.ofMinutes(1))));
+        this.jdbcTemplate = jdbcTemplate;
+        this.foraDaTransacao = new TransactionTemplate(transactionManager);
+        this.foraDaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        this.fracaoNaoSincronizada = fracaoNaoSincronizada;
+        this.intervaloSincronizacao = intervaloSincronizacao;
+        this.proxies = Caffeine.newBuilder()
+                .maximumSize(tamanhoNearCache)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .build();
+    }
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configuracao) {
+        return proxies.get(key, k -> {
+            BucketConfiguration config = configuracao.get();
+            long capacidade = config.getBandwidths()[0].getCapacity();
+            long naoSincronizados = (long) (capacidade * fracaoNaoSincronizada);
+
+            RemoteBucketBuilder<String> builder = builder();
+            // Limites pequenos (ex: 5 logins/hora) sincronizam sempre: qualquer folga local já seria excesso
+            if (naoSincronizados > 0) {
+                builder = builder.withOptimization(Optimizations.delaying(
+                        new DelayParameters(naoSincronizados, intervaloSincronizacao)));
+            }
+            return builder.build(k, () -> config);
+        });
+    }
+
+    @Override
+    protected CompareAndSwapOperation beginCompareAndSwapOperation(String key) {
+        return new CompareAndSwapOperation() {
+            @Override
+            public Optional<byte[]> getStateData(Optional<Long> timeoutNanos) {
+                List<byte[]> estados = foraDaTransacao.execute(status -> jdbcTemplate.query(
+                        "SELECT state FROM rate_limit_bucket WHERE id = ?",
+                        (rs, rowNum) -> rs.getBytes(1), key));
+                return estados.isEmpty() ? Optional.empty() : Optional.of(estados.get(0));
+            }
+
+            @Override
+            public boolean compareAndSwap(byte[] originalData, byte[] newData, RemoteBucketState newState,
+                                          Optional<Long> timeoutNanos) {
+                return Boolean.TRUE.equals(foraDaTransacao.execute(status -> gravar(key, originalData, newData, newState)));
+            }
+        };
+    }
+
+    private boolean gravar(String key, byte[] originalData, byte[] newData, RemoteBucketState newState) {
+        long expiraEm = calcularExpiracao(newState);
+        if (originalData == null) {
+            // Outra instância criou primeiro: nenhuma linha inserida e o Bucket4j relê. Sem depender da
+            // tradução da exceção de chave duplicada, que no SQLite sai como UncategorizedSQLException.
+            return jdbcTemplate.update(
+                    "INSERT INTO rate_limit_bucket (id, state, expires_at) VALUES (?, ?, ?) ON CONFLICT (id) DO NOTHING",
+                    key, newData, expiraEm) == 1;
+        }
+        return jdbcTemplate.update(
+                "UPDATE rate_limit_bucket SET state = ?, expires_at = ? WHERE id = ? AND state = ?",
+                newData, expiraEm, key, originalData) == 1;
+    }
+
+    private long calcularExpiracao(RemoteBucketState estado) {
+        long agora = System.currentTimeMillis();
+        long ttl = getClientSideConfig().getExpirationAfterWriteStrategy()
+                .map(estrategia -> estrategia.calculateTimeToLiveMillis(estado, agora * 1_000_000))
+                .orElse(Duration.ofHours(1).toMillis());
+        return agora + ttl;
+    }
+
+    // O JDBC é bloqueante: as variantes assíncronas (exigidas pela classe base) rodam na thread de
+    // quem chamou e devolvem o future já concluído. Por isso isAsyncModeSupported() é false.
+    @Override
+    protected AsyncCompareAndSwapOperation beginAsyncCompareAndSwapOperation(String key) {
+        CompareAndSwapOperation operacao = beginCompareAndSwapOperation(key);
+        return new AsyncCompareAndSwapOperation() {
+            @Override
+            public CompletableFuture<Optional<byte[]>> getStateData(Optional<Long> timeoutNanos) {
+                return concluido(() -> operacao.getStateData(timeoutNanos));
+            }
+
+            @Override
+            public CompletableFuture<Boolean> compareAndSwap(byte[] originalData, byte[] newData,
+                                                             RemoteBucketState newState, Optional<Long> timeoutNanos) {
+                return concluido(() -> operacao.compareAndSwap(originalData, newData, newState, timeoutNanos));
+            }
+        };
+    }
+
+    @Override
+    protected CompletableFuture<Void> removeAsync(String key) {
+        return concluido(() -> {
+            removeProxy(key);
+            return null;
+        });
+    }
+
+    private static <T> CompletableFuture<T> concluido(Supplier<T> operacao) {
+        try {
+            return CompletableFuture.completedFuture(operacao.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void removeProxy(String key) {
+        proxies.invalidate(key);
+        foraDaTransacao.executeWithoutResult(status -> jdbcTemplate.update("DELETE FROM rate_limit_bucket WHERE id = ?", key));
+    }
+
+    @Override
+    public boolean isAsyncModeSupported() {
+        return false;
+    }
+
+    // A expiração é gravada em expires_at e aplicada por removerExpirados()
+    @Override
+    public boolean isExpireAfterWriteSupported() {
+        return true;
+    }
+
+    // Buckets que já estariam cheios de novo não guardam informação nenhuma
+    @Scheduled(fixedRate = 600000)
+    void removerExpirados() {
+        int removidos = jdbcTemplate.update("DELETE FROM rate_limit_bucket WHERE expires_at < ?", System.currentTimeMillis());
+        if (removidos > 0) {
+            log.info("Limpeza de Rate Limit (jdbc): {} buckets removidos.", removidos);
+        }
+    }
+}
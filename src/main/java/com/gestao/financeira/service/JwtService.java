@@ -1,28 +1,57 @@
 package com.gestao.financeira.service;
 
 import com.gestao.financeira.entity.User;
+import com.gestao.financeira.security.TokenClaims;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class JwtService {
 
+    private static final long CACHE_MAXIMO = 10_000;
+    private static final Duration TTL_TOKEN_INVALIDO = Duration.ofMinutes(10);
+
     private final Key key;
     private final long expiration;
+    // O parser é imutável e thread-safe: monta uma vez só
+    private final JwtParser parser;
+
+    // Tokens já verificados, pelo SHA-256 do token; cada entrada expira junto com o "exp" dele
+    private final Cache<String, TokenClaims> tokensValidos = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAXIMO)
+            .expireAfter(new ExpiraComToken())
+            .build();
+    // Tokens que já falharam: não refaz o parse nem loga de novo
+    private final Cache<String, Boolean> tokensInvalidos = Caffeine.newBuilder()
+            .maximumSize(CACHE_MAXIMO)
+            .expireAfterWrite(TTL_TOKEN_INVALIDO)
+            .build();
 
     public JwtService(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration:3600000}") long expiration
+            @Value("${jwt.expiration:900000}") long expiration
     ) {
 
         if (secret == null || secret.length() < 32) {
@@ -30,44 +59,88 @@ public class JwtService {
         }
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
         this.expiration = expiration;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
     }
 
+    /**
+     * Access token curto com tudo que o filtro precisa (id, email, roles e a versão de segurança),
+     * para autenticar sem ir ao banco. A renovação é feita pelo refresh token.
+     */
     public String generateToken(User user) {
-        long lastPwdChange = user.getLastPasswordChange() != null ?
-                user.getLastPasswordChange().toEpochMilli() :
-                0L;
-
         return Jwts.builder()
                 .setSubject(user.getId().toString())
                 .claim("email", user.getEmail())
                 .claim("roles", user.getRoles())
-                .claim("pwd", lastPwdChange)
+                .claim("ver", user.getSecurityVersion())
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
                 .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public Long extractPwdChange(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verifica a assinatura e a validade do token uma única vez e devolve as claims.
+     * Tokens repetidos saem do cache sem nova verificação.
+     */
+    public TokenClaims parseToken(String token) {
+        String chave = DigestUtils.sha256Hex(token);
 
-        return claims.get("pwd", Long.class);
-    }
+        TokenClaims emCache = tokensValidos.getIfPresent(chave);
+        if (emCache != null && emCache.expiresAt().isAfter(Instant.now())) {
+            return emCache;
+        }
+        if (tokensInvalidos.getIfPresent(chave) != null) {
+            throw new BadCredentialsException("Token inválido ou expirado");
+        }
 
-    public Long extractUserId(String token) {
         try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            return Long.valueOf(claims.getSubject());
-        } catch (JwtException e) {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            TokenClaims tokenClaims = new TokenClaims(
+                    Long.valueOf(claims.getSubject()),
+                    claims.get("email", String.class),
+                    roles(claims),
+                    claims.get("ver", Integer.class),
+                    claims.get("pwd", Long.class),
+                    claims.getExpiration() != null ? claims.getExpiration().toInstant() : Instant.now()
+            );
+            tokensValidos.put(chave, tokenClaims);
+            return tokenClaims;
+        } catch (JwtException | IllegalArgumentException e) {
+            if (tokensInvalidos.asMap().putIfAbsent(chave, Boolean.TRUE) == null) {
+                log.warn("Token ignorado (inválido ou expirado): {}", e.getMessage());
+            }
             throw new BadCredentialsException("Token inválido ou expirado");
         }
     }
-}
\ No newline at end of file
+
+    public long getExpiration() {
+        return expiration;
+    }
+
+    private static Set<String> roles(Claims claims) {
+        Object roles = claims.get("roles");
+        if (!(roles instanceof Collection<?> colecao)) {
+            return Set.of();
+        }
+        return colecao.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static final class ExpiraComToken implements Expiry<String, TokenClaims> {
+        @Override
+        public long expireAfterCreate(String chave, TokenClaims claims, long agora) {
+            return Math.max(0, Duration.between(Instant.now(), claims.expiresAt()).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String chave, TokenClaims claims, long agora, long duracaoAtual) {
+            return expireAfterCreate(chave, claims, agora);
+        }
+
+        @Override
+        public long expireAfterRead(String chave, TokenClaims claims, long agora, long duracaoAtual) {
+            return duracaoAtual;
+        }
+    }
+}
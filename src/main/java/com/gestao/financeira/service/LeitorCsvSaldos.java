@@ -0,0 +1,157 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.SaldoRequestDTO;
+import com.gestao.financeira.exception.RegraDeNegocioException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CSV com cabeçalho usando os nomes dos campos de {@link SaldoRequestDTO}
+ * (nomeConta, valor, moeda, tipo, simbolo, quantidade, taxa, indexador, data, observacao), em qualquer ordem.
+ * Separador ";" ou ",", detectado pelo cabeçalho. Campos entre aspas podem conter o separador.
+ */
+class LeitorCsvSaldos implements LeitorExtrato {
+
+    private static final List<String> COLUNAS_OBRIGATORIAS = List.of("nomeconta", "tipo", "data");
+
+    @Override
+    public void ler(Reader reader, ConsumidorLinha consumidor) throws IOException {
+        LeitorRegistros registros = new LeitorRegistros(reader);
+
+        List<String> cabecalho = registros.proximo();
+        if (cabecalho == null) {
+            throw new RegraDeNegocioException("Arquivo vazio");
+        }
+        Map<String, Integer> colunas = new HashMap<>();
+        for (int i = 0; i < cabecalho.size(); i++) {
+            colunas.put(cabecalho.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String obrigatoria : COLUNAS_OBRIGATORIAS) {
+            if (!colunas.containsKey(obrigatoria)) {
+                throw new RegraDeNegocioException("Cabeçalho do CSV sem a coluna obrigatória: " + obrigatoria);
+            }
+        }
+
+        List<String> campos;
+        while ((campos = registros.proximo()) != null) {
+            int numero = registros.getNumeroLinha();
+            if (campos.size() == 1 && campos.get(0).isBlank()) continue;
+            try {
+                consumidor.aceitar(LinhaExtrato.ok(numero, montar(campos, colunas)));
+            } catch (RuntimeException e) {
+                consumidor.aceitar(LinhaExtrato.comErro(numero, "Valor inválido: " + e.getMessage()));
+            }
+        }
+    }
+
+    private SaldoRequestDTO montar(List<String> campos, Map<String, Integer> colunas) {
+        return new SaldoRequestDTO(
+                LeitorExtrato.texto(campo(campos, colunas, "nomeconta")),
+                LeitorExtrato.numero(campo(campos, colunas, "valor")),
+                LeitorExtrato.texto(campo(campos, colunas, "moeda")),
+                upper(campo(campos, colunas, "tipo")),
+                upper(campo(campos, colunas, "simbolo")),
+                LeitorExtrato.numero(campo(campos, colunas, "quantidade")),
+                LeitorExtrato.numero(campo(campos, colunas, "taxa")),
+                upper(campo(campos, colunas, "indexador")),
+                LeitorExtrato.data(campo(campos, colunas, "data")),
+                LeitorExtrato.texto(campo(campos, colunas, "observacao"))
+        );
+    }
+
+    private String campo(List<String> campos, Map<String, Integer> colunas, String nome) {
+        Integer indice = colunas.get(nome);
+        return indice != null && indice < campos.size() ? campos.get(indice) : null;
+    }
+
+    private String upper(String valor) {
+        String limpo = LeitorExtrato.texto(valor);
+        return limpo != null ? limpo.toUpperCase(Locale.ROOT) : null;
+    }
+
+    /**
+     * Lê um registro CSV por vez direto do Reader (sem guardar o arquivo).
+     */
+    private static final class LeitorRegistros {
+        private final Reader reader;
+        private char separador;
+        private int numeroLinha;
+        private int proximaLinha = 1;
+        private int pendente = -2;
+
+        LeitorRegistros(Reader reader) {
+            this.reader = reader;
+        }
+
+        int getNumeroLinha() {
+            return numeroLinha;
+        }
+
+        List<String> proximo() throws IOException {
+            int c = lerChar();
+            if (c == -1) return null;
+
+            numeroLinha = proximaLinha;
+            List<String> campos = new ArrayList<>();
+            StringBuilder atual = new StringBuilder();
+            boolean entreAspas = false;
+            boolean detectando = separador == 0;
+
+            while (c != -1) {
+                char ch = (char) c;
+                if (entreAspas) {
+                    if (ch == '"') {
+                        int seguinte = lerChar();
+                        if (seguinte == '"') {
+                            atual.append('"');
+                        } else {
+                            entreAspas = false;
+                            c = seguinte;
+                            continue;
+                        }
+                    } else {
+                        if (ch == '\n') proximaLinha++;
+                        atual.append(ch);
+                    }
+                } else if (ch == '"') {
+                    entreAspas = true;
+                } else if (ch == '\n' || ch == '\r') {
+                    if (ch == '\r') {
+                        int seguinte = lerChar();
+                        if (seguinte != '\n') pendente = seguinte;
+                    }
+                    proximaLinha++;
+                    break;
+                } else if (detectando && (ch == ';' || ch == ',')) {
+                    separador = ch;
+                    detectando = false;
+                    campos.add(atual.toString());
+                    atual.setLength(0);
+                } else if (ch == separador && !detectando) {
+                    campos.add(atual.toString());
+                    atual.setLength(0);
+                } else if (ch != '\uFEFF') { // BOM do Excel
+                    atual.append(ch);
+                }
+                c = lerChar();
+            }
+            campos.add(atual.toString());
+            return campos;
+        }
+
+        private int lerChar() throws IOException {
+            if (pendente != -2) {
+                int c = pendente;
+                pendente = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
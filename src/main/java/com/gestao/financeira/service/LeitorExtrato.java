@@ -0,0 +1,86 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.SaldoRequestDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+
+/**
+ * Lê um extrato de corretora em streaming, entregando uma linha por vez sem carregar o arquivo
+ * inteiro em memória.
+ */
+interface LeitorExtrato {
+
+    void ler(Reader reader, ConsumidorLinha consumidor) throws IOException;
+
+    @FunctionalInterface
+    interface ConsumidorLinha {
+        void aceitar(LinhaExtrato linha);
+    }
+
+    /**
+     * Uma linha do extrato: ou o DTO montado (com um aviso quando algum campo não pôde ser
+     * preenchido), ou o erro de leitura daquela linha.
+     */
+    record LinhaExtrato(int numero, SaldoRequestDTO dto, String erro, String aviso) {
+        static LinhaExtrato ok(int numero, SaldoRequestDTO dto) {
+            return new LinhaExtrato(numero, dto, null, null);
+        }
+
+        static LinhaExtrato comAviso(int numero, SaldoRequestDTO dto, String aviso) {
+            return new LinhaExtrato(numero, dto, null, aviso);
+        }
+
+        static LinhaExtrato comErro(int numero, String erro) {
+            return new LinhaExtrato(numero, null, erro, null);
+        }
+    }
+
+    // STRICT: 31/02 é erro, não 29/02
+    DateTimeFormatter DATA_BR = DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT);
+    DateTimeFormatter DATA_OFX = DateTimeFormatter.ofPattern("uuuuMMdd").withResolverStyle(ResolverStyle.STRICT);
+
+    /**
+     * Aceita "1234.56", "1.234,56" e "1234,56". Quando há ponto e vírgula, o último é o decimal.
+     */
+    static Double numero(String texto) {
+        if (texto == null || texto.isBlank()) return null;
+        String limpo = texto.trim().replace(" ", "");
+        int ponto = limpo.lastIndexOf('.');
+        int virgula = limpo.lastIndexOf(',');
+        if (virgula > ponto) {
+            limpo = limpo.replace(".", "").replace(',', '.');
+        } else if (ponto > virgula && virgula >= 0) {
+            limpo = limpo.replace(",", "");
+        }
+        try {
+            return new BigDecimal(limpo).doubleValue();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("número inválido '" + texto.trim() + "'");
+        }
+    }
+
+    static LocalDate data(String texto) {
+        if (texto == null || texto.isBlank()) return null;
+        String limpo = texto.trim();
+        try {
+            if (limpo.contains("/")) return LocalDate.parse(limpo, DATA_BR);
+            // OFX: 20240131 ou 20240131120000[-3:BRT]
+            if (limpo.length() >= 8 && limpo.substring(0, 8).chars().allMatch(Character::isDigit)) {
+                return LocalDate.parse(limpo.substring(0, 8), DATA_OFX);
+            }
+            return LocalDate.parse(limpo);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("data inválida '" + limpo + "'");
+        }
+    }
+
+    static String texto(String valor) {
+        return valor == null || valor.isBlank() ? null : valor.trim();
+    }
+}
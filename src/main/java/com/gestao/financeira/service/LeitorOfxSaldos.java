@@ -0,0 +1,191 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.SaldoRequestDTO;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extrato de investimentos OFX (SGML ou XML). Cada posição de INVPOSLIST vira um saldo:
+ * POSSTOCK → ACAO, POSMF → FUNDO, POSDEBT → RENDA_FIXA, POSOTHER → ACAO.
+ * O símbolo é o UNIQUEID do SECID (corretoras brasileiras usam o ticker).
+ * <p>
+ * O valor de um saldo é o custo, e a posição só traz o valor de mercado (MKTVAL). O custo sai das
+ * compras e vendas de INVTRANLIST, que no OFX vem antes de INVPOSLIST, pelo preço médio. Quando as
+ * transações do extrato não explicam a quantidade da posição (compras anteriores ao período,
+ * desdobramentos, transferências), o valor fica vazio e a linha sai com aviso.
+ */
+class LeitorOfxSaldos implements LeitorExtrato {
+
+    private static final Map<String, String> TIPO_POR_POSICAO = Map.of(
+            "POSSTOCK", "ACAO",
+            "POSMF", "FUNDO",
+            "POSDEBT", "RENDA_FIXA",
+            "POSOTHER", "ACAO"
+    );
+    private static final Set<String> CAMPOS_POSICAO = Set.of("UNIQUEID", "UNITS", "DTPRICEASOF", "MEMO");
+
+    // REINVEST soma cotas pelo TOTAL, como uma compra
+    private static final Set<String> COMPRAS = Set.of("BUYSTOCK", "BUYMF", "BUYDEBT", "BUYOTHER", "REINVEST");
+    private static final Set<String> VENDAS = Set.of("SELLSTOCK", "SELLMF", "SELLDEBT", "SELLOTHER");
+    private static final Set<String> CAMPOS_TRANSACAO = Set.of("UNIQUEID", "UNITS", "UNITPRICE", "TOTAL");
+
+    /**
+     * Quantidade e custo acumulados de um papel pelas transações lidas até aqui.
+     */
+    private static final class Custo {
+        double quantidade;
+        double valor;
+
+        void comprar(double unidades, double total) {
+            quantidade += unidades;
+            valor += total;
+        }
+
+        void vender(double unidades) {
+            // Preço médio: a venda tira custo na proporção das cotas vendidas
+            if (quantidade > 0) {
+                valor -= valor * Math.min(1, unidades / quantidade);
+            }
+            quantidade -= unidades;
+        }
+
+        boolean explica(double unidades) {
+            return Math.abs(quantidade - unidades) <= 1e-6 * Math.max(1, Math.abs(unidades));
+        }
+    }
+
+    private final String nomeContaPadrao;
+
+    LeitorOfxSaldos(String nomeContaPadrao) {
+        this.nomeContaPadrao = nomeContaPadrao;
+    }
+
+    @Override
+    public void ler(Reader reader, ConsumidorLinha consumidor) throws IOException {
+        String moeda = null;
+        String corretora = null;
+        String posicaoAtual = null;
+        String transacaoAtual = null;
+        Map<String, String> campos = new HashMap<>();
+        Map<String, Custo> custos = new HashMap<>();
+        int numero = 0;
+
+        StringBuilder tag = new StringBuilder();
+        StringBuilder texto = new StringBuilder();
+        String ultimaTag = null;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c != '<') {
+                texto.append((char) c);
+                continue;
+            }
+
+            // Fecha o valor da tag folha anterior (no SGML ela não tem fechamento)
+            String valor = texto.toString().trim();
+            texto.setLength(0);
+            if (ultimaTag != null && !valor.isEmpty()) {
+                if ("CURDEF".equals(ultimaTag)) moeda = valor;
+                else if ("BROKERID".equals(ultimaTag)) corretora = valor;
+                else if (posicaoAtual != null && CAMPOS_POSICAO.contains(ultimaTag)) campos.putIfAbsent(ultimaTag, valor);
+                else if (transacaoAtual != null && CAMPOS_TRANSACAO.contains(ultimaTag)) campos.putIfAbsent(ultimaTag, valor);
+            }
+
+            tag.setLength(0);
+            while ((c = reader.read()) != -1 && c != '>') {
+                tag.append((char) c);
+            }
+            String nome = tag.toString().trim().toUpperCase(Locale.ROOT);
+
+            if (nome.startsWith("/")) {
+                ultimaTag = null;
+                if (nome.substring(1).equals(posicaoAtual)) {
+                    numero++;
+                    consumidor.aceitar(montar(numero, posicaoAtual, campos, custos, moeda, corretora));
+                    posicaoAtual = null;
+                    campos.clear();
+                } else if (nome.substring(1).equals(transacaoAtual)) {
+                    acumular(transacaoAtual, campos, custos);
+                    transacaoAtual = null;
+                    campos.clear();
+                }
+            } else {
+                ultimaTag = nome;
+                if (TIPO_POR_POSICAO.containsKey(nome)) {
+                    posicaoAtual = nome;
+                    campos.clear();
+                } else if (COMPRAS.contains(nome) || VENDAS.contains(nome)) {
+                    transacaoAtual = nome;
+                    campos.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Transação malformada não interrompe a leitura: o papel fica sem custo conhecido e a posição
+     * correspondente sai com aviso.
+     */
+    private void acumular(String transacao, Map<String, String> campos, Map<String, Custo> custos) {
+        String papel = LeitorExtrato.texto(campos.get("UNIQUEID"));
+        if (papel == null) return;
+        Custo custo = custos.computeIfAbsent(papel, ignorado -> new Custo());
+        try {
+            double unidades = Math.abs(LeitorExtrato.numero(campos.get("UNITS")));
+            if (VENDAS.contains(transacao)) {
+                custo.vender(unidades);
+                return;
+            }
+            // TOTAL da compra é negativo (saída de caixa) e já inclui corretagem e taxas
+            Double total = LeitorExtrato.numero(campos.get("TOTAL"));
+            custo.comprar(unidades, total != null
+                    ? Math.abs(total)
+                    : unidades * LeitorExtrato.numero(campos.get("UNITPRICE")));
+        } catch (RuntimeException e) {
+            custo.quantidade = Double.NaN;
+        }
+    }
+
+    private LinhaExtrato montar(int numero, String posicao, Map<String, String> campos, Map<String, Custo> custos,
+                                String moeda, String corretora) {
+        try {
+            String tipo = TIPO_POR_POSICAO.get(posicao);
+            boolean rendaFixa = "RENDA_FIXA".equals(tipo);
+            String nomeConta = nomeContaPadrao != null ? nomeContaPadrao : corretora;
+            String papel = LeitorExtrato.texto(campos.get("UNIQUEID"));
+            Double unidades = LeitorExtrato.numero(campos.get("UNITS"));
+
+            Custo custo = papel != null ? custos.get(papel) : null;
+            Double valor = custo != null && unidades != null && custo.explica(unidades)
+                    ? BigDecimal.valueOf(custo.valor).setScale(2, RoundingMode.HALF_UP).doubleValue()
+                    : null;
+            if (valor == null && rendaFixa) {
+                return LinhaExtrato.comErro(numero, "Custo de " + papel + " não encontrado nas transações do extrato");
+            }
+
+            SaldoRequestDTO dto = new SaldoRequestDTO(
+                    nomeConta,
+                    valor,
+                    moeda,
+                    tipo,
+                    rendaFixa ? null : papel,
+                    rendaFixa ? null : unidades,
+                    null,
+                    null,
+                    LeitorExtrato.data(campos.get("DTPRICEASOF")),
+                    LeitorExtrato.texto(campos.get("MEMO"))
+            );
+            return valor != null
+                    ? LinhaExtrato.ok(numero, dto)
+                    : LinhaExtrato.comAviso(numero, dto, "Custo de " + papel + " não encontrado nas transações do extrato; valor ficou vazio");
+        } catch (RuntimeException e) {
+            return LinhaExtrato.comErro(numero, "Valor inválido: " + e.getMessage());
+        }
+    }
+}
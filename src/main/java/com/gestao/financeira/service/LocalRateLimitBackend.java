@@ -0,0 +1,51 @@
+package com.gestao.financeira.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Buckets em memória num cache Caffeine limitado por tamanho. A admissão W-TinyLFU mantém as chaves
+ * frequentes (quem está de fato batendo no limite) e descarta primeiro as que apareceram uma vez só,
+ * então encher o cache com IPs novos não zera o limite de quem está atacando. Chaves ociosas
+ * expiram após {@code idle-timeout}.
+ */
+@Component
+@ConditionalOnProperty(name = "app.rate-limit.backend", havingValue = "local", matchIfMissing = true)
+public class LocalRateLimitBackend implements RateLimitBackend {
+
+    private final Cache<String, Bucket> buckets;
+
+    public LocalRateLimitBackend(@Value("${app.rate-limit.local.max-size:100000}") long tamanhoMaximo,
+                                 @Value("${app.rate-limit.local.idle-timeout:30m}") Duration tempoOcioso) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(tamanhoMaximo)
+                .expireAfterAccess(tempoOcioso)
+                .build();
+    }
+
+    @Override
+    public Bucket resolve(String key, Supplier<BucketConfiguration> configuracao) {
+        // No acerto, getIfPresent evita a lambda de carga, que captura a configuração e seria alocada a
+        // cada chamada. O Caffeine guarda o último acesso num campo long do próprio nó
+        Bucket bucket = buckets.getIfPresent(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        return buckets.get(key, k -> Bucket.builder()
+                .addLimit(configuracao.get().getBandwidths()[0])
+                .build());
+    }
+
+    long tamanhoEstimado() {
+        buckets.cleanUp(); // Aplica evictions pendentes antes de contar
+        return buckets.estimatedSize();
+    }
+}
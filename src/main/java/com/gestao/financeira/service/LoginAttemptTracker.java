@@ -0,0 +1,118 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contabilidade de login em write-behind. Falhas de senha se acumulam em memória e vão para o banco
+ * em lote a cada {@code app.security.login-tracker.flush-interval-ms}; login bem-sucedido de quem já está
+ * zerado não escreve nada. O bloqueio nunca espera o lote: ao atingir {@link User#MAX_FAILED_ATTEMPTS}
+ * (persistidas + pendentes) a conta é bloqueada no banco na hora, na transação do próprio login, que não
+ * faz rollback em {@code BadCredentialsException}. As colunas dos contadores não são atualizáveis pela
+ * entidade, então um {@code save(user)} na mesma requisição não desfaz o bloqueio nem as falhas do lote.
+ * <p>
+ * Com várias instâncias, cada uma só enxerga as próprias pendências: no pior caso uma conta aceita algumas
+ * tentativas a mais antes de bloquear, limitadas pelo intervalo de flush e pela política de rate limit "login".
+ */
+@Component
+@Slf4j
+public class LoginAttemptTracker {
+
+    /**
+     * Escrita pendente de um usuário: {@code zerar} = houve login com sucesso desde o último flush
+     * (o contador do banco deve ser substituído, não somado); {@code falhas} = falhas desde então.
+     */
+    record Pendente(boolean zerar, int falhas) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final Map<Long, Pendente> pendentes = new ConcurrentHashMap<>();
+
+    public LoginAttemptTracker(JdbcTemplate jdbcTemplate,
+                               UserRepository userRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Registra uma senha errada. Devolve {@code true} se esta falha bloqueou a conta. Precisa de transação
+     * aberta, que não pode fazer rollback depois (ver {@code AuthService.login}).
+     */
+    public boolean registrarFalha(User user) {
+        int persistidas = user.getFailedLoginAttempts();
+        Pendente atual = pendentes.compute(user.getId(), (id, pendente) -> pendente == null
+                ? new Pendente(false, 1)
+                : new Pendente(pendente.zerar(), pendente.falhas() + 1));
+
+        int efetivas = atual.zerar() ? atual.falhas() : persistidas + atual.falhas();
+        if (efetivas < User.MAX_FAILED_ATTEMPTS) {
+            return false;
+        }
+
+        // Só quem remove a pendência grava o bloqueio; falhas concorrentes do mesmo usuário caem no próximo lote
+        if (pendentes.remove(user.getId(), atual)) {
+            Instant ate = Instant.now().plus(User.LOCK_DURATION);
+            userRepository.bloquear(user.getId(), efetivas, ate);
+            log.warn("Conta {} bloqueada até {} após {} tentativas de senha.", user.getId(), ate, efetivas);
+        }
+        return true;
+    }
+
+    /**
+     * Registra um login válido; só agenda escrita se houver falhas ou bloqueio a limpar.
+     */
+    public void registrarSucesso(User user) {
+        boolean limpoNoBanco = user.getFailedLoginAttempts() == 0 && user.getLockedUntil() == null;
+        if (limpoNoBanco && !pendentes.containsKey(user.getId())) {
+            return;
+        }
+        pendentes.put(user.getId(), new Pendente(true, 0));
+    }
+
+    @Scheduled(fixedDelayString = "${app.security.login-tracker.flush-interval-ms:5000}")
+    @PreDestroy
+    public void flush() {
+        if (pendentes.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> zerados = new ArrayList<>();
+        List<Object[]> incrementos = new ArrayList<>();
+        for (Long id : List.copyOf(pendentes.keySet())) {
+            Pendente pendente = pendentes.remove(id);
+            if (pendente == null) {
+                continue;
+            }
+            if (pendente.zerar()) {
+                zerados.add(new Object[]{pendente.falhas(), id});
+            } else {
+                incrementos.add(new Object[]{pendente.falhas(), id});
+            }
+        }
+
+        if (!zerados.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE users SET failed_login_attempts = ?, locked_until = NULL WHERE id = ?", zerados);
+        }
+        if (!incrementos.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE users SET failed_login_attempts = failed_login_attempts + ? WHERE id = ?", incrementos);
+        }
+        log.debug("Login tracker: {} contadores zerados, {} incrementados.", zerados.size(), incrementos.size());
+    }
+
+    int pendencias() {
+        return pendentes.size();
+    }
+}
@@ -1,26 +1,28 @@
 package com.gestao.financeira.service;
 
 import com.gestao.financeira.entity.Meta;
-import com.gestao.financeira.entity.User;
 import com.gestao.financeira.repository.MetaRepository;
+import com.gestao.financeira.repository.UserRepository;
 import org.springframework.stereotype.Service;
 
 @Service
 public class MetaService {
 
     private final MetaRepository repository;
+    private final UserRepository userRepository;
 
-    public MetaService(MetaRepository repository) {
+    public MetaService(MetaRepository repository, UserRepository userRepository) {
         this.repository = repository;
+        this.userRepository = userRepository;
     }
 
-    public Meta buscarDoUsuario(User user) {
-        return repository.findByUserId(user.getId())
+    public Meta buscarDoUsuario(Long userId) {
+        return repository.findByUserId(userId)
                 .orElse(null);
     }
 
-    public Meta salvar(Meta meta, User user) {
-        Meta existente = repository.findByUserId(user.getId())
+    public Meta salvar(Meta meta, Long userId) {
+        Meta existente = repository.findByUserId(userId)
                 .orElse(null);
 
         if (existente != null) {
@@ -29,7 +31,7 @@ public class MetaService {
             return repository.save(existente);
         }
 
-        meta.setUser(user);
+        meta.setUser(userRepository.getReferenceById(userId));
         return repository.save(meta);
     }
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.gestao.financeira.service;
+
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+
+import java.util.function.Supplier;
+
+/**
+ * Onde ficam os buckets do rate limit. O padrão é em memória ({@code app.rate-limit.backend=local});
+ * com várias instâncias atrás do load balancer, {@code jdbc} compartilha o estado pelo banco.
+ */
+public interface RateLimitBackend {
+
+    /**
+     * Bucket da chave, criado com a configuração dada se ainda não existir.
+     */
+    Bucket resolve(String key, Supplier<BucketConfiguration> configuracao);
+}
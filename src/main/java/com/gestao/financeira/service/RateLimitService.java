@@ -1,70 +1,63 @@
 package com.gestao.financeira.service;
 
+import com.gestao.financeira.config.RateLimitProperties;
+import com.gestao.financeira.config.RateLimitProperties.Politica;
+import com.gestao.financeira.exception.RateLimitExceededException;
 import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import io.github.bucket4j.ConsumptionProbe;
 import io.github.bucket4j.Refill;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.server.ResponseStatusException;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
-@Slf4j
 public class RateLimitService {
 
-    record BucketWrapper(Bucket bucket, Instant lastAccess) {}
-
-    private final Map<String, BucketWrapper> buckets = new ConcurrentHashMap<>();
-
-    public void consume(String key, int capacity, int refillSeconds) {
-        Bucket bucket = resolveBucket(key, capacity, refillSeconds);
-
-        if (!bucket.tryConsume(1)) {
-            throw new ResponseStatusException(
-                    HttpStatus.TOO_MANY_REQUESTS,
-                    "Muitas tentativas. Tente novamente mais tarde."
-            );
+    public static final String MENSAGEM_LIMITE = "Muitas tentativas. Tente novamente mais tarde.";
+
+    private final RateLimitBackend backend;
+    private final Map<String, Supplier<BucketConfiguration>> configuracoes = new HashMap<>();
+
+    public RateLimitService(RateLimitBackend backend, RateLimitProperties properties) {
+        this.backend = backend;
+        // Configuração e supplier montados uma vez por política, não a cada consumo
+        for (Politica politica : properties.policies()) {
+            BucketConfiguration configuracao = BucketConfiguration.builder()
+                    .addLimit(Bandwidth.classic(
+                            politica.capacity(),
+                            Refill.intervally(politica.capacity(), politica.period())
+                    ))
+                    .build();
+            configuracoes.put(politica.name(), () -> configuracao);
         }
     }
 
-    public Bucket resolveBucket(String key, int capacity, int refillSeconds) {
-        BucketWrapper wrapper = buckets.compute(key, (k, currentWrapper) -> {
-            if (currentWrapper == null) {
-                Bucket newBucket = Bucket.builder()
-                        .addLimit(Bandwidth.classic(
-                                capacity,
-                                Refill.intervally(capacity, Duration.ofSeconds(refillSeconds))
-                        ))
-                        .build();
-                return new BucketWrapper(newBucket, Instant.now());
-            } else {
-                return new BucketWrapper(currentWrapper.bucket(), Instant.now());
-            }
-        });
-
-        return wrapper.bucket();
+    /**
+     * Consome uma ficha da política para a chave, lançando {@link RateLimitExceededException} se esgotou.
+     */
+    public void consume(String politica, String key) {
+        ConsumptionProbe probe = tryConsume(politica, key);
+        if (!probe.isConsumed()) {
+            throw new RateLimitExceededException(MENSAGEM_LIMITE, retryAfterSeconds(probe));
+        }
     }
 
-
-    @Scheduled(fixedRate = 2400000)
-    private void cleanUpExpiredBuckets() {
-        int initialSize = buckets.size();
-
-        buckets.entrySet().removeIf(entry ->
-                entry.getValue().lastAccess().isBefore(Instant.now().minusSeconds(1800))
-        );
-
-        if (buckets.size() > 10000) {
-            log.warn("ALERTA DE MEMÓRIA: Rate Limit excedeu 10k entradas. Resetando tudo para evitar crash.");
-            buckets.clear();
-        } else if (initialSize > 0 && buckets.size() < initialSize) {
-            log.info("Limpeza de Rate Limit: {} buckets removidos.", initialSize - buckets.size());
+    /**
+     * Tenta consumir sem lançar exceção; o probe traz o saldo restante e o tempo até a próxima ficha.
+     */
+    public ConsumptionProbe tryConsume(String politica, String key) {
+        Supplier<BucketConfiguration> configuracao = configuracoes.get(politica);
+        if (configuracao == null) {
+            throw new IllegalStateException("Política de rate limit não configurada: " + politica);
         }
+        return backend.resolve(politica + ":" + key, configuracao).tryConsumeAndReturnRemaining(1);
+    }
+
+    public static long retryAfterSeconds(ConsumptionProbe probe) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill() + 999_999_999L));
     }
-}
\ No newline at end of file
+}
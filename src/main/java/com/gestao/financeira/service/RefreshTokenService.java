@@ -0,0 +1,109 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.entity.RefreshToken;
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.repository.RefreshTokenRepository;
+import com.gestao.financeira.repository.UserRepository;
+import com.gestao.financeira.security.TokenHasher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public record Rotacao(User user, String refreshToken) {}
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final TokenHasher tokenHasher;
+    private final Duration validade;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               TokenHasher tokenHasher,
+                               @Value("${jwt.refresh-expiration:30d}") Duration validade) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.tokenHasher = tokenHasher;
+        this.validade = validade;
+    }
+
+    /**
+     * Abre uma nova família de refresh tokens para o usuário (login).
+     */
+    @Transactional
+    public String emitir(User user) {
+        return emitir(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Troca um refresh token válido por um novo da mesma família. Token reutilizado, expirado ou de
+     * uma sessão revogada (senha trocada, conta banida) derruba a família. As exclusões precisam
+     * ser gravadas mesmo com a exceção, daí o {@code noRollbackFor}.
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public Rotacao rotacionar(String refreshToken) {
+        RefreshToken atual = refreshTokenRepository.findByTokenHash(tokenHasher.hash(refreshToken))
+                .orElseThrow(() -> new BadCredentialsException("Refresh token inválido."));
+
+        if (atual.isUsado() || refreshTokenRepository.marcarUsado(atual.getId()) == 0) {
+            refreshTokenRepository.deleteByFamilia(atual.getFamilia());
+            log.warn("Refresh token reutilizado (usuário {}); sessão encerrada.", atual.getUserId());
+            throw new BadCredentialsException("Sessão encerrada por segurança. Faça login novamente.");
+        }
+        if (atual.getExpiresAt().isBefore(Instant.now())) {
+            refreshTokenRepository.deleteByFamilia(atual.getFamilia());
+            throw new BadCredentialsException("Sessão expirada. Faça login novamente.");
+        }
+
+        User user = userRepository.findById(atual.getUserId()).orElse(null);
+        if (user == null || !user.isEnabled() || user.getSecurityVersion() != atual.getSecurityVersion()) {
+            refreshTokenRepository.deleteByFamilia(atual.getFamilia());
+            throw new BadCredentialsException("Sessão expirada. Faça login novamente.");
+        }
+
+        return new Rotacao(user, emitir(user, atual.getFamilia()));
+    }
+
+    @Transactional
+    public void revogarTodos(Long userId) {
+        refreshTokenRepository.deleteByUserId(userId);
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void removerExpirados() {
+        int removidos = refreshTokenRepository.deleteExpirados(Instant.now());
+        if (removidos > 0) {
+            log.info("Refresh tokens expirados removidos: {}", removidos);
+        }
+    }
+
+    private String emitir(User user, String familia) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String valor = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(tokenHasher.hash(valor));
+        token.setFamilia(familia);
+        token.setUserId(user.getId());
+        token.setSecurityVersion(user.getSecurityVersion());
+        token.setExpiresAt(Instant.now().plus(validade));
+        refreshTokenRepository.save(token);
+        return valor;
+    }
+}
@@ -1,59 +1,151 @@
 package com.gestao.financeira.service;
 
+import com.gestao.financeira.dto.SaldoFiltroDTO;
+import com.gestao.financeira.dto.SaldoPaginaDTO;
 import com.gestao.financeira.dto.SaldoRequestDTO;
+import com.gestao.financeira.dto.SaldoResponseDTO;
 import com.gestao.financeira.entity.Saldo;
 import com.gestao.financeira.entity.User;
+import com.gestao.financeira.event.SaldoAlteradoEvent;
 import com.gestao.financeira.exception.RegraDeNegocioException;
 import com.gestao.financeira.repository.SaldoRepository;
+import com.gestao.financeira.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @Service
 public class SaldoService {
 
+    public static final int LIMITE_PADRAO = 100;
+    public static final int LIMITE_MAXIMO = 500;
+    private static final Set<String> INDEXADORES = Set.of("CDI", "SELIC", "IPCA", "PRE");
+
     private final SaldoRepository repository;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public SaldoService(SaldoRepository repository) {
+    public SaldoService(SaldoRepository repository, UserRepository userRepository,
+                        ApplicationEventPublisher eventPublisher) {
         this.repository = repository;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
-    public List<Saldo> listarDoUsuario(User user) {
-        return repository.findByUserId(user.getId());
+    /**
+     * Todos os saldos do usuário, projetados direto no DTO (somente leitura).
+     */
+    @Transactional(readOnly = true)
+    public List<SaldoResponseDTO> listarDoUsuario(Long userId) {
+        return repository.listarProjetadoPorUsuario(userId);
     }
 
-    public Saldo salvar(SaldoRequestDTO dto, User user) {
-        Saldo saldo = new Saldo();
-        saldo.setUser(user);
-        preencherCamposBasicos(saldo, dto);
-        preencherCamposFinanceiros(saldo, dto);
-        return repository.save(saldo);
+    /**
+     * Uma página da listagem filtrada. O cursor é opaco para o cliente: é o (data, id) do último
+     * item da página anterior, codificado em base64. Sem cursor nem limite, devolve a lista inteira,
+     * como antes da paginação, para não truncar clientes que não conhecem o cursor.
+     */
+    @Transactional(readOnly = true)
+    public SaldoPaginaDTO listarPagina(Long userId, SaldoFiltroDTO filtro, String cursor, Integer limite) {
+        boolean temCursor = cursor != null && !cursor.isBlank();
+        if (!temCursor && limite == null) {
+            return new SaldoPaginaDTO(repository.buscarPagina(userId, filtro, false, null, null, Integer.MAX_VALUE), null);
+        }
+        int tamanho = limite == null ? LIMITE_PADRAO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+
+        LocalDate cursorData = null;
+        Long cursorId = null;
+        if (temCursor) {
+            try {
+                String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 2);
+                cursorData = partes[0].isEmpty() ? null : LocalDate.parse(partes[0]);
+                cursorId = Long.parseLong(partes[1]);
+            } catch (RuntimeException e) {
+                throw new RegraDeNegocioException("Cursor inválido");
+            }
+        }
+
+        // Busca um a mais só para saber se existe próxima página
+        List<SaldoResponseDTO> saldos = repository.buscarPagina(userId, filtro, temCursor, cursorData, cursorId, tamanho + 1);
+        boolean temMais = saldos.size() > tamanho;
+        List<SaldoResponseDTO> pagina = temMais ? saldos.subList(0, tamanho) : saldos;
+
+        String proximoCursor = null;
+        if (temMais) {
+            SaldoResponseDTO ultimo = pagina.get(pagina.size() - 1);
+            String chave = (ultimo.data() != null ? ultimo.data().toString() : "") + "|" + ultimo.id();
+            proximoCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(chave.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new SaldoPaginaDTO(List.copyOf(pagina), proximoCursor);
     }
 
-    public Saldo atualizar(Long id, SaldoRequestDTO dto, User user) {
-        Saldo existente = findSaldoDoUsuario(id, user);
+    public Saldo salvar(SaldoRequestDTO dto, Long userId) {
+        Saldo saldo = montarNovo(dto, userRepository.getReferenceById(userId));
+        Saldo salvo = repository.save(saldo);
+        eventPublisher.publishEvent(new SaldoAlteradoEvent(userId, null, ativoDo(salvo)));
+        return salvo;
+    }
+
+    public Saldo atualizar(Long id, SaldoRequestDTO dto, Long userId) {
+        Saldo existente = findSaldoDoUsuario(id, userId);
+        SaldoAlteradoEvent.Ativo anterior = ativoDo(existente);
         preencherCamposBasicos(existente, dto);
         preencherCamposFinanceiros(existente, dto);
-        return repository.save(existente);
+        Saldo atualizado = repository.save(existente);
+        eventPublisher.publishEvent(new SaldoAlteradoEvent(userId, anterior, ativoDo(atualizado)));
+        return atualizado;
     }
 
-    public void deletar(Long saldoId, User user) {
-        Saldo saldo = findSaldoDoUsuario(saldoId, user);
+    public void deletar(Long saldoId, Long userId) {
+        Saldo saldo = findSaldoDoUsuario(saldoId, userId);
         repository.delete(saldo);
+        eventPublisher.publishEvent(new SaldoAlteradoEvent(userId, ativoDo(saldo), null));
     }
 
-    private Saldo findSaldoDoUsuario(Long id, User user) {
+    private Saldo findSaldoDoUsuario(Long id, Long userId) {
         return repository.findById(id)
-                .filter(s -> s.getUser().getId().equals(user.getId()))
+                .filter(s -> s.getUser().getId().equals(userId))
                 .orElseThrow(() -> new RegraDeNegocioException("Saldo não encontrado"));
     }
 
+    /**
+     * Monta um saldo novo (sem persistir) aplicando as mesmas regras do cadastro. Usado também na importação.
+     */
+    Saldo montarNovo(SaldoRequestDTO dto, User user) {
+        Saldo saldo = new Saldo();
+        saldo.setUser(user);
+        preencherCamposBasicos(saldo, dto);
+        preencherCamposFinanceiros(saldo, dto);
+        return saldo;
+    }
+
+    SaldoAlteradoEvent.Ativo ativoDo(Saldo saldo) {
+        return new SaldoAlteradoEvent.Ativo(saldo.getTipo(), saldo.getSimbolo());
+    }
+
     private boolean isRendaVariavel(SaldoRequestDTO dto) {
         // Se tem símbolo e quantidade, consideramos Renda Variável (Ação, FII, Cripto)
         return dto.simbolo() != null && dto.quantidade() != null;
     }
 
+    private String indexador(String informado) {
+        if (informado == null || informado.isBlank()) return null;
+        String indexador = informado.trim().toUpperCase(Locale.ROOT);
+        if (!INDEXADORES.contains(indexador)) {
+            throw new RegraDeNegocioException("Indexador inválido: " + informado + " (use CDI, SELIC, IPCA ou PRE)");
+        }
+        return indexador;
+    }
+
     private void preencherCamposBasicos(Saldo saldo, SaldoRequestDTO dto) {
         saldo.setNomeConta(dto.nomeConta());
         saldo.setTipo(dto.tipo());
@@ -67,6 +159,7 @@ public class SaldoService {
             saldo.setSimbolo(dto.simbolo());
             saldo.setQuantidade(BigDecimal.valueOf(dto.quantidade()));
             saldo.setTaxa(null);
+            saldo.setIndexador(null);
             if (dto.valor() != null) {
                 saldo.setValor(BigDecimal.valueOf(dto.valor()));
                 saldo.setMoeda(dto.moeda());
@@ -84,6 +177,7 @@ public class SaldoService {
             saldo.setValor(BigDecimal.valueOf(dto.valor()));
             saldo.setMoeda(dto.moeda());
             saldo.setTaxa(dto.taxa() != null ? BigDecimal.valueOf(dto.taxa()) : null);
+            saldo.setIndexador(indexador(dto.indexador()));
             saldo.setSimbolo(null);
             saldo.setQuantidade(null);
         }
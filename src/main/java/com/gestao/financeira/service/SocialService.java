@@ -3,42 +3,125 @@ package com.gestao.financeira.service;
 import com.gestao.financeira.dto.SocialLoginDTO;
 import com.gestao.financeira.dto.SocialProvider;
 import com.gestao.financeira.dto.SocialUserInfo;
+import com.gestao.financeira.exception.CircuitBreakerAbertoException;
 import com.gestao.financeira.exception.RegraDeNegocioException;
+import com.gestao.financeira.externalservice.CircuitBreaker;
+import com.gestao.financeira.externalservice.CircuitBreakers;
+import com.gestao.financeira.security.IdTokenVerifier;
+import com.gestao.financeira.security.JwksKeyCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientException;
 import java.time.Instant;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class SocialService {
 
-    @Value("${app.social.google-client-id}")
-    private String googleClientId;
+    private static final Set<String> EMISSORES_GOOGLE = Set.of("https://accounts.google.com", "accounts.google.com");
 
+    private final String googleClientId;
     private final RestClient restClient;
-
-    public SocialService(RestClient restClient) {
+    private final CircuitBreaker googleBreaker;
+    private final CircuitBreaker microsoftBreaker;
+    private final boolean validacaoLocal;
+    private final IdTokenVerifier googleVerifier;
+    private final IdTokenVerifier microsoftVerifier;
+
+    public SocialService(RestClient restClient,
+                         CircuitBreakers circuitBreakers,
+                         @Value("${app.social.google-client-id}") String googleClientId,
+                         @Value("${app.social.microsoft-client-id:}") String microsoftClientId,
+                         @Value("${app.social.validation-mode:local}") String modoValidacao,
+                         @Value("${app.social.google-jwks-url:https://www.googleapis.com/oauth2/v3/certs}") String googleJwksUrl,
+                         @Value("${app.social.microsoft-jwks-url:https://login.microsoftonline.com/common/discovery/v2.0/keys}") String microsoftJwksUrl) {
         this.restClient = restClient;
+        this.googleBreaker = circuitBreakers.get("google");
+        this.microsoftBreaker = circuitBreakers.get("microsoft-graph");
+        this.googleClientId = googleClientId;
+        this.validacaoLocal = !"remote".equalsIgnoreCase(modoValidacao);
+        this.googleVerifier = new IdTokenVerifier(
+                new JwksKeyCache(restClient, googleJwksUrl, circuitBreakers.get("google-jwks")), googleClientId,
+                claims -> EMISSORES_GOOGLE.contains(claims.getIssuer()));
+        // Sem client id da Microsoft configurado não há aud para conferir: tudo vai pela Graph
+        this.microsoftVerifier = microsoftClientId.isBlank() ? null
+                : new IdTokenVerifier(
+                        new JwksKeyCache(restClient, microsoftJwksUrl, circuitBreakers.get("microsoft-jwks")), microsoftClientId,
+                        claims -> ("https://login.microsoftonline.com/" + claims.get("tid") + "/v2.0").equals(claims.getIssuer()));
     }
 
+    /**
+     * Em modo {@code local} (padrão), ID tokens emitidos para esta aplicação são verificados aqui mesmo,
+     * sem ida ao provedor. Access tokens (botão customizado do Google, Graph da Microsoft) e o modo
+     * {@code remote} continuam validados pela API do provedor.
+     */
     public SocialUserInfo validateToken(SocialLoginDTO dto) {
         return switch (dto.provider()) {
-            case GOOGLE -> validateGoogle(dto.token());
-            case MICROSOFT -> validateMicrosoft(dto.token());
+            case GOOGLE -> usarLocal(googleVerifier, dto.token())
+                    ? validateGoogleIdToken(dto.token())
+                    : validateGoogle(dto.token());
+            case MICROSOFT -> usarLocal(microsoftVerifier, dto.token())
+                    ? validateMicrosoftIdToken(dto.token())
+                    : validateMicrosoft(dto.token());
         };
     }
 
+    private boolean usarLocal(IdTokenVerifier verifier, String token) {
+        return validacaoLocal && verifier != null && verifier.ehIdTokenDestaAplicacao(token);
+    }
+
+    private SocialUserInfo validateGoogleIdToken(String idToken) {
+        Claims claims = verificar(googleVerifier, idToken, "Google");
+
+        String email = claims.get("email", String.class);
+        if (email == null || email.isBlank()) {
+            throw new RegraDeNegocioException("Token do Google sem email.");
+        }
+        Object verified = claims.get("email_verified");
+        if (verified == null || !"true".equals(verified.toString())) {
+            throw new RegraDeNegocioException("Email do Google não verificado.");
+        }
+        return new SocialUserInfo(email, claims.get("name", String.class), SocialProvider.GOOGLE);
+    }
+
+    private SocialUserInfo validateMicrosoftIdToken(String idToken) {
+        Claims claims = verificar(microsoftVerifier, idToken, "Microsoft");
+
+        String email = claims.get("email", String.class);
+        if (email == null || email.isBlank()) {
+            email = claims.get("preferred_username", String.class);
+        }
+        if (email == null || email.isBlank()) {
+            throw new RegraDeNegocioException("Email não encontrado na conta Microsoft");
+        }
+        String name = claims.get("name", String.class);
+        if (name == null || name.isBlank()) {
+            name = email.split("@")[0];
+        }
+        return new SocialUserInfo(email, name, SocialProvider.MICROSOFT);
+    }
+
+    private Claims verificar(IdTokenVerifier verifier, String idToken, String provedor) {
+        try {
+            return verifier.verificar(idToken);
+        } catch (JwtException | IllegalArgumentException | RestClientException e) {
+            throw new RegraDeNegocioException("Token do " + provedor + " inválido ou expirado: " + e.getMessage());
+        }
+    }
+
     /**
      * Valida ACCESS TOKEN do Google (necessário para botão customizado)
      */
     private SocialUserInfo validateGoogle(String token) {
         try {
-            var response = restClient.get()
+            var response = googleBreaker.executar(() -> restClient.get()
                     .uri("https://oauth2.googleapis.com/tokeninfo?access_token=" + token)
                     .retrieve()
-                    .body(Map.class);
+                    .body(Map.class));
 
             if (response == null || response.get("email") == null) {
                 throw new RegraDeNegocioException("Token do Google inválido ou expirado.");
@@ -71,6 +154,9 @@ public class SocialService {
                     (String) response.get("name"),
                     SocialProvider.GOOGLE
             );
+        } catch (CircuitBreakerAbertoException e) {
+            // Provedor fora do ar não é token inválido: vira 503, não 400
+            throw e;
         } catch (Exception e) {
             throw new RegraDeNegocioException("Erro na validação Google: " + e.getMessage());
         }
@@ -86,11 +172,11 @@ public class SocialService {
             // - Se o token é válido
             // - Se não está expirado
             // - Se pertence ao nosso app (implícito no consent)
-            var response = restClient.get()
+            var response = microsoftBreaker.executar(() -> restClient.get()
                     .uri("https://graph.microsoft.com/v1.0/me")
                     .header("Authorization", "Bearer " + accessToken)
                     .retrieve()
-                    .body(Map.class);
+                    .body(Map.class));
 
             if (response == null) {
                 throw new RegraDeNegocioException("Resposta vazia da Microsoft");
@@ -6,7 +6,9 @@ import com.gestao.financeira.entity.User;
 import com.gestao.financeira.exception.RegraDeNegocioException;
 import com.gestao.financeira.repository.SaldoRepository;
 import com.gestao.financeira.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import com.gestao.financeira.security.BoundedPasswordEncoder;
+import com.gestao.financeira.security.PrincipalCache;
+import com.gestao.financeira.security.RevogacaoTokens;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,21 +19,33 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final SaldoRepository saldoRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final PrincipalCache principalCache;
+    private final RevogacaoTokens revogacaoTokens;
+    private final RefreshTokenService refreshTokenService;
 
     public UserService(UserRepository userRepository,
                        SaldoRepository saldoRepository,
-                       PasswordEncoder passwordEncoder) {
+                       BoundedPasswordEncoder passwordEncoder,
+                       PrincipalCache principalCache,
+                       RevogacaoTokens revogacaoTokens,
+                       RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
         this.saldoRepository = saldoRepository;
         this.passwordEncoder = passwordEncoder;
+        this.principalCache = principalCache;
+        this.revogacaoTokens = revogacaoTokens;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @Transactional
     public void banUser(Long userId) {
         User user = findUserByIdOrThrow(userId);
         user.setEnabled(false);
+        user.incrementSecurityVersion();
         userRepository.save(user);
+        principalCache.invalidar(userId);
+        revogacaoTokens.revogar(user);
     }
 
     @Transactional
@@ -41,23 +55,30 @@ public class UserService {
         if (saldoRepository.existsByUserId(userId)) {
             throw new RegraDeNegocioException("ERRO: Usuário possui dados financeiros (Saldos). Use a função BANIR para não perder histórico.");
         }
+        refreshTokenService.revogarTodos(userId);
         userRepository.delete(user);
+        principalCache.invalidar(userId);
+        revogacaoTokens.revogarTudo(userId);
     }
 
     @Transactional
-    public void changePassword(String email, ChangePasswordDTO data) {
-        User user = findUserByEmailOrThrow(email);
+    public void changePassword(Long userId, ChangePasswordDTO data) {
+        User user = findUserByIdOrThrow(userId);
 
         validateCurrentPassword(user, data.currentPassword());
         validatePasswordReuse(user, data.newPassword());
         applyNewPassword(user, data.newPassword());
+        user.incrementSecurityVersion();
 
         userRepository.save(user);
+        principalCache.invalidar(userId);
+        revogacaoTokens.revogar(user);
     }
 
     @Transactional
-    public User updateProfile(String currentEmail, UserUpdateDTO data) {
-        User user = findUserByEmailOrThrow(currentEmail);
+    public User updateProfile(Long userId, UserUpdateDTO data) {
+        User user = findUserByIdOrThrow(userId);
+        int versaoAnterior = user.getSecurityVersion();
         if (data.name() != null && !data.name().isBlank()) {
             user.setName(data.name().trim());
         }
@@ -72,7 +93,13 @@ public class UserService {
             }
         }
 
-        return userRepository.save(user);
+        User atualizado = userRepository.save(user);
+        principalCache.invalidar(userId);
+        // Email novo sobe a securityVersion (ver User#setEmail): tokens com o email antigo deixam de valer
+        if (atualizado.getSecurityVersion() != versaoAnterior) {
+            revogacaoTokens.revogar(atualizado);
+        }
+        return atualizado;
     }
 
     @Transactional(readOnly = true)
@@ -103,10 +130,8 @@ public class UserService {
 
     @Transactional(readOnly = true)
     public void validatePasswordReuse(User user, String newPassword) {
-        for (String oldHash : user.getPasswordHistory()) {
-            if (passwordEncoder.matches(newPassword, oldHash)) {
-                throw new RegraDeNegocioException("Você não pode reutilizar uma senha recente");
-            }
+        if (passwordEncoder.matchesAny(newPassword, user.getPasswordHistory())) {
+            throw new RegraDeNegocioException("Você não pode reutilizar uma senha recente");
         }
     }
 
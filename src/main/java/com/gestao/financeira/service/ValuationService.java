@@ -0,0 +1,220 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.AtivoRendaVariavelDTO;
+import com.gestao.financeira.dto.CotacaoDolarDTO;
+import com.gestao.financeira.dto.CriptoDTO;
+import com.gestao.financeira.dto.SaldoResponseDTO;
+import com.gestao.financeira.dto.ValuationResponseDTO;
+import com.gestao.financeira.dto.ValuationResponseDTO.Posicao;
+import com.gestao.financeira.event.CotacoesAtualizadasEvent;
+import com.gestao.financeira.event.SaldoAlteradoEvent;
+import com.gestao.financeira.externalservice.CambioService;
+import com.gestao.financeira.externalservice.CategoriaRendaVariavel;
+import com.gestao.financeira.externalservice.CriptoService;
+import com.gestao.financeira.externalservice.RendaFixaService;
+import com.gestao.financeira.externalservice.RendaVariavelService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Avalia a carteira do usuário a preço de mercado usando apenas os caches dos serviços externos
+ * (nenhuma chamada upstream). O resultado fica memorizado por usuário até que os saldos dele
+ * ou algum snapshot de cotações mude.
+ * <p>
+ * A versão dos saldos mora no próprio memo (cache limitado), não num mapa à parte: cada alteração
+ * grava no lugar do memo uma marca com a versão nova, tirada de um contador global que só cresce.
+ * Um cálculo só é memorizado se nenhuma marca mais nova apareceu enquanto ele rodava; se a entrada
+ * sumiu do cache no meio (despejo), só memoriza se nenhum saldo de ninguém mudou.
+ */
+@Service
+public class ValuationService {
+
+    private static final BigDecimal CEM = BigDecimal.valueOf(100);
+
+    private static final long MEMOS_MAXIMO = 10_000;
+
+    // resultado nulo = marca de alteração de saldos, ainda sem cálculo
+    record Memo(long geracaoCotacoes, long versaoSaldos, ValuationResponseDTO resultado) {}
+
+    private final SaldoService saldoService;
+    private final RendaVariavelService rendaVariavelService;
+    private final CriptoService criptoService;
+    private final RendaFixaService rendaFixaService;
+    private final CambioService cambioService;
+
+    private final Cache<Long, Memo> memos = Caffeine.newBuilder()
+            .maximumSize(MEMOS_MAXIMO)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .build();
+    private final AtomicLong versaoSaldos = new AtomicLong();
+    private final AtomicLong geracaoCotacoes = new AtomicLong();
+
+    public ValuationService(SaldoService saldoService,
+                            RendaVariavelService rendaVariavelService,
+                            CriptoService criptoService,
+                            RendaFixaService rendaFixaService,
+                            CambioService cambioService) {
+        this.saldoService = saldoService;
+        this.rendaVariavelService = rendaVariavelService;
+        this.criptoService = criptoService;
+        this.rendaFixaService = rendaFixaService;
+        this.cambioService = cambioService;
+    }
+
+    public ValuationResponseDTO avaliarCarteira(Long userId) {
+        // As versões são lidas antes do cálculo: se algo mudar no meio, o memo não é gravado
+        long geracao = geracaoCotacoes.get();
+        Memo memo = memos.getIfPresent(userId);
+        if (memo != null && memo.resultado() != null && memo.geracaoCotacoes() == geracao) {
+            return memo.resultado();
+        }
+        long versao = memo != null ? memo.versaoSaldos() : versaoSaldos.get();
+
+        ValuationResponseDTO resultado = calcular(saldoService.listarDoUsuario(userId));
+        memos.asMap().compute(userId, (id, atual) -> {
+            boolean semAlteracao = atual == null ? versaoSaldos.get() == versao : atual.versaoSaldos() <= versao;
+            return semAlteracao ? new Memo(geracao, versao, resultado) : atual;
+        });
+        return resultado;
+    }
+
+    @EventListener
+    public void onSaldoAlterado(SaldoAlteradoEvent event) {
+        memos.put(event.userId(), new Memo(geracaoCotacoes.get(), versaoSaldos.incrementAndGet(), null));
+    }
+
+    // Os memos antigos ficam no cache, mas a geração não bate mais: são recalculados no próximo acesso
+    @EventListener
+    public void onCotacoesAtualizadas(CotacoesAtualizadasEvent event) {
+        geracaoCotacoes.incrementAndGet();
+    }
+
+    private ValuationResponseDTO calcular(List<SaldoResponseDTO> saldos) {
+        Map<String, BigDecimal> precosRendaVariavel = indexarPrecosRendaVariavel();
+        Map<String, CriptoDTO> criptos = indexarCriptos();
+        BigDecimal dolar = obterDolarEmCache();
+
+        List<Posicao> posicoes = new ArrayList<>(saldos.size());
+        BigDecimal totalInvestido = BigDecimal.ZERO;
+        BigDecimal totalMercado = BigDecimal.ZERO;
+        boolean parcial = false;
+
+        for (SaldoResponseDTO saldo : saldos) {
+            Posicao posicao = avaliarPosicao(saldo, precosRendaVariavel, criptos);
+            posicoes.add(posicao);
+
+            BigDecimal fatorBrl = "USD".equalsIgnoreCase(saldo.moeda()) ? dolar : BigDecimal.ONE;
+            if (fatorBrl == null) {
+                // Sem dólar em cache não há como somar posições em USD: os totais saem marcados como parciais
+                parcial = true;
+                continue;
+            }
+
+            if (posicao.valorInvestido() != null) {
+                totalInvestido = totalInvestido.add(posicao.valorInvestido().multiply(fatorBrl));
+            }
+            if (posicao.valorMercado() != null) {
+                totalMercado = totalMercado.add(posicao.valorMercado().multiply(fatorBrl));
+            }
+        }
+
+        BigDecimal lucro = totalMercado.subtract(totalInvestido);
+        BigDecimal lucroPercent = totalInvestido.signum() > 0
+                ? lucro.multiply(CEM).divide(totalInvestido, 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+
+        return new ValuationResponseDTO(
+                posicoes,
+                totalInvestido.setScale(2, RoundingMode.HALF_UP),
+                totalMercado.setScale(2, RoundingMode.HALF_UP),
+                lucro.setScale(2, RoundingMode.HALF_UP),
+                lucroPercent,
+                dolar,
+                parcial,
+                Instant.now()
+        );
+    }
+
+    private Posicao avaliarPosicao(SaldoResponseDTO saldo,
+                                   Map<String, BigDecimal> precosRendaVariavel,
+                                   Map<String, CriptoDTO> criptos) {
+        String tipo = saldo.tipo() != null ? saldo.tipo().toUpperCase() : "";
+        String simbolo = saldo.simbolo() != null ? saldo.simbolo().trim().toUpperCase() : null;
+        BigDecimal custo = saldo.valor();
+
+        BigDecimal preco = switch (tipo) {
+            case "ACAO", "FII", "ETF" -> simbolo != null ? precosRendaVariavel.get(simbolo) : null;
+            case "CRIPTO" -> precoCripto(criptos.get(simbolo), saldo.moeda());
+            default -> null;
+        };
+
+        if ("RENDA_FIXA".equals(tipo)) {
+            BigDecimal rendimentoDiario = rendaFixaService.estimarRendimentoDiario(custo, saldo.taxa(), saldo.indexador());
+            if (custo == null) {
+                return new Posicao(saldo.id(), saldo.nomeConta(), saldo.tipo(), saldo.simbolo(),
+                        saldo.moeda(), saldo.quantidade(), null, null, null, null, rendimentoDiario, false);
+            }
+            BigDecimal acumulado = rendaFixaService.calcularRendimentoAcumulado(custo, saldo.taxa(), saldo.indexador(), saldo.data());
+            return new Posicao(saldo.id(), saldo.nomeConta(), saldo.tipo(), saldo.simbolo(),
+                    saldo.moeda(), saldo.quantidade(), null, custo, custo.add(acumulado),
+                    acumulado, rendimentoDiario, true);
+        }
+
+        if (preco == null || saldo.quantidade() == null) {
+            return new Posicao(saldo.id(), saldo.nomeConta(), saldo.tipo(), saldo.simbolo(),
+                    saldo.moeda(), saldo.quantidade(), null, custo, custo,
+                    custo != null ? BigDecimal.ZERO : null, null, false);
+        }
+
+        BigDecimal valorMercado = saldo.quantidade().multiply(preco).setScale(2, RoundingMode.HALF_UP);
+        BigDecimal lucro = custo != null ? valorMercado.subtract(custo).setScale(2, RoundingMode.HALF_UP) : null;
+
+        return new Posicao(saldo.id(), saldo.nomeConta(), saldo.tipo(), saldo.simbolo(),
+                saldo.moeda(), saldo.quantidade(), preco, custo, valorMercado, lucro, null, true);
+    }
+
+    private BigDecimal precoCripto(CriptoDTO moeda, String moedaSaldo) {
+        if (moeda == null) return null;
+        double preco = "USD".equalsIgnoreCase(moedaSaldo) ? moeda.cotacaoEmDolar() : moeda.cotacaoEmReais();
+        return BigDecimal.valueOf(preco);
+    }
+
+    private Map<String, BigDecimal> indexarPrecosRendaVariavel() {
+        Map<String, BigDecimal> precos = new HashMap<>();
+        for (CategoriaRendaVariavel categoria : CategoriaRendaVariavel.values()) {
+            for (AtivoRendaVariavelDTO ativo : rendaVariavelService.ativosEmCache(categoria)) {
+                if (ativo.preco() != null) {
+                    precos.put(ativo.ticker().toUpperCase(), BigDecimal.valueOf(ativo.preco()));
+                }
+            }
+        }
+        return precos;
+    }
+
+    private Map<String, CriptoDTO> indexarCriptos() {
+        Map<String, CriptoDTO> porSimbolo = new HashMap<>();
+        for (CriptoDTO moeda : criptoService.criptosEmCache()) {
+            if (moeda.simbolo() != null) {
+                porSimbolo.put(moeda.simbolo().toUpperCase(), moeda);
+            }
+        }
+        return porSimbolo;
+    }
+
+    private BigDecimal obterDolarEmCache() {
+        CotacaoDolarDTO cotacao = cambioService.cotacaoEmCache();
+        return cotacao != null ? BigDecimal.valueOf(cotacao.cotacao()) : null;
+    }
+}
@@ -0,0 +1,136 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.config.CircuitBreakerProperties.Limites;
+import com.gestao.financeira.exception.CircuitBreakerAbertoException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private final RelogioManual relogio = new RelogioManual();
+    private final CircuitBreaker breaker = new CircuitBreaker("teste",
+            new Limites(10, 4, 50, 50, Duration.ofSeconds(2), Duration.ofSeconds(30), 2), relogio);
+
+    @Test
+    void abreQuandoATaxaDeFalhasPassaDoLimiteERecusaSemChamarOProvedor() {
+        sucesso();
+        sucesso();
+        falha();
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.FECHADO);
+        falha();
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.ABERTO);
+
+        boolean[] chamou = {false};
+        assertThatThrownBy(() -> breaker.executar(() -> chamou[0] = true))
+                .isInstanceOf(CircuitBreakerAbertoException.class);
+        assertThat(chamou[0]).isFalse();
+        assertThat(breaker.situacao().recusadas()).isEqualTo(1);
+    }
+
+    @Test
+    void chamadasLentasTambemAbremOCircuito() {
+        for (int i = 0; i < 4; i++) {
+            breaker.executar(() -> {
+                relogio.avancar(Duration.ofSeconds(3));
+                return "ok";
+            });
+        }
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.ABERTO);
+    }
+
+    @Test
+    void erroDoClienteNaoContaComoFalhaDoProvedor() {
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> breaker.executar(() -> {
+                throw HttpClientErrorException.create(HttpStatus.UNAUTHORIZED, "token inválido", null, null, null);
+            })).isInstanceOf(HttpClientErrorException.class);
+        }
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.FECHADO);
+        assertThat(breaker.situacao().falhas()).isZero();
+    }
+
+    @Test
+    void meioAbertoLiberaSoAsChamadasDeTesteEFechaSeElasPassarem() {
+        abrir();
+        relogio.avancar(Duration.ofSeconds(31));
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.MEIO_ABERTO);
+
+        // Duas vagas de teste; a terceira chamada concorrente é recusada
+        breaker.executar(() -> {
+            breaker.executar(() -> {
+                assertThatThrownBy(() -> breaker.executar(() -> "terceira"))
+                        .isInstanceOf(CircuitBreakerAbertoException.class);
+                return "segunda";
+            });
+            return "primeira";
+        });
+
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.FECHADO);
+        assertThat(breaker.situacao().chamadas()).isZero();
+    }
+
+    @Test
+    void falhaNasChamadasDeTesteReabreOCircuito() {
+        abrir();
+        relogio.avancar(Duration.ofSeconds(31));
+
+        sucesso();
+        falha();
+
+        CircuitBreaker.Situacao situacao = breaker.situacao();
+        assertThat(situacao.estado()).isEqualTo(CircuitBreaker.Estado.ABERTO);
+        assertThat(situacao.abertoAte()).isEqualTo(relogio.instant().plusSeconds(30));
+    }
+
+    @Test
+    void errorNaChamadaDeTesteTambemEhRegistrado() {
+        abrir();
+        relogio.avancar(Duration.ofSeconds(31));
+
+        sucesso();
+        assertThatThrownBy(() -> breaker.executar(() -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        // Sem o registro a segunda vaga ficaria presa e o circuito seguiria meio-aberto
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.ABERTO);
+    }
+
+    @Test
+    void monoCanceladoDevolveAVagaDeTeste() {
+        abrir();
+        relogio.avancar(Duration.ofSeconds(31));
+
+        breaker.proteger(Mono.never()).subscribe().dispose();
+        breaker.proteger(Mono.never()).subscribe().dispose();
+
+        assertThat(breaker.proteger(Mono.just("ok")).block()).isEqualTo("ok");
+        assertThat(breaker.proteger(Mono.just("ok")).block()).isEqualTo("ok");
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.FECHADO);
+    }
+
+    private void abrir() {
+        for (int i = 0; i < 4; i++) {
+            falha();
+        }
+        assertThat(breaker.situacao().estado()).isEqualTo(CircuitBreaker.Estado.ABERTO);
+    }
+
+    private void sucesso() {
+        breaker.executar(() -> "ok");
+    }
+
+    private void falha() {
+        assertThatThrownBy(() -> breaker.executar(() -> {
+            throw new ResourceAccessException("connection refused");
+        })).isInstanceOf(ResourceAccessException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.config.MarketDataProperties;
+import com.gestao.financeira.dto.CotacaoDolarDTO;
+import com.gestao.financeira.dto.CriptoDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ciclo de cripto com o câmbio e as fontes de preço no lugar das APIs: o dólar tem prazo como as outras fontes.
+ */
+class CriptoServiceTest {
+
+    private static final Duration PRAZO_CAMBIO = Duration.ofMillis(300);
+
+    private final CambioService cambioService = mock(CambioService.class);
+    private final HistoricoCotacoes historico = mock(HistoricoCotacoes.class);
+    private final MarketDataClient marketDataClient = mock(MarketDataClient.class);
+    private final CountDownLatch liberarCambio = new CountDownLatch(1);
+    private ExecutorService executor;
+    private CriptoService service;
+
+    @BeforeEach
+    void iniciar() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        doReturn(Mono.just(Map.of("data", Map.of("BTC", Map.of(
+                "symbol", "BTC", "name", "Bitcoin", "quote", Map.of("USD", Map.of("price", 100_000.0)))))))
+                .when(marketDataClient).get(eq("cmc"), anyString(), any(), any());
+        service = new CriptoService("http://cmc.local", "chave", "http://coingecko.local",
+                cambioService, evento -> {}, historico, marketDataClient,
+                new MarketDataProperties(Duration.ofSeconds(5), Map.of("hgbrasil", PRAZO_CAMBIO)),
+                executor);
+    }
+
+    @AfterEach
+    void encerrar() {
+        liberarCambio.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void cambioTravadoNaoSeguraOCicloAlemDoPrazo() {
+        when(cambioService.buscarCotacaoAtualizada()).thenAnswer(chamada -> {
+            try {
+                liberarCambio.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // O timeout cancela a chamada em andamento
+                return null;
+            }
+            return new CotacaoDolarDTO(5.0, Instant.now());
+        });
+
+        long inicio = System.nanoTime();
+        StaleWhileRevalidateCache.Leitura<List<CriptoDTO>> leitura = service.lerTop10Criptos();
+        long decorridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        // Falha no prazo do câmbio, muito antes da espera da primeira carga (10 s): sai o fallback, sem histórico
+        assertThat(decorridoMs).isLessThan(3000);
+        assertThat(leitura.temValor()).isFalse();
+        assertThat(leitura.valor()).extracting(CriptoDTO::simbolo).containsExactly("BTC");
+        verify(historico, never()).registrar(anyString(), anyLong(), any(Double.class));
+    }
+
+    @Test
+    void cambioDentroDoPrazoConverteOsPrecos() {
+        when(cambioService.buscarCotacaoAtualizada()).thenReturn(new CotacaoDolarDTO(5.0, Instant.now()));
+
+        StaleWhileRevalidateCache.Leitura<List<CriptoDTO>> leitura = service.lerTop10Criptos();
+
+        assertThat(leitura.temValor()).isTrue();
+        assertThat(leitura.valor()).singleElement().satisfies(btc -> {
+            assertThat(btc.cotacaoEmDolar()).isEqualTo(100_000.0);
+            assertThat(btc.cotacaoEmReais()).isEqualTo(500_000.0);
+        });
+        verify(historico).registrar(eq("BTC"), anyLong(), eq(500_000.0));
+    }
+}
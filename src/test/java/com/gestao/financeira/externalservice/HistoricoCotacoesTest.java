@@ -0,0 +1,97 @@
+package com.gestao.financeira.externalservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Gravação, virada de segmento e leitura do histórico em um diretório temporário, com segmentos
+ * pequenos para a virada acontecer em poucos pontos.
+ */
+class HistoricoCotacoesTest {
+
+    private static final int REGISTROS_POR_SEGMENTO = 4;
+
+    private Path diretorio;
+    private HistoricoCotacoes historico;
+
+    @BeforeEach
+    void abrir() throws IOException {
+        diretorio = Files.createTempDirectory("historico-cotacoes");
+        historico = reabrir();
+    }
+
+    @AfterEach
+    void apagar() throws IOException {
+        historico.fechar();
+        try (var arquivos = Files.walk(diretorio)) {
+            arquivos.sorted((a, b) -> b.compareTo(a)).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    @Test
+    void leSoOsPontosDoSimboloNaJanelaAtravessandoSegmentos() throws IOException {
+        // PETR4 e VALE3 intercalados: 10 pontos viram 3 segmentos de 4 registros
+        for (int i = 1; i <= 5; i++) {
+            historico.registrar("PETR4", i * 1000L, i);
+            historico.registrar("vale3", i * 1000L, i * 10);
+        }
+
+        try (var arquivos = Files.list(diretorio)) {
+            assertThat(arquivos.filter(arquivo -> arquivo.getFileName().toString().startsWith("segmento-"))).hasSize(3);
+        }
+
+        HistoricoCotacoes.Serie serie = historico.ultimos("petr4", 2000, 4000, 100);
+        assertThat(serie.timestamps()).containsExactly(2000, 3000, 4000);
+        assertThat(serie.precos()).containsExactly(2, 3, 4);
+
+        assertThat(historico.ultimos("VALE3", 0, Long.MAX_VALUE, 100).precos()).containsExactly(10, 20, 30, 40, 50);
+        assertThat(historico.ultimos("ITUB4", 0, Long.MAX_VALUE, 100).timestamps()).isEmpty();
+        assertThat(historico.ultimos("PETR4", 6000, 9000, 100).timestamps()).isEmpty();
+    }
+
+    @Test
+    void acimaDoMaximoFicamOsPontosMaisRecentes() {
+        for (int i = 1; i <= 9; i++) {
+            historico.registrar("BTC", i * 1000L, i);
+        }
+
+        assertThat(historico.ultimos("BTC", 0, Long.MAX_VALUE, 3).timestamps()).containsExactly(7000, 8000, 9000);
+        assertThat(historico.ultimos("BTC", 0, 5000, 2).timestamps()).containsExactly(4000, 5000);
+    }
+
+    @Test
+    void timestampForaDeOrdemEhEmpurradoParaOUltimoGravado() {
+        historico.registrar("USD", 5000, 5.1);
+        historico.registrar("USD", 3000, 5.2);
+
+        assertThat(historico.ultimos("USD", 0, Long.MAX_VALUE, 10).timestamps()).containsExactly(5000, 5000);
+    }
+
+    @Test
+    void reabrirMantemOEncadeamentoEContinuaGravando() throws IOException {
+        for (int i = 1; i <= 5; i++) {
+            historico.registrar("PETR4", i * 1000L, i);
+            historico.registrar("VALE3", i * 1000L, i * 10);
+        }
+        historico.fechar();
+
+        historico = reabrir();
+        historico.registrar("PETR4", 6000, 6);
+
+        assertThat(historico.ultimos("PETR4", 0, Long.MAX_VALUE, 100).precos()).containsExactly(1, 2, 3, 4, 5, 6);
+        assertThat(historico.ultimos("VALE3", 3000, Long.MAX_VALUE, 100).precos()).containsExactly(30, 40, 50);
+    }
+
+    private HistoricoCotacoes reabrir() {
+        HistoricoCotacoes aberto = new HistoricoCotacoes(diretorio.toString(), REGISTROS_POR_SEGMENTO);
+        aberto.abrir();
+        return aberto;
+    }
+}
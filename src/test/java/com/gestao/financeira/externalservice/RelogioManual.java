@@ -0,0 +1,31 @@
+package com.gestao.financeira.externalservice;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/** Relógio parado que só anda quando o teste manda. */
+final class RelogioManual extends Clock {
+    private volatile Instant agora = Instant.parse("2026-01-05T12:00:00Z");
+
+    void avancar(Duration duracao) {
+        agora = agora.plus(duracao);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return agora;
+    }
+}
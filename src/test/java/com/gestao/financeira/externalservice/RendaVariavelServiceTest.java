@@ -0,0 +1,158 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.config.CircuitBreakerProperties;
+import com.gestao.financeira.dto.AtivoRendaVariavelDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lotes da Brapi contra um servidor local que faz o papel do provedor.
+ */
+class RendaVariavelServiceTest {
+
+    private record Resposta(int status, String corpo) {}
+
+    private HttpServer servidor;
+    private final List<List<String>> lotesPedidos = new CopyOnWriteArrayList<>();
+    private final List<String> urlsRecebidas = new CopyOnWriteArrayList<>();
+    private volatile Function<List<String>, Resposta> provedor;
+    private Path diretorioHistorico;
+    private HistoricoCotacoes historico;
+    private ExecutorService executor;
+    private RendaVariavelService service;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/quote/", this::responder);
+        servidor.start();
+
+        diretorioHistorico = Files.createTempDirectory("historico-rv");
+        historico = new HistoricoCotacoes(diretorioHistorico.toString());
+        historico.abrir();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        service = new RendaVariavelService(
+                "http://127.0.0.1:" + servidor.getAddress().getPort() + "/quote/{tickers}?token={token}",
+                "token&teste=1#x", 10, 6000, Duration.ofHours(1),
+                RestClient.create(),
+                new CircuitBreakers(new CircuitBreakerProperties(null, null)),
+                evento -> {},
+                new UniversoTickers(null, 100),
+                historico,
+                executor);
+    }
+
+    @AfterEach
+    void encerrar() throws IOException {
+        service.encerrar();
+        servidor.stop(0);
+        executor.shutdownNow();
+        historico.fechar();
+        try (var arquivos = Files.walk(diretorioHistorico)) {
+            arquivos.sorted((a, b) -> b.compareTo(a)).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    @Test
+    void recusaDoPlanoReduzOsLotesEReenviaSemPerderTickers() {
+        provedor = lote -> lote.size() > 2
+                ? new Resposta(400, "{\"error\":true,\"message\":\"Seu plano permite até 2 ativos por requisição\"}")
+                : cotacoes(lote);
+
+        service.lerCategoria(CategoriaRendaVariavel.ACOES);
+
+        assertThat(cotados()).containsExactlyInAnyOrderElementsOf(CategoriaRendaVariavel.ACOES.getVitrine());
+        assertThat(lotesPedidos.get(0)).hasSize(10);
+        assertThat(lotesPedidos).filteredOn(lote -> lote.size() <= 2).hasSize(6);
+    }
+
+    @Test
+    void simboloInexistenteEhIsoladoSemReduzirOsLotes() throws InterruptedException {
+        provedor = lote -> lote.contains("VALE3")
+                ? new Resposta(404, "{\"error\":true,\"message\":\"Não encontramos a ação VALE3\"}")
+                : cotacoes(lote);
+
+        service.lerCategoria(CategoriaRendaVariavel.ACOES);
+
+        assertThat(cotados()).hasSize(9).doesNotContain("VALE3");
+        assertThat(lotesPedidos).contains(List.of("VALE3"));
+
+        // O próximo ciclo volta a pedir a categoria inteira num lote só
+        lotesPedidos.clear();
+        service.updateAllAutomatically();
+        long limite = System.currentTimeMillis() + 5000;
+        while (lotesPedidos.stream().noneMatch(lote -> lote.contains("PETR4")) && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertThat(lotesPedidos).filteredOn(lote -> lote.contains("PETR4")).first().asList().hasSize(10);
+    }
+
+    @Test
+    void tokenRecusadoNaoReduzNemDivideOLote() {
+        provedor = lote -> new Resposta(403, "{\"error\":true,\"message\":\"Token inválido ou expirado\"}");
+
+        service.lerCategoria(CategoriaRendaVariavel.ACOES);
+
+        assertThat(lotesPedidos).hasSize(1);
+        assertThat(cotados()).isEmpty();
+    }
+
+    @Test
+    void parametrosVaoCodificadosNaUrl() {
+        provedor = RendaVariavelServiceTest::cotacoes;
+
+        service.lerCategoria(CategoriaRendaVariavel.ACOES);
+
+        assertThat(urlsRecebidas).containsExactly(
+                "/quote/PETR4,VALE3,ITUB4,BBDC4,BBAS3,WEGE3,RENT3,BPAC11,SUZB3,PRIO3?token=token%26teste%3D1%23x");
+    }
+
+    private List<String> cotados() {
+        return service.ativosEmCache(CategoriaRendaVariavel.ACOES).stream()
+                .map(AtivoRendaVariavelDTO::ticker)
+                .toList();
+    }
+
+    private static Resposta cotacoes(List<String> lote) {
+        String resultados = lote.stream()
+                .map(ticker -> "{\"symbol\":\"" + ticker + "\",\"regularMarketPrice\":10.5}")
+                .collect(Collectors.joining(","));
+        return new Resposta(200, "{\"results\":[" + resultados + "]}");
+    }
+
+    private void responder(HttpExchange troca) throws IOException {
+        urlsRecebidas.add(troca.getRequestURI().getRawPath() + "?" + troca.getRequestURI().getRawQuery());
+        String caminho = troca.getRequestURI().getPath();
+        List<String> lote = List.of(caminho.substring("/quote/".length()).split(","));
+        lotesPedidos.add(lote);
+
+        Resposta resposta = provedor.apply(lote);
+        byte[] corpo = resposta.corpo().getBytes(StandardCharsets.UTF_8);
+        troca.getResponseHeaders().add("Content-Type", "application/json");
+        troca.sendResponseHeaders(resposta.status(), corpo.length);
+        try (OutputStream saida = troca.getResponseBody()) {
+            saida.write(corpo);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.config.RetryProperties;
+import com.gestao.financeira.exception.CircuitBreakerAbertoException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryHelperTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger tentativas = new AtomicInteger();
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void repeteAteDarCertoSemPrenderQuemChamou() {
+        RetryHelper retry = novoRetry(3, 10);
+
+        var futuro = retry.executar("teste", () -> {
+            if (tentativas.incrementAndGet() < 3) throw new ResourceAccessException("timeout");
+            return "ok";
+        });
+
+        // executar() só agenda: volta antes mesmo da primeira tentativa terminar
+        assertThat(futuro.orTimeout(5, TimeUnit.SECONDS).join()).isEqualTo("ok");
+        assertThat(tentativas).hasValue(3);
+    }
+
+    @Test
+    void circuitoAbertoNaoERepetido() {
+        RetryHelper retry = novoRetry(3, 10);
+
+        var futuro = retry.executar("teste", () -> {
+            tentativas.incrementAndGet();
+            throw new CircuitBreakerAbertoException("teste", 30);
+        });
+
+        assertThatThrownBy(futuro::join).hasCauseInstanceOf(CircuitBreakerAbertoException.class);
+        assertThat(tentativas).hasValue(1);
+    }
+
+    @Test
+    void orcamentoEsgotadoLimitaAsRetentativasDoUpstream() {
+        RetryHelper retry = novoRetry(3, 2);
+
+        for (int i = 0; i < 5; i++) {
+            var futuro = retry.executar("teste", () -> {
+                tentativas.incrementAndGet();
+                throw new ResourceAccessException("fora do ar");
+            });
+            assertThatThrownBy(() -> futuro.orTimeout(5, TimeUnit.SECONDS).join())
+                    .isInstanceOf(CompletionException.class);
+        }
+
+        // A primeira operação gasta a reserva inteira (2 retentativas); os 0.2 depositados por cada
+        // operação seguinte não chegam a pagar uma retentativa
+        assertThat(tentativas).hasValue(5 + 2);
+        // Outro upstream tem o próprio orçamento
+        tentativas.set(0);
+        assertThatThrownBy(() -> retry.executar("outro", () -> {
+            tentativas.incrementAndGet();
+            throw new ResourceAccessException("fora do ar");
+        }).orTimeout(5, TimeUnit.SECONDS).join()).isInstanceOf(CompletionException.class);
+        assertThat(tentativas).hasValue(3);
+    }
+
+    @Test
+    void prazoVencidoCancelaAsTentativasRestantes() throws Exception {
+        RetryHelper retry = new RetryHelper(new RetryProperties(5, Duration.ofMillis(300), Duration.ofMillis(300), 0.2, 10), executor);
+
+        var futuro = retry.executar("teste", () -> {
+            tentativas.incrementAndGet();
+            throw new ResourceAccessException("timeout");
+        }).orTimeout(100, TimeUnit.MILLISECONDS);
+
+        assertThatThrownBy(futuro::join).hasCauseInstanceOf(TimeoutException.class);
+        Thread.sleep(800);
+        assertThat(tentativas).hasValue(1);
+    }
+
+    private RetryHelper novoRetry(int maxTentativas, int reserva) {
+        return new RetryHelper(new RetryProperties(maxTentativas, Duration.ofMillis(5), Duration.ofMillis(20), 0.2, reserva), executor);
+    }
+}
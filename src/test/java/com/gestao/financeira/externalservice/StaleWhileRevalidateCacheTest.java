@@ -0,0 +1,231 @@
+package com.gestao.financeira.externalservice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaleWhileRevalidateCacheTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RelogioManual relogio = new RelogioManual();
+    private final AtomicInteger cargas = new AtomicInteger();
+    private final AtomicInteger eventos = new AtomicInteger();
+
+    @AfterEach
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void valorVencidoVoltaNaHoraComUmaUnicaRecargaParaLeiturasConcorrentes() throws Exception {
+        CountDownLatch liberarCarga = new CountDownLatch(1);
+        StaleWhileRevalidateCache<String, Integer> cache = novoCache(chave -> {
+            int n = cargas.incrementAndGet();
+            if (n > 1) aguardar(liberarCarga);
+            return n;
+        });
+        assertThat(cache.get("USD").valor()).isEqualTo(1);
+
+        relogio.avancar(Duration.ofMinutes(61));
+        List<Future<StaleWhileRevalidateCache.Leitura<Integer>>> leituras = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            leituras.add(executor.submit(() -> cache.get("USD")));
+        }
+        for (Future<StaleWhileRevalidateCache.Leitura<Integer>> leitura : leituras) {
+            // Nenhuma leitura espera a recarga, que ainda está presa no provedor
+            StaleWhileRevalidateCache.Leitura<Integer> resultado = leitura.get(1, TimeUnit.SECONDS);
+            assertThat(resultado.valor()).isEqualTo(1);
+            assertThat(resultado.status()).isEqualTo(StaleWhileRevalidateCache.Status.STALE);
+        }
+
+        // Ainda presa: recarregar() devolve a mesma carga em andamento
+        var emAndamento = cache.recarregar("USD");
+        liberarCarga.countDown();
+        emAndamento.get(1, TimeUnit.SECONDS);
+        assertThat(cargas).hasValue(2);
+        assertThat(cache.get("USD").status()).isEqualTo(StaleWhileRevalidateCache.Status.HIT);
+        assertThat(cache.peek("USD")).isEqualTo(2);
+        assertThat(eventos).hasValue(2);
+    }
+
+    @Test
+    void leitoresSimultaneosDuranteARecargaChamamOCarregadorUmaVezSo() throws Exception {
+        CountDownLatch recargaIniciada = new CountDownLatch(1);
+        CountDownLatch liberarCarga = new CountDownLatch(1);
+        StaleWhileRevalidateCache<String, Integer> cache = novoCache(chave -> {
+            cargas.incrementAndGet();
+            recargaIniciada.countDown();
+            aguardar(liberarCarga);
+            return 2;
+        });
+        // Valor inicial publicado direto: a única chamada ao carregador é a recarga do valor vencido
+        cache.atualizar("USD", atual -> 1);
+        relogio.avancar(Duration.ofMinutes(61));
+
+        int leitores = 32;
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<List<StaleWhileRevalidateCache.Leitura<Integer>>>> resultados = new ArrayList<>();
+        for (int i = 0; i < leitores; i++) {
+            resultados.add(executor.submit(() -> {
+                largada.await();
+                List<StaleWhileRevalidateCache.Leitura<Integer>> lidas = new ArrayList<>();
+                lidas.add(cache.get("USD"));
+                // Continua lendo com a recarga comprovadamente presa no carregador
+                assertThat(recargaIniciada.await(5, TimeUnit.SECONDS)).isTrue();
+                for (int j = 0; j < 10; j++) {
+                    lidas.add(cache.get("USD"));
+                }
+                return lidas;
+            }));
+        }
+
+        largada.countDown();
+        for (Future<List<StaleWhileRevalidateCache.Leitura<Integer>>> resultado : resultados) {
+            assertThat(resultado.get(5, TimeUnit.SECONDS)).hasSize(11).allSatisfy(leitura -> {
+                assertThat(leitura.valor()).isEqualTo(1);
+                assertThat(leitura.status()).isEqualTo(StaleWhileRevalidateCache.Status.STALE);
+            });
+        }
+        assertThat(cargas).hasValue(1);
+
+        var emAndamento = cache.recarregar("USD");
+        liberarCarga.countDown();
+        emAndamento.get(5, TimeUnit.SECONDS);
+        assertThat(cache.get("USD").valor()).isEqualTo(2);
+        assertThat(cargas).hasValue(1);
+    }
+
+    @Test
+    void falhaNaRecargaMantemUltimoValorEEsperaAntesDeTentarDeNovo() {
+        // Executor direto: a recarga roda dentro da própria leitura e o teste fica determinístico
+        StaleWhileRevalidateCache<String, Integer> cache = novoCache(Runnable::run, chave -> {
+            if (cargas.incrementAndGet() > 1) throw new IllegalStateException("provedor fora do ar");
+            return 42;
+        });
+        cache.get("USD");
+        relogio.avancar(Duration.ofMinutes(61));
+
+        assertThat(cache.get("USD").valor()).isEqualTo(42);
+        assertThat(cargas).hasValue(2);
+
+        // Dentro do intervalo após falha, leituras vencidas não disparam nova carga
+        for (int i = 0; i < 10; i++) {
+            assertThat(cache.get("USD").valor()).isEqualTo(42);
+        }
+        assertThat(cargas).hasValue(2);
+
+        relogio.avancar(Duration.ofMinutes(2));
+        cache.get("USD");
+        assertThat(cargas).hasValue(3);
+        assertThat(eventos).hasValue(1);
+    }
+
+    @Test
+    void primeiraLeituraSemValorDevolveMissVazioQuandoACargaNaoTerminaATempo() {
+        CountDownLatch nuncaLibera = new CountDownLatch(1);
+        StaleWhileRevalidateCache<String, Integer> cache = novoCache(chave -> {
+            aguardar(nuncaLibera);
+            return 1;
+        });
+
+        StaleWhileRevalidateCache.Leitura<Integer> leitura = cache.get("USD");
+
+        assertThat(leitura.temValor()).isFalse();
+        assertThat(leitura.status()).isEqualTo(StaleWhileRevalidateCache.Status.MISS);
+        nuncaLibera.countDown();
+    }
+
+    @Test
+    void leitoresConcorrentesVeemSnapshotsInteirosEVersoesQueSoAvancam() throws Exception {
+        StaleWhileRevalidateCache<String, Par> cache = new StaleWhileRevalidateCache<>("teste", Duration.ofMinutes(60),
+                Duration.ofMillis(200), Duration.ofMinutes(1), chave -> null, (chave, valor) -> {}, executor, relogio);
+        cache.atualizar("USD", atual -> new Par(0, 0));
+
+        int escritas = 50_000;
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<Long>> leitores = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            leitores.add(executor.submit(() -> {
+                largada.await();
+                long ultimaVersao = 0;
+                long ultimoValor = -1;
+                long leituras = 0;
+                while (ultimoValor < escritas) {
+                    StaleWhileRevalidateCache.Leitura<Par> leitura = cache.get("USD");
+                    Par par = leitura.valor();
+                    assertThat(par.a()).isEqualTo(par.b());
+                    assertThat(leitura.versao()).isGreaterThanOrEqualTo(ultimaVersao);
+                    assertThat(par.a()).isGreaterThanOrEqualTo(ultimoValor);
+                    ultimaVersao = leitura.versao();
+                    ultimoValor = par.a();
+                    leituras++;
+                }
+                return leituras;
+            }));
+        }
+
+        largada.countDown();
+        for (int i = 1; i <= escritas; i++) {
+            cache.atualizar("USD", atual -> new Par(atual.a() + 1, atual.b() + 1));
+        }
+
+        for (Future<Long> leitor : leitores) {
+            assertThat(leitor.get(30, TimeUnit.SECONDS)).isPositive();
+        }
+        assertThat(cache.get("USD").versao()).isEqualTo(escritas + 1L);
+    }
+
+    @Test
+    void leituraDeValorEmCacheNaoAloca() {
+        StaleWhileRevalidateCache<String, Integer> cache = novoCache(chave -> 1);
+        cache.get("USD");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long soma = 0;
+        for (int i = 0; i < 200_000; i++) {
+            soma += cache.get("USD").versao();
+        }
+        long antes = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 1_000_000; i++) {
+            soma += cache.get("USD").versao();
+        }
+        long alocados = threads.getCurrentThreadAllocatedBytes() - antes;
+
+        assertThat(soma).isEqualTo(1_200_000L);
+        // Um objeto por leitura já passaria de 16 MB
+        assertThat(alocados).isLessThan(64 * 1024);
+    }
+
+    private record Par(long a, long b) {}
+
+    private StaleWhileRevalidateCache<String, Integer> novoCache(Function<String, Integer> carregador) {
+        return novoCache(executor, carregador);
+    }
+
+    private StaleWhileRevalidateCache<String, Integer> novoCache(Executor executor, Function<String, Integer> carregador) {
+        return new StaleWhileRevalidateCache<>("teste", Duration.ofMinutes(60), Duration.ofMillis(200),
+                Duration.ofMinutes(1), carregador, (chave, valor) -> eventos.incrementAndGet(), executor, relogio);
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.gestao.financeira.externalservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TamanhoLoteAdaptativoTest {
+
+    private final RelogioManual relogio = new RelogioManual();
+    private final TamanhoLoteAdaptativo tamanho = new TamanhoLoteAdaptativo("teste", 10, Duration.ofHours(1), relogio);
+
+    @Test
+    void recusaReduzPelaMetadeDoLoteSoUmaVezPorTamanho() {
+        assertThat(tamanho.reduzir(10)).isEqualTo(5);
+        // Outro lote de 10 que já estava na fila e foi recusado depois não reduz de novo
+        assertThat(tamanho.reduzir(10)).isEqualTo(5);
+        assertThat(tamanho.reduzir(5)).isEqualTo(2);
+        assertThat(tamanho.reduzir(2)).isEqualTo(1);
+        assertThat(tamanho.reduzir(1)).isEqualTo(1);
+        assertThat(tamanho.atual()).isEqualTo(1);
+    }
+
+    @Test
+    void voltaACrescerDepoisDaJanelaSemRecusa() {
+        tamanho.reduzir(10);
+        tamanho.reduzir(5);
+
+        relogio.avancar(Duration.ofMinutes(59));
+        assertThat(tamanho.atual()).isEqualTo(2);
+
+        relogio.avancar(Duration.ofMinutes(1));
+        assertThat(tamanho.atual()).isEqualTo(4);
+        assertThat(tamanho.atual()).isEqualTo(4);
+
+        relogio.avancar(Duration.ofHours(1));
+        assertThat(tamanho.atual()).isEqualTo(8);
+        relogio.avancar(Duration.ofHours(1));
+        assertThat(tamanho.atual()).isEqualTo(10);
+        relogio.avancar(Duration.ofHours(1));
+        assertThat(tamanho.atual()).isEqualTo(10);
+    }
+
+    @Test
+    void recusaDuranteACrescidaReiniciaAJanela() {
+        tamanho.reduzir(10);
+        relogio.avancar(Duration.ofHours(1));
+        assertThat(tamanho.atual()).isEqualTo(10);
+
+        assertThat(tamanho.reduzir(10)).isEqualTo(5);
+        relogio.avancar(Duration.ofMinutes(30));
+        assertThat(tamanho.atual()).isEqualTo(5);
+    }
+}
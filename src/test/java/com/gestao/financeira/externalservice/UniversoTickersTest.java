@@ -0,0 +1,63 @@
+package com.gestao.financeira.externalservice;
+
+import com.gestao.financeira.event.SaldoAlteradoEvent;
+import com.gestao.financeira.event.SaldoAlteradoEvent.Ativo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UniversoTickersTest {
+
+    private final UniversoTickers universo = new UniversoTickers(null, 2);
+    private final List<String> entradas = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void registrarCallback() {
+        universo.aoEntrarTicker((categoria, ticker) -> entradas.add(ticker));
+    }
+
+    @Test
+    void soTickerDaB3EntraNoUniverso() {
+        comprar("ACAO", " taee11 ");
+        comprar("ACAO", "PETR4&token=x");
+        comprar("ACAO", "../../admin");
+        comprar("ACAO", "ABCD");
+        comprar("FII", "HGLG11#");
+
+        assertThat(entradas).containsExactly("TAEE11");
+        assertThat(universo.tickers(CategoriaRendaVariavel.ACOES)).contains("TAEE11").doesNotContain("PETR4&TOKEN=X");
+        assertThat(UniversoTickers.normalizar("itub4f")).isEqualTo("ITUB4F");
+    }
+
+    @Test
+    void universoTemTetoEVendaLiberaVaga() {
+        comprar("ACAO", "TAEE11");
+        comprar("ACAO", "TAEE11");
+        comprar("FII", "CPTS11");
+        comprar("ETF", "DIVO11");
+
+        assertThat(entradas).containsExactly("TAEE11", "CPTS11");
+        assertThat(universo.tickers(CategoriaRendaVariavel.ETFS)).doesNotContain("DIVO11");
+
+        // Uma das duas posições em TAEE11 vendida: o símbolo continua ocupando a vaga
+        vender("ACAO", "TAEE11");
+        comprar("ETF", "DIVO11");
+        assertThat(entradas).doesNotContain("DIVO11");
+
+        vender("ACAO", "TAEE11");
+        comprar("ETF", "DIVO11");
+        assertThat(entradas).containsExactly("TAEE11", "CPTS11", "DIVO11");
+    }
+
+    private void comprar(String tipo, String simbolo) {
+        universo.onSaldoAlterado(new SaldoAlteradoEvent(1L, null, new Ativo(tipo, simbolo)));
+    }
+
+    private void vender(String tipo, String simbolo) {
+        universo.onSaldoAlterado(new SaldoAlteradoEvent(1L, new Ativo(tipo, simbolo), null));
+    }
+}
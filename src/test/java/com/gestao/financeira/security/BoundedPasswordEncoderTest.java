@@ -0,0 +1,148 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.exception.GlobalExceptionHandler;
+import com.gestao.financeira.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pool limitado do BCrypt com um encoder falso que só termina quando o teste manda.
+ */
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch liberar = new CountDownLatch(1);
+    private final List<String> verificados = new CopyOnWriteArrayList<>();
+    private final AtomicInteger lentosIniciados = new AtomicInteger();
+    private final AtomicInteger interrompidas = new AtomicInteger();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void encerrar() {
+        liberar.countDown();
+        encoder.shutdown();
+    }
+
+    @Test
+    void filaCheiaRecusaNaHoraCom503() throws InterruptedException {
+        encoder = new BoundedPasswordEncoder(new EncoderFalso(false), 1, 1, registry);
+        CountDownLatch ocupado = new CountDownLatch(1);
+        // Um worker preso e a única vaga da fila ocupada
+        encoder.executar(() -> {
+            ocupado.countDown();
+            aguardar(liberar);
+        });
+        assertThat(ocupado.await(5, TimeUnit.SECONDS)).isTrue();
+        encoder.executar(() -> {});
+
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> encoder.encode("Senha@123"))
+                .isInstanceOfSatisfying(ServiceOverloadedException.class, e -> {
+                    ResponseEntity<Map<String, String>> resposta = new GlobalExceptionHandler().handleOverload(e);
+                    assertThat(resposta.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(resposta.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+                });
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(1000);
+        assertThat(registry.get("security.password.rejected").counter().count()).isEqualTo(1.0);
+
+        // Fila esvaziada, o pool volta a aceitar
+        liberar.countDown();
+        long limite = System.currentTimeMillis() + 5000;
+        while (registry.get("security.password.queue.depth").gauge().value() > 0
+                || registry.get("security.password.active").gauge().value() > 0) {
+            assertThat(System.currentTimeMillis()).isLessThan(limite);
+            Thread.sleep(10);
+        }
+        assertThat(encoder.encode("Senha@123")).isEqualTo("hash:Senha@123");
+    }
+
+    @Test
+    void matchesAnyParaNoPrimeiroHashQueBateECancelaOsOutros() throws InterruptedException {
+        encoder = new BoundedPasswordEncoder(new EncoderFalso(true), 2, 16, registry);
+
+        boolean bateu = encoder.matchesAny("Senha@123",
+                List.of("hash:Senha@123", "lento", "lento-2", "lento-3", "lento-4", "lento-5"));
+
+        assertThat(bateu).isTrue();
+        // "lento" já rodava no outro worker; o worker liberado pode ter pegado no máximo mais um da fila
+        // antes do cancelamento. Todos os que começaram são interrompidos e o resto nunca roda.
+        long limite = System.currentTimeMillis() + 5000;
+        while (interrompidas.get() < lentosIniciados.get() && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertThat(lentosIniciados.get()).isBetween(1, 2);
+        assertThat(interrompidas).hasValue(lentosIniciados.get());
+        assertThat(verificados).doesNotContain("lento-3", "lento-4", "lento-5");
+        assertThat(registry.get("security.password.queue.depth").gauge().value()).isZero();
+    }
+
+    @Test
+    void matchesAnySemNenhumHashIgualDevolveFalse() {
+        encoder = new BoundedPasswordEncoder(new EncoderFalso(false), 2, 16, registry);
+
+        assertThat(encoder.matchesAny("Senha@123", List.of("hash:Antiga@1", "hash:Antiga@2"))).isFalse();
+        assertThat(encoder.matchesAny("Senha@123", List.of())).isFalse();
+    }
+
+    /**
+     * "hash:senha" bate com a senha; hashes "lento*" ficam presos até {@code liberar} ou até serem interrompidos.
+     */
+    private final class EncoderFalso implements PasswordEncoder {
+
+        private final CountDownLatch lentoIniciou = new CountDownLatch(1);
+        private final boolean esperarLento;
+
+        EncoderFalso(boolean esperarLento) {
+            this.esperarLento = esperarLento;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            verificados.add(encodedPassword);
+            if (encodedPassword.startsWith("lento")) {
+                lentosIniciados.incrementAndGet();
+                lentoIniciou.countDown();
+                try {
+                    liberar.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrompidas.incrementAndGet();
+                }
+                return false;
+            }
+            // Só responde depois que o hash lento já ocupa o outro worker
+            if (esperarLento) {
+                aguardar(lentoIniciou);
+            }
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    }
+
+    private static boolean aguardar(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.gestao.financeira.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalibracaoBcryptTest {
+
+    @Test
+    void antesDaCalibracaoNadaEsperaEDepoisOsHashesSaoRefeitos() throws Exception {
+        CalibracaoBcrypt calibracao = CalibracaoBcrypt.sobDemanda(10_000, 4, 6);
+        PasswordEncoder encoder = calibracao.encoder();
+
+        String antigo = new BCryptPasswordEncoder(5).encode("senha");
+        assertThat(encoder.matches("senha", antigo)).isTrue();
+        assertThat(encoder.upgradeEncoding(antigo)).isFalse();
+        String provisorio = encoder.encode("senha");
+        assertThat(CalibracaoBcrypt.custoDe(provisorio)).isEqualTo(4);
+        assertThat(calibracao.custoSeCalibrado()).isNaN();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            calibracao.calibrar(executor).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(calibracao.custoSeCalibrado()).isEqualTo(6);
+        String hash = encoder.encode("senha");
+        assertThat(CalibracaoBcrypt.custoDe(hash)).isEqualTo(6);
+        assertThat(encoder.upgradeEncoding(antigo)).isTrue();
+        assertThat(encoder.upgradeEncoding(provisorio)).isTrue();
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+    }
+
+    @Test
+    void custoFixoNaoCalibraNemRecusa() {
+        CalibracaoBcrypt calibracao = CalibracaoBcrypt.fixo(5);
+
+        CompletableFuture<Void> calibrando = calibracao.calibrar(tarefa -> {
+            throw new IllegalStateException("não deveria agendar");
+        });
+
+        assertThat(calibrando).isCompleted();
+        assertThat(calibracao.encoder().upgradeEncoding(new BCryptPasswordEncoder(4).encode("senha"))).isTrue();
+    }
+
+    @Test
+    void executorQueRecusaDeixaOCustoMinimo() {
+        CalibracaoBcrypt calibracao = CalibracaoBcrypt.sobDemanda(10_000, 4, 6);
+
+        CompletableFuture<Void> calibrando = calibracao.calibrar(tarefa -> {
+            throw new IllegalStateException("fila cheia");
+        });
+
+        assertThat(calibrando).isCompletedExceptionally();
+        assertThat(CalibracaoBcrypt.custoDe(calibracao.encoder().encode("senha"))).isEqualTo(4);
+    }
+
+    @Test
+    void orcamentoEstouradoFicaNoCustoMinimo() {
+        CalibracaoBcrypt calibracao = CalibracaoBcrypt.sobDemanda(0, 4, 6);
+
+        assertThat(calibracao.getCusto()).isEqualTo(4);
+    }
+}
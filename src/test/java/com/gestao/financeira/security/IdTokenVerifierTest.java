@@ -0,0 +1,180 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.config.CircuitBreakerProperties;
+import com.gestao.financeira.exception.CircuitBreakerAbertoException;
+import com.gestao.financeira.externalservice.CircuitBreakers;
+import com.sun.net.httpserver.HttpServer;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Verificação local de ID tokens contra um servidor JWKS local que faz o papel do provedor.
+ */
+class IdTokenVerifierTest {
+
+    private static final String CLIENT_ID = "cliente-teste.apps.googleusercontent.com";
+    private static final String EMISSOR = "https://accounts.google.com";
+
+    private HttpServer servidor;
+    private final AtomicInteger buscas = new AtomicInteger();
+    private volatile String jwks;
+    private volatile int status = 200;
+    private KeyPair chave1;
+    private KeyPair chave2;
+    private IdTokenVerifier verifier;
+
+    @BeforeEach
+    void iniciar() throws IOException, NoSuchAlgorithmException {
+        KeyPairGenerator gerador = KeyPairGenerator.getInstance("RSA");
+        gerador.initialize(2048);
+        chave1 = gerador.generateKeyPair();
+        chave2 = gerador.generateKeyPair();
+        jwks = jwks(jwk("k1", chave1));
+
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/certs", troca -> {
+            buscas.incrementAndGet();
+            byte[] corpo = jwks.getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().add("Content-Type", "application/json");
+            troca.getResponseHeaders().add("Cache-Control", "public, max-age=3600, must-revalidate");
+            troca.sendResponseHeaders(status, corpo.length);
+            try (OutputStream saida = troca.getResponseBody()) {
+                saida.write(corpo);
+            }
+        });
+        servidor.start();
+
+        String url = "http://127.0.0.1:" + servidor.getAddress().getPort() + "/certs";
+        JwksKeyCache chaves = new JwksKeyCache(RestClient.create(), url,
+                new CircuitBreakers(new CircuitBreakerProperties(null, null)).get("jwks-teste"), Duration.ZERO);
+        verifier = new IdTokenVerifier(chaves, CLIENT_ID, claims -> EMISSOR.equals(claims.getIssuer()));
+    }
+
+    @AfterEach
+    void parar() {
+        servidor.stop(0);
+    }
+
+    @Test
+    void aceitaTokenValidoEUsaOJwksEmCache() {
+        for (int i = 0; i < 5; i++) {
+            var claims = verifier.verificar(token("k1", chave1, CLIENT_ID, EMISSOR, Instant.now().plusSeconds(600)));
+            assertThat(claims.get("email", String.class)).isEqualTo("ana@example.com");
+        }
+        assertThat(buscas).hasValue(1);
+    }
+
+    @Test
+    void recusaAudienciaDeOutraAplicacao() {
+        String token = token("k1", chave1, "outro-cliente", EMISSOR, Instant.now().plusSeconds(600));
+        assertThatThrownBy(() -> verifier.verificar(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void recusaEmissorDesconhecido() {
+        String token = token("k1", chave1, CLIENT_ID, "https://evil.example.com", Instant.now().plusSeconds(600));
+        assertThatThrownBy(() -> verifier.verificar(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void recusaTokenExpirado() {
+        String token = token("k1", chave1, CLIENT_ID, EMISSOR, Instant.now().minusSeconds(600));
+        assertThatThrownBy(() -> verifier.verificar(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void recusaAssinaturaDeOutraChaveComMesmoKid() {
+        String token = token("k1", chave2, CLIENT_ID, EMISSOR, Instant.now().plusSeconds(600));
+        assertThatThrownBy(() -> verifier.verificar(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void kidNovoForcaNovaBuscaDoJwks() {
+        verifier.verificar(token("k1", chave1, CLIENT_ID, EMISSOR, Instant.now().plusSeconds(600)));
+
+        // Provedor rotaciona as chaves antes do max-age vencer
+        jwks = jwks(jwk("k1", chave1) + "," + jwk("k2", chave2));
+        var claims = verifier.verificar(token("k2", chave2, CLIENT_ID, EMISSOR, Instant.now().plusSeconds(600)));
+
+        assertThat(claims.getAudience()).isEqualTo(CLIENT_ID);
+        assertThat(buscas).hasValue(2);
+    }
+
+    @Test
+    void provedorForaDoArAbreOCircuitoEParaDeBuscar() {
+        status = 503;
+        String token = token("k1", chave1, CLIENT_ID, EMISSOR, Instant.now().plusSeconds(600));
+
+        // Padrão: abre com 10 falhas na janela
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(() -> verifier.verificar(token)).isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThatThrownBy(() -> verifier.verificar(token)).isInstanceOf(CircuitBreakerAbertoException.class);
+        assertThat(buscas).hasValue(10);
+    }
+
+    @Test
+    void soEncaminhaParaVerificacaoLocalIdTokensDestaAplicacao() {
+        Instant expiracao = Instant.now().plusSeconds(600);
+        assertThat(verifier.ehIdTokenDestaAplicacao(token("k1", chave1, CLIENT_ID, EMISSOR, expiracao))).isTrue();
+        // Access token da Graph também é JWT, mas com aud de outra API
+        assertThat(verifier.ehIdTokenDestaAplicacao(
+                token("k1", chave1, "00000003-0000-0000-c000-000000000000", EMISSOR, expiracao))).isFalse();
+        assertThat(verifier.ehIdTokenDestaAplicacao("ya29.a0AfH6SMBopaco")).isFalse();
+    }
+
+    private static String token(String kid, KeyPair chave, String aud, String iss, Instant expiracao) {
+        return Jwts.builder()
+                .setHeaderParam("kid", kid)
+                .setAudience(aud)
+                .setIssuer(iss)
+                .setSubject("1234567890")
+                .setIssuedAt(Date.from(expiracao.minusSeconds(3600)))
+                .setExpiration(Date.from(expiracao))
+                .claim("email", "ana@example.com")
+                .claim("email_verified", true)
+                .signWith(chave.getPrivate(), SignatureAlgorithm.RS256)
+                .compact();
+    }
+
+    private static String jwks(String chaves) {
+        return "{\"keys\":[" + chaves + "]}";
+    }
+
+    private static String jwk(String kid, KeyPair chave) {
+        RSAPublicKey publica = (RSAPublicKey) chave.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return "{\"kty\":\"RSA\",\"alg\":\"RS256\",\"use\":\"sig\",\"kid\":\"" + kid + "\","
+                + "\"n\":\"" + encoder.encodeToString(semSinal(publica.getModulus().toByteArray())) + "\","
+                + "\"e\":\"" + encoder.encodeToString(semSinal(publica.getPublicExponent().toByteArray())) + "\"}";
+    }
+
+    // BigInteger.toByteArray() prefixa um zero quando o bit mais alto está ligado; o JWK não leva esse byte
+    private static byte[] semSinal(byte[] bytes) {
+        return bytes.length > 1 && bytes[0] == 0 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes;
+    }
+}
@@ -0,0 +1,96 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.dto.ChangePasswordDTO;
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.repository.UserRepository;
+import com.gestao.financeira.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Principal em cache contra o banco (SQLite): alterações feitas por fora da aplicação só aparecem
+ * depois do TTL, e as feitas pelo {@link UserService} invalidam o cache na hora.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:principal-cache?mode=memory&cache=shared",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.secret=cHJpbmNpcGFsLWNhY2hlLXByaW5jaXBhbC1jYWNoZS1wcmluY2lwYWwtY2FjaGU=",
+        "app.security.token-secret=cHJpbmNpcGFsLWNhY2hlLXRva2Vucy1wcmluY2lwYWwtY2FjaGUtdG9rZW5z",
+        "app.security.bcrypt.cost=4",
+        "app.social.google-client-id=teste",
+        "app.historico.diretorio=${java.io.tmpdir}/principal-cache-historico",
+        "ai.gemini.key=teste",
+        "api.key=teste",
+        "api.cmc-key=teste",
+        "api.gov-url=http://localhost:0/{codigo}",
+        "api.brapi-url=http://localhost:0/{tickers}?token={token}",
+        "api.brapi-token=teste"
+})
+class PrincipalCacheTest {
+
+    @Autowired
+    private PrincipalCache principalCache;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void banimentoInvalidaOPrincipalEmCache() {
+        User user = novoUsuario("banido@example.com");
+        assertThat(principalCache.buscar(user.getId()).enabled()).isTrue();
+
+        // Alteração direta no banco não passa pelo invalidar(): o cache continua servindo o snapshot
+        jdbcTemplate.update("UPDATE users SET enabled = 0 WHERE id = ?", user.getId());
+        UserPrincipal emCache = principalCache.buscar(user.getId());
+        assertThat(emCache.enabled()).isTrue();
+
+        userService.banUser(user.getId());
+
+        UserPrincipal depois = principalCache.buscar(user.getId());
+        assertThat(depois).isNotSameAs(emCache);
+        assertThat(depois.enabled()).isFalse();
+    }
+
+    @Test
+    void trocaDeSenhaInvalidaOPrincipalEmCache() {
+        User user = novoUsuario("senha@example.com");
+        UserPrincipal antes = principalCache.buscar(user.getId());
+
+        userService.changePassword(user.getId(), new ChangePasswordDTO("Certa@123", "Nova@Senha456"));
+
+        UserPrincipal depois = principalCache.buscar(user.getId());
+        assertThat(depois).isNotSameAs(antes);
+        assertThat(depois.lastPasswordChange()).isNotNull();
+        assertThat(depois.lastPasswordChangeMillis()).isGreaterThan(antes.lastPasswordChangeMillis());
+    }
+
+    @Test
+    void usuarioRemovidoNaoFicaNoCache() {
+        User user = novoUsuario("removido@example.com");
+        assertThat(principalCache.buscar(user.getId())).isNotNull();
+
+        userService.deleteUser(user.getId());
+
+        assertThat(principalCache.buscar(user.getId())).isNull();
+    }
+
+    private User novoUsuario(String email) {
+        User user = new User();
+        user.setName("Principal");
+        user.setEmail(email);
+        user.setPasswordHash(passwordEncoder.encode("Certa@123"));
+        user.addToPasswordHistory(user.getPasswordHash());
+        user.setEmailVerified(true);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,126 @@
+package com.gestao.financeira.security;
+
+import com.gestao.financeira.config.RateLimitProperties;
+import com.gestao.financeira.config.RateLimitProperties.Politica;
+import com.gestao.financeira.config.RateLimitProperties.TipoChave;
+import com.gestao.financeira.service.LocalRateLimitBackend;
+import com.gestao.financeira.service.RateLimitService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Resolução das políticas por rota e cabeçalhos RateLimit-* / Retry-After, com o backend local.
+ */
+class RateLimitFilterTest {
+
+    private static final RateLimitProperties POLITICAS = new RateLimitProperties(List.of(
+            new Politica("auth-ip", List.of("/api/auth/login"), List.of(), TipoChave.IP, 2, Duration.ofSeconds(60)),
+            new Politica("api-user", List.of("/api/**"), List.of(), TipoChave.USER, 300, Duration.ofSeconds(60)),
+            new Politica("mercado-user", List.of("/api/cambio", "/api/rv/**"), List.of(), TipoChave.USER, 60, Duration.ofSeconds(60)),
+            new Politica("importacao-user", List.of("/api/saldos/importar"), List.of("post"), TipoChave.USER, 10, Duration.ofHours(1)),
+            new Politica("login", List.of(), List.of(), TipoChave.IP, 5, Duration.ofHours(1))));
+
+    private final RateLimitFilter filter = new RateLimitFilter(
+            new RateLimitService(new LocalRateLimitBackend(1000, Duration.ofMinutes(30)), POLITICAS), POLITICAS);
+
+    @AfterEach
+    void limparContexto() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cabecalhosVemDaPoliticaMaisApertadaEntreAsQueCasam() throws Exception {
+        autenticar(7L);
+
+        // /api/rv/** casa api-user (300) e mercado-user (60): vale a de menor saldo
+        MockHttpServletResponse mercado = executar("GET", "/api/rv/acoes");
+        assertThat(mercado.getHeader("RateLimit-Limit")).isEqualTo("60");
+        assertThat(mercado.getHeader("RateLimit-Remaining")).isEqualTo("59");
+        assertThat(Long.parseLong(mercado.getHeader("RateLimit-Reset"))).isBetween(1L, 60L);
+
+        // Só api-user, que já contou a requisição anterior
+        MockHttpServletResponse saldos = executar("GET", "/api/saldos");
+        assertThat(saldos.getHeader("RateLimit-Limit")).isEqualTo("300");
+        assertThat(saldos.getHeader("RateLimit-Remaining")).isEqualTo("298");
+    }
+
+    @Test
+    void politicaComMetodosSoLimitaOsMetodosListados() throws Exception {
+        autenticar(8L);
+
+        assertThat(executar("GET", "/api/saldos/importar").getHeader("RateLimit-Limit")).isEqualTo("300");
+
+        MockHttpServletResponse post = executar("POST", "/api/saldos/importar");
+        assertThat(post.getHeader("RateLimit-Limit")).isEqualTo("10");
+        assertThat(post.getHeader("RateLimit-Remaining")).isEqualTo("9");
+    }
+
+    @Test
+    void politicasPorUsuarioNaoContamAnonimosNemRotasForaDosPadroes() throws Exception {
+        MockHttpServletResponse anonimo = executar("GET", "/api/cambio");
+        assertThat(anonimo.getHeaderNames()).doesNotContain("RateLimit-Limit");
+        assertThat(anonimo.getStatus()).isEqualTo(200);
+
+        autenticar(9L);
+        assertThat(executar("GET", "/public/health").getHeaderNames()).doesNotContain("RateLimit-Limit");
+    }
+
+    @Test
+    void requisicaoAlemDoLimiteRecebe429ComRetryAfterENaoSegueACadeia() throws Exception {
+        assertThat(executar("POST", "/api/auth/login", "203.0.113.5").getHeader("RateLimit-Remaining")).isEqualTo("1");
+        assertThat(executar("POST", "/api/auth/login", "203.0.113.5").getHeader("RateLimit-Remaining")).isEqualTo("0");
+
+        MockHttpServletRequest request = requisicao("POST", "/api/auth/login", "203.0.113.5");
+        MockHttpServletResponse recusada = new MockHttpServletResponse();
+        MockFilterChain cadeia = new MockFilterChain();
+        filter.doFilter(request, recusada, cadeia);
+
+        assertThat(recusada.getStatus()).isEqualTo(429);
+        assertThat(cadeia.getRequest()).isNull();
+        assertThat(Long.parseLong(recusada.getHeader(HttpHeaders.RETRY_AFTER))).isBetween(1L, 60L);
+        assertThat(recusada.getHeader("RateLimit-Limit")).isEqualTo("2");
+        assertThat(recusada.getHeader("RateLimit-Remaining")).isEqualTo("0");
+        assertThat(recusada.getContentAsString()).contains(RateLimitService.MENSAGEM_LIMITE);
+
+        // O bucket é por IP do cliente (primeiro do X-Forwarded-For): outro IP segue liberado
+        assertThat(executar("POST", "/api/auth/login", "198.51.100.7").getStatus()).isEqualTo(200);
+    }
+
+    private MockHttpServletResponse executar(String metodo, String caminho) throws Exception {
+        return executar(metodo, caminho, "192.0.2.1");
+    }
+
+    private MockHttpServletResponse executar(String metodo, String caminho, String ip) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain cadeia = new MockFilterChain();
+        filter.doFilter(requisicao(metodo, caminho, ip), response, cadeia);
+        if (response.getStatus() != 429) {
+            assertThat(cadeia.getRequest()).isNotNull();
+        }
+        return response;
+    }
+
+    private static MockHttpServletRequest requisicao(String metodo, String caminho, String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest(metodo, caminho);
+        request.addHeader("X-Forwarded-For", ip + ", 10.0.0.1");
+        return request;
+    }
+
+    private static void autenticar(Long userId) {
+        UserPrincipal principal = new UserPrincipal(userId, "user" + userId + "@example.com", Set.of("ROLE_USER"), true, null);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+}
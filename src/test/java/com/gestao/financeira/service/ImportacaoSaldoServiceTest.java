@@ -0,0 +1,119 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.ImportacaoResultadoDTO;
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.event.SaldoAlteradoEvent;
+import com.gestao.financeira.repository.SaldoRepository;
+import com.gestao.financeira.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Importação de ponta a ponta no SQLite: gravação em lotes de 500 e o teto de erros reportados.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:importacao-saldos?mode=memory&cache=shared",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.secret=aW1wb3J0YWNhby1zYWxkb3MtaW1wb3J0YWNhby1zYWxkb3MtaW1wb3J0YWNhby10ZXN0ZQ==",
+        "app.security.token-secret=aW1wb3J0YWNhby1zYWxkb3MtdG9rZW5zLWltcG9ydGFjYW8tdG9rZW5z",
+        "app.social.google-client-id=teste",
+        "app.historico.diretorio=${java.io.tmpdir}/importacao-saldos-historico",
+        "ai.gemini.key=teste",
+        "api.key=teste",
+        "api.cmc-key=teste",
+        "api.gov-url=http://localhost:0/{codigo}",
+        "api.brapi-url=http://localhost:0/{tickers}?token={token}",
+        "api.brapi-token=teste"
+})
+class ImportacaoSaldoServiceTest {
+
+    /**
+     * Os eventos de um lote saem depois do commit dele; a contagem vista em cada evento mostra
+     * quantos saldos já estavam gravados quando o lote terminou.
+     */
+    @TestConfiguration
+    static class ContagemPorLote {
+        static final Set<Long> gravados = new ConcurrentSkipListSet<>();
+
+        private final SaldoRepository saldoRepository;
+
+        ContagemPorLote(SaldoRepository saldoRepository) {
+            this.saldoRepository = saldoRepository;
+        }
+
+        @EventListener
+        void onSaldoAlterado(SaldoAlteradoEvent evento) {
+            gravados.add(saldoRepository.count());
+        }
+    }
+
+    @Autowired
+    private ImportacaoSaldoService importacaoSaldoService;
+    @Autowired
+    private SaldoRepository saldoRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void gravaEmLotesDe500() {
+        User user = novoUsuario("lotes@example.com");
+        long antes = saldoRepository.count();
+        ContagemPorLote.gravados.clear();
+
+        StringBuilder csv = new StringBuilder("nomeConta;tipo;valor;data\n");
+        for (int i = 0; i < 1201; i++) {
+            csv.append("Banco;RENDA_FIXA;").append(100 + i).append(";2024-01-01\n");
+        }
+
+        ImportacaoResultadoDTO resultado = importar(csv.toString(), user);
+
+        assertThat(resultado.importados()).isEqualTo(1201);
+        assertThat(resultado.linhasComErro()).isZero();
+        assertThat(ContagemPorLote.gravados).containsExactly(antes + 500, antes + 1000, antes + 1201);
+    }
+
+    @Test
+    void errosAlemDoTetoContamMasNaoSaoListados() {
+        User user = novoUsuario("erros@example.com");
+
+        StringBuilder csv = new StringBuilder("nomeConta;tipo;valor;data\n");
+        for (int i = 0; i < 250; i++) {
+            csv.append("Banco;RENDA_FIXA;").append(i % 2 == 0 ? "x" : "").append(";2024-01-01\n");
+        }
+        csv.append("Banco;RENDA_FIXA;10;2024-01-01\n");
+
+        ImportacaoResultadoDTO resultado = importar(csv.toString(), user);
+
+        assertThat(resultado.linhasLidas()).isEqualTo(251);
+        assertThat(resultado.importados()).isEqualTo(1);
+        assertThat(resultado.linhasComErro()).isEqualTo(250);
+        assertThat(resultado.erros()).hasSize(200);
+        assertThat(resultado.erros().get(0).linha()).isEqualTo(2);
+        assertThat(resultado.erros().get(0).mensagem()).contains("número inválido");
+        assertThat(resultado.erros().get(1).mensagem()).isEqualTo("Valor é obrigatório para renda fixa");
+    }
+
+    private ImportacaoResultadoDTO importar(String csv, User user) {
+        MockMultipartFile arquivo = new MockMultipartFile("arquivo", "extrato.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        return importacaoSaldoService.importar(arquivo, user.getId(), null);
+    }
+
+    private User novoUsuario(String email) {
+        User novo = new User();
+        novo.setName("Importação");
+        novo.setEmail(email);
+        novo.setPasswordHash("x");
+        return userRepository.save(novo);
+    }
+}
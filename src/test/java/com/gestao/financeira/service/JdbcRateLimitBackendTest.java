@@ -0,0 +1,118 @@
+package com.gestao.financeira.service;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Backend JDBC contra um SQLite em arquivo, com a mesma tabela que o ddl-auto cria a partir de
+ * {@code RateLimitBucket}. Duas instâncias do backend fazem o papel de duas réplicas.
+ */
+class JdbcRateLimitBackendTest {
+
+    private static final BucketConfiguration CINCO_POR_HORA = BucketConfiguration.builder()
+            .addLimit(Bandwidth.builder().capacity(5).refillIntervally(5, Duration.ofHours(1)).build())
+            .build();
+
+    private Path arquivo;
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void criarBanco() throws Exception {
+        arquivo = Files.createTempFile("rate-limit", ".db");
+        SQLiteDataSource dataSource = new SQLiteDataSource();
+        dataSource.setUrl("jdbc:sqlite:" + arquivo);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate.execute("CREATE TABLE rate_limit_bucket (id VARCHAR(255) PRIMARY KEY, "
+                + "state BLOB NOT NULL, expires_at BIGINT NOT NULL)");
+    }
+
+    @AfterEach
+    void apagarBanco() throws Exception {
+        Files.deleteIfExists(arquivo);
+    }
+
+    @Test
+    void fichaConsumidaNaoVoltaComORollbackDeQuemConsumiu() {
+        JdbcRateLimitBackend backend = novoBackend();
+        TransactionTemplate login = new TransactionTemplate(transactionManager);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> login.executeWithoutResult(status -> {
+                assertThat(backend.resolve("login:a@b.com", () -> CINCO_POR_HORA).tryConsume(1)).isTrue();
+                throw new IllegalStateException("senha errada");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+
+        // Outra réplica, sem near-cache: lê o que ficou no banco
+        assertThat(novoBackend().resolve("login:a@b.com", () -> CINCO_POR_HORA).getAvailableTokens()).isEqualTo(2);
+    }
+
+    @Test
+    void replicasDividemOMesmoLimiteMesmoConcorrendo() throws Exception {
+        Bucket replicaA = novoBackend().resolve("login:a@b.com", () -> CINCO_POR_HORA);
+        Bucket replicaB = novoBackend().resolve("login:a@b.com", () -> CINCO_POR_HORA);
+        AtomicInteger consumidas = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Callable<Void> tentar = () -> {
+                for (int i = 0; i < 5; i++) {
+                    if ((i % 2 == 0 ? replicaA : replicaB).tryConsume(1)) {
+                        consumidas.incrementAndGet();
+                    }
+                }
+                return null;
+            };
+            for (Future<Void> futuro : executor.invokeAll(List.of(tentar, tentar, tentar, tentar))) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(consumidas.get()).isEqualTo(5);
+        assertThat(replicaA.tryConsume(1)).isFalse();
+    }
+
+    @Test
+    void variantesAssincronasLeemEApagamOMesmoEstadoJaConcluidas() {
+        JdbcRateLimitBackend backend = novoBackend();
+        assertThat(backend.resolve("login:a@b.com", () -> CINCO_POR_HORA).tryConsume(1)).isTrue();
+
+        var leitura = backend.beginAsyncCompareAndSwapOperation("login:a@b.com").getStateData(Optional.empty());
+        assertThat(leitura).isCompleted();
+        assertThat(leitura.join()).isPresent();
+
+        assertThat(backend.removeAsync("login:a@b.com")).isCompleted();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rate_limit_bucket", Integer.class)).isZero();
+        assertThat(backend.isAsyncModeSupported()).isFalse();
+    }
+
+    private JdbcRateLimitBackend novoBackend() {
+        return new JdbcRateLimitBackend(jdbcTemplate, transactionManager, 0.05, Duration.ofMillis(250), 100);
+    }
+}
@@ -0,0 +1,91 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.security.TokenClaims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Caches de tokens verificados e recusados do {@link JwtService}, com tokens assinados pelo próprio teste.
+ */
+class JwtServiceTest {
+
+    private static final String SEGREDO = "jwt-service-teste-jwt-service-teste-jwt-service";
+
+    private final JwtService jwtService = new JwtService(SEGREDO, 900_000);
+
+    @Test
+    void tokenValidoEhVerificadoUmaVezSo() {
+        String token = token(Instant.now().plus(Duration.ofMinutes(15)), null);
+
+        TokenClaims primeira = jwtService.parseToken(token);
+
+        assertThat(primeira.userId()).isEqualTo(42L);
+        assertThat(primeira.email()).isEqualTo("jwt@example.com");
+        assertThat(primeira.roles()).containsExactly("ROLE_USER");
+        // Segunda leitura sai do cache: as mesmas claims, sem novo parse
+        assertThat(jwtService.parseToken(token)).isSameAs(primeira);
+    }
+
+    @Test
+    void tokenEmCacheDeixaDeValerNoExpDele() throws InterruptedException {
+        Instant exp = Instant.now().plusSeconds(2);
+        String token = token(exp, null);
+        assertThat(jwtService.parseToken(token).expiresAt()).isBeforeOrEqualTo(exp);
+
+        Thread.sleep(Duration.between(Instant.now(), exp).toMillis() + 1100);
+
+        assertThatThrownBy(() -> jwtService.parseToken(token)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void tokenRecusadoFicaRecusadoSemNovaVerificacao() throws InterruptedException {
+        // Ainda não vale (nbf no futuro): a primeira verificação recusa
+        Instant valeAPartirDe = Instant.now().plusSeconds(1);
+        String token = token(Instant.now().plus(Duration.ofMinutes(15)), valeAPartirDe);
+        assertThatThrownBy(() -> jwtService.parseToken(token)).isInstanceOf(BadCredentialsException.class);
+
+        Thread.sleep(Duration.between(Instant.now(), valeAPartirDe).toMillis() + 1100);
+
+        // Agora o token passaria na verificação (outra instância aceita), mas a recusa está em cache
+        assertThat(new JwtService(SEGREDO, 900_000).parseToken(token).userId()).isEqualTo(42L);
+        assertThatThrownBy(() -> jwtService.parseToken(token)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void assinaturaAdulteradaEhRecusada() {
+        String token = token(Instant.now().plus(Duration.ofMinutes(15)), null);
+        String adulterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtService.parseToken(adulterado)).isInstanceOf(BadCredentialsException.class);
+        assertThatThrownBy(() -> jwtService.parseToken(adulterado)).isInstanceOf(BadCredentialsException.class);
+        // O token original continua valendo: a recusa é por token, não por usuário
+        assertThat(jwtService.parseToken(token).userId()).isEqualTo(42L);
+    }
+
+    private static String token(Instant expiracao, Instant valeAPartirDe) {
+        var builder = Jwts.builder()
+                .setSubject("42")
+                .claim("email", "jwt@example.com")
+                .claim("roles", List.of("ROLE_USER"))
+                .claim("ver", 0)
+                .setIssuedAt(new Date())
+                .setExpiration(Date.from(expiracao));
+        if (valeAPartirDe != null) {
+            builder.setNotBefore(Date.from(valeAPartirDe));
+        }
+        return builder.signWith(Keys.hmacShaKeyFor(SEGREDO.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
@@ -0,0 +1,74 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.exception.RegraDeNegocioException;
+import com.gestao.financeira.service.LeitorExtrato.LinhaExtrato;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LeitorCsvSaldosTest {
+
+    @Test
+    void leCabecalhoEmQualquerOrdemComAspasEDecimaisBrasileiros() throws IOException {
+        List<LinhaExtrato> linhas = ler("""
+                ﻿tipo;nomeConta;simbolo;quantidade;valor;data;observacao
+                acao;Corretora;petr4;100;"3.050,25";31/01/2024;"compra; lote 1"
+                RENDA_FIXA;Banco;;;1000.5;2024-02-01;
+                """);
+
+        assertThat(linhas).hasSize(2).allMatch(linha -> linha.erro() == null);
+        var acao = linhas.get(0).dto();
+        assertThat(acao.tipo()).isEqualTo("ACAO");
+        assertThat(acao.simbolo()).isEqualTo("PETR4");
+        assertThat(acao.valor()).isEqualTo(3050.25);
+        assertThat(acao.data()).isEqualTo(LocalDate.of(2024, 1, 31));
+        assertThat(acao.observacao()).isEqualTo("compra; lote 1");
+
+        var rendaFixa = linhas.get(1).dto();
+        assertThat(rendaFixa.simbolo()).isNull();
+        assertThat(rendaFixa.valor()).isEqualTo(1000.5);
+        assertThat(linhas.get(1).numero()).isEqualTo(3);
+    }
+
+    @Test
+    void linhaMalformadaViraErroComONumeroDaLinhaESemInterromperALeitura() throws IOException {
+        List<LinhaExtrato> linhas = ler("""
+                nomeConta,tipo,valor,data,observacao
+                Conta,ACAO,abc,2024-01-01,
+                Conta,ACAO,10,31/02/2024,
+
+                Conta,ACAO,10,2024-01-01,"quebra
+                de linha"
+                Conta,ACAO,10,2024-01-01
+                """);
+
+        assertThat(linhas).extracting(LinhaExtrato::numero).containsExactly(2, 3, 5, 7);
+        assertThat(linhas.get(0).erro()).contains("número inválido 'abc'");
+        assertThat(linhas.get(1).erro()).contains("data inválida '31/02/2024'");
+        assertThat(linhas.get(2).dto().observacao()).isEqualTo("quebra\nde linha");
+        // Coluna a menos no fim da linha fica vazia
+        assertThat(linhas.get(3).dto().observacao()).isNull();
+    }
+
+    @Test
+    void cabecalhoSemColunaObrigatoriaRecusaOArquivo() {
+        assertThatThrownBy(() -> ler("nomeConta;valor;data\nConta;10;2024-01-01\n"))
+                .isInstanceOf(RegraDeNegocioException.class)
+                .hasMessageContaining("tipo");
+        assertThatThrownBy(() -> ler(""))
+                .isInstanceOf(RegraDeNegocioException.class);
+    }
+
+    private static List<LinhaExtrato> ler(String csv) throws IOException {
+        List<LinhaExtrato> linhas = new ArrayList<>();
+        new LeitorCsvSaldos().ler(new StringReader(csv), linhas::add);
+        return linhas;
+    }
+}
@@ -0,0 +1,107 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.service.LeitorExtrato.LinhaExtrato;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Extratos OFX em SGML (tags folha sem fechamento), como os exportados pelas corretoras.
+ */
+class LeitorOfxSaldosTest {
+
+    private static final String CABECALHO = """
+            OFXHEADER:100
+            DATA:OFXSGML
+            <OFX><INVSTMTMSGSRSV1><INVSTMTTRNRS><INVSTMTRS>
+            <CURDEF>BRL
+            <INVACCTFROM><BROKERID>corretora.com.br<ACCTID>123</INVACCTFROM>
+            """;
+    private static final String RODAPE = """
+            </INVSTMTRS></INVSTMTTRNRS></INVSTMTMSGSRSV1></OFX>
+            """;
+
+    @Test
+    void custoSaiDasComprasEVendasPeloPrecoMedio() throws IOException {
+        List<LinhaExtrato> linhas = ler(
+                "<INVTRANLIST>"
+                        + compra("BUYSTOCK", "PETR4", "100", "-3005.00")
+                        + compra("BUYSTOCK", "PETR4", "100", "-3995.00")
+                        + venda("SELLSTOCK", "PETR4", "-50", "1900.00")
+                        + "</INVTRANLIST>"
+                        + "<INVPOSLIST>" + posicao("POSSTOCK", "PETR4", "150", "5700.00") + "</INVPOSLIST>");
+
+        assertThat(linhas).hasSize(1);
+        LinhaExtrato petr4 = linhas.get(0);
+        assertThat(petr4.erro()).isNull();
+        assertThat(petr4.aviso()).isNull();
+        // 7000 de custo para 200 ações; vendidas 50, ficam 150 a 35,00
+        assertThat(petr4.dto().valor()).isEqualTo(5250.00);
+        assertThat(petr4.dto().quantidade()).isEqualTo(150.0);
+        assertThat(petr4.dto().tipo()).isEqualTo("ACAO");
+        assertThat(petr4.dto().nomeConta()).isEqualTo("corretora.com.br");
+        assertThat(petr4.dto().moeda()).isEqualTo("BRL");
+        assertThat(petr4.dto().data()).isEqualTo(LocalDate.of(2024, 1, 31));
+    }
+
+    @Test
+    void semTransacoesQueExpliquemAPosicaoOValorFicaVazioComAviso() throws IOException {
+        List<LinhaExtrato> linhas = ler(
+                "<INVTRANLIST>" + compra("BUYSTOCK", "VALE3", "10", "-700") + "</INVTRANLIST>"
+                        + "<INVPOSLIST>"
+                        + posicao("POSSTOCK", "VALE3", "30", "2100.00")
+                        + posicao("POSMF", "BRFUNDO01", "1000", "1500.00")
+                        + "</INVPOSLIST>");
+
+        assertThat(linhas).hasSize(2).allMatch(linha -> linha.erro() == null);
+        assertThat(linhas.get(0).dto().valor()).isNull();
+        assertThat(linhas.get(0).aviso()).contains("VALE3");
+        // Fundo de investimento não é FII
+        assertThat(linhas.get(1).dto().tipo()).isEqualTo("FUNDO");
+        assertThat(linhas.get(1).dto().valor()).isNull();
+    }
+
+    @Test
+    void rendaFixaSemCustoEPosicaoMalformadaViramErro() throws IOException {
+        List<LinhaExtrato> linhas = ler("<INVPOSLIST>"
+                + posicao("POSDEBT", "CDB-XYZ", "1", "1050.00")
+                + posicao("POSSTOCK", "ITUB4", "dez", "300.00")
+                + posicao("POSSTOCK", "BBAS3", "5", "250.00")
+                + "</INVPOSLIST>");
+
+        assertThat(linhas).extracting(LinhaExtrato::numero).containsExactly(1, 2, 3);
+        assertThat(linhas.get(0).erro()).contains("CDB-XYZ");
+        assertThat(linhas.get(1).erro()).contains("número inválido 'dez'");
+        assertThat(linhas.get(2).dto().simbolo()).isEqualTo("BBAS3");
+    }
+
+    private static List<LinhaExtrato> ler(String corpo) throws IOException {
+        List<LinhaExtrato> linhas = new ArrayList<>();
+        new LeitorOfxSaldos(null).ler(new StringReader(CABECALHO + corpo + RODAPE), linhas::add);
+        return linhas;
+    }
+
+    private static String compra(String tipo, String papel, String unidades, String total) {
+        return "<" + tipo + "><INVBUY><INVTRAN><FITID>1<DTTRADE>20240110</INVTRAN>"
+                + "<SECID><UNIQUEID>" + papel + "<UNIQUEIDTYPE>TICKER</SECID>"
+                + "<UNITS>" + unidades + "<UNITPRICE>30<TOTAL>" + total + "</INVBUY></" + tipo + ">\n";
+    }
+
+    private static String venda(String tipo, String papel, String unidades, String total) {
+        return "<" + tipo + "><INVSELL><INVTRAN><FITID>2<DTTRADE>20240120</INVTRAN>"
+                + "<SECID><UNIQUEID>" + papel + "<UNIQUEIDTYPE>TICKER</SECID>"
+                + "<UNITS>" + unidades + "<UNITPRICE>38<TOTAL>" + total + "</INVSELL></" + tipo + ">\n";
+    }
+
+    private static String posicao(String tipo, String papel, String unidades, String valorMercado) {
+        return "<" + tipo + "><INVPOS><SECID><UNIQUEID>" + papel + "<UNIQUEIDTYPE>TICKER</SECID>"
+                + "<HELDINACCT>CASH<POSTYPE>LONG<UNITS>" + unidades + "<UNITPRICE>38"
+                + "<MKTVAL>" + valorMercado + "<DTPRICEASOF>20240131</INVPOS></" + tipo + ">\n";
+    }
+}
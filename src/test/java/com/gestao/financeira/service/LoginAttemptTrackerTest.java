@@ -0,0 +1,98 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.LoginDTO;
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Bloqueio e contadores de login gravados no banco de verdade (SQLite), passando pelo
+ * {@link AuthService#login} transacional.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:login-tracker?mode=memory&cache=shared",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.secret=bG9naW4tdHJhY2tlci1sb2dpbi10cmFja2VyLWxvZ2luLXRyYWNrZXItdGVzdGU=",
+        "app.security.token-secret=bG9naW4tdHJhY2tlci10b2tlbnMtbG9naW4tdHJhY2tlci10b2tlbnM=",
+        "app.security.bcrypt.cost=4",
+        "app.security.login-tracker.flush-interval-ms=3600000",
+        "app.social.google-client-id=teste",
+        "app.historico.diretorio=${java.io.tmpdir}/login-tracker-historico",
+        "ai.gemini.key=teste",
+        "api.key=teste",
+        "api.cmc-key=teste",
+        "api.gov-url=http://localhost:0/{codigo}",
+        "api.brapi-url=http://localhost:0/{tickers}?token={token}",
+        "api.brapi-token=teste"
+})
+class LoginAttemptTrackerTest {
+
+    @Autowired
+    private AuthService authService;
+    @Autowired
+    private LoginAttemptTracker loginAttemptTracker;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void quintaSenhaErradaBloqueiaAContaNaTransacaoDoLogin() {
+        User user = novoUsuario("bloqueio@example.com");
+
+        for (int i = 0; i < User.MAX_FAILED_ATTEMPTS; i++) {
+            assertThatThrownBy(() -> authService.login(new LoginDTO("bloqueio@example.com", "Errada@123")))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+
+        Map<String, Object> linha = contadores(user);
+        assertThat(((Number) linha.get("failed_login_attempts")).intValue()).isEqualTo(User.MAX_FAILED_ATTEMPTS);
+        assertThat(linha.get("locked_until")).isNotNull();
+        assertThat(userRepository.findById(user.getId()).orElseThrow().isAccountLocked()).isTrue();
+    }
+
+    @Test
+    void saveDaEntidadeNaoSobrescreveOsContadores() {
+        User desatualizado = novoUsuario("contadores@example.com");
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> authService.login(new LoginDTO("contadores@example.com", "Errada@123")))
+                    .isInstanceOf(BadCredentialsException.class);
+        }
+        loginAttemptTracker.flush();
+
+        // Entidade lida antes das falhas (failedLoginAttempts = 0 em memória), salva depois delas
+        desatualizado.setName("Outro nome");
+        userRepository.save(desatualizado);
+
+        Map<String, Object> linha = contadores(desatualizado);
+        assertThat(((Number) linha.get("failed_login_attempts")).intValue()).isEqualTo(2);
+        assertThat(userRepository.findById(desatualizado.getId()).orElseThrow().getName()).isEqualTo("Outro nome");
+    }
+
+    private User novoUsuario(String email) {
+        User user = new User();
+        user.setName("Login");
+        user.setEmail(email);
+        user.setPasswordHash(passwordEncoder.encode("Certa@123"));
+        user.setEmailVerified(true);
+        return userRepository.save(user);
+    }
+
+    private Map<String, Object> contadores(User user) {
+        return jdbcTemplate.queryForMap(
+                "SELECT failed_login_attempts, locked_until FROM users WHERE id = ?", user.getId());
+    }
+}
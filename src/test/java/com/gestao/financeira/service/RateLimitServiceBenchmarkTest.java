@@ -0,0 +1,92 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.config.RateLimitProperties;
+import com.gestao.financeira.config.RateLimitProperties.Politica;
+import com.gestao.financeira.config.RateLimitProperties.TipoChave;
+import com.gestao.financeira.exception.RateLimitExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vazão de {@link RateLimitService#consume} com muitas threads disputando poucas chaves quentes e
+ * um fluxo de chaves únicas (IPs rotativos) maior que o cache. Fora do build padrão; rodar com:
+ * {@code mvn test -Dgroups=benchmark -Dsurefire.excludedGroups=}
+ */
+@Tag("benchmark")
+@Slf4j
+class RateLimitServiceBenchmarkTest {
+
+    private static final int THREADS = 32;
+    private static final int CHAVES_QUENTES = 16;
+    private static final int OPERACOES_POR_THREAD = 200_000;
+    private static final int TAMANHO_CACHE = 10_000;
+
+    private static final RateLimitProperties POLITICAS = new RateLimitProperties(List.of(
+            new Politica("alta", List.of(), List.of(), TipoChave.IP, 1_000_000, Duration.ofSeconds(60))));
+
+    @Test
+    void consumoSobDisputa() throws Exception {
+        LocalRateLimitBackend backend = new LocalRateLimitBackend(TAMANHO_CACHE, Duration.ofMinutes(30));
+        RateLimitService service = new RateLimitService(backend, POLITICAS);
+
+        // Aquecimento
+        rodar(service, 4, 50_000);
+
+        LongAdder bloqueadas = new LongAdder();
+        long inicio = System.nanoTime();
+        long total = rodar(service, THREADS, OPERACOES_POR_THREAD, bloqueadas);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        log.info("consume(): {} threads, {} chamadas em {} s -> {} ops/s ({} bloqueadas), cache ~{} chaves",
+                THREADS, total, String.format("%.2f", segundos), String.format("%,.0f", total / segundos),
+                bloqueadas.sum(), backend.tamanhoEstimado());
+
+        assertThat(backend.tamanhoEstimado()).isLessThanOrEqualTo(TAMANHO_CACHE);
+    }
+
+    private long rodar(RateLimitService service, int threads, int operacoes) throws Exception {
+        return rodar(service, threads, operacoes, new LongAdder());
+    }
+
+    private long rodar(RateLimitService service, int threads, int operacoes, LongAdder bloqueadas) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            tarefas.add(executor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < operacoes; i++) {
+                    // 7 de cada 8 chamadas em chaves quentes; o resto em chaves únicas que forçam eviction
+                    String chave = (i & 7) != 0
+                            ? "ip:quente-" + (i % CHAVES_QUENTES)
+                            : "ip:unico-" + thread + "-" + i;
+                    try {
+                        service.consume("alta", chave);
+                    } catch (RateLimitExceededException e) {
+                        bloqueadas.increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get();
+        }
+        executor.shutdown();
+        return (long) threads * operacoes;
+    }
+}
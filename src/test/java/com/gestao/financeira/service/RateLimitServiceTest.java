@@ -0,0 +1,55 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.config.RateLimitProperties;
+import com.gestao.financeira.config.RateLimitProperties.Politica;
+import com.gestao.financeira.config.RateLimitProperties.TipoChave;
+import com.gestao.financeira.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitServiceTest {
+
+    private static final int TAMANHO_CACHE = 10_000;
+
+    private static final RateLimitProperties POLITICAS = new RateLimitProperties(List.of(
+            new Politica("baixa", List.of(), List.of(), TipoChave.IP, 10, Duration.ofSeconds(60))));
+
+    @Test
+    void inundarComChavesNovasNaoZeraChaveQuente() {
+        RateLimitService service = new RateLimitService(new LocalRateLimitBackend(TAMANHO_CACHE, Duration.ofMinutes(30)), POLITICAS);
+
+        for (int i = 0; i < 10; i++) {
+            service.consume("baixa", "ip:atacante");
+        }
+        assertThatThrownBy(() -> service.consume("baixa", "ip:atacante")).isInstanceOf(RateLimitExceededException.class);
+
+        // Dez vezes o tamanho do cache em IPs que aparecem uma vez só, continuando a bater na chave quente
+        for (int i = 0; i < TAMANHO_CACHE * 10; i++) {
+            service.consume("baixa", "ip:novo-" + i);
+            if (i % 100 == 0) {
+                consumirIgnorandoLimite(service, "ip:atacante");
+            }
+        }
+
+        assertThatThrownBy(() -> service.consume("baixa", "ip:atacante")).isInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    void politicaDesconhecidaFalhaEmVezDeLiberar() {
+        RateLimitService service = new RateLimitService(new LocalRateLimitBackend(TAMANHO_CACHE, Duration.ofMinutes(30)), POLITICAS);
+
+        assertThatThrownBy(() -> service.consume("inexistente", "ip:1")).isInstanceOf(IllegalStateException.class);
+    }
+
+    private void consumirIgnorandoLimite(RateLimitService service, String chave) {
+        try {
+            service.consume("baixa", chave);
+        } catch (RateLimitExceededException ignored) {
+            // Esperado: a chave continua bloqueada
+        }
+    }
+}
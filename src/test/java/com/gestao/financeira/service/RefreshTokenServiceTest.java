@@ -0,0 +1,141 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.UserUpdateDTO;
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.BadCredentialsException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Rotação de refresh tokens contra o banco (SQLite em arquivo, para as transações concorrentes
+ * esperarem o lock em vez de falhar como no modo memória compartilhada).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:${java.io.tmpdir}/refresh-token-service-test.db",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.secret=cmVmcmVzaC10b2tlbi1yZWZyZXNoLXRva2VuLXJlZnJlc2gtdG9rZW4tdGVzdGU=",
+        "app.security.token-secret=cmVmcmVzaC10b2tlbnMtaG1hYy1yZWZyZXNoLXRva2Vucy1obWFjLXRlc3Rl",
+        "app.security.bcrypt.cost=4",
+        "app.social.google-client-id=teste",
+        "app.historico.diretorio=${java.io.tmpdir}/refresh-token-historico",
+        "ai.gemini.key=teste",
+        "api.key=teste",
+        "api.cmc-key=teste",
+        "api.gov-url=http://localhost:0/{codigo}",
+        "api.brapi-url=http://localhost:0/{tickers}?token={token}",
+        "api.brapi-token=teste"
+})
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void rotacaoEmiteTokenNovoEInvalidaOAnterior() {
+        User user = novoUsuario("rotacao@example.com");
+        String primeiro = refreshTokenService.emitir(user);
+
+        RefreshTokenService.Rotacao rotacao = refreshTokenService.rotacionar(primeiro);
+
+        assertThat(rotacao.user().getId()).isEqualTo(user.getId());
+        assertThat(rotacao.refreshToken()).isNotEqualTo(primeiro);
+        assertThat(refreshTokenService.rotacionar(rotacao.refreshToken()).refreshToken()).isNotBlank();
+    }
+
+    @Test
+    void reusoDeTokenJaRotacionadoDerrubaAFamilia() {
+        String primeiro = refreshTokenService.emitir(novoUsuario("reuso@example.com"));
+        String segundo = refreshTokenService.rotacionar(primeiro).refreshToken();
+
+        assertThatThrownBy(() -> refreshTokenService.rotacionar(primeiro)).isInstanceOf(BadCredentialsException.class);
+        // O token legítimo mais novo caiu junto com a família
+        assertThatThrownBy(() -> refreshTokenService.rotacionar(segundo)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void refreshesConcorrentesComOMesmoTokenSoUmPassa() throws Exception {
+        String token = refreshTokenService.emitir(novoUsuario("concorrente@example.com"));
+        int threads = 8;
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger sucessos = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tarefas = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tarefas.add(() -> {
+                    largada.await();
+                    try {
+                        refreshTokenService.rotacionar(token);
+                        sucessos.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        // Perdeu a corrida: reuso detectado ou lock do banco
+                    }
+                    return null;
+                });
+            }
+            List<Future<Void>> futuros = new ArrayList<>();
+            for (Callable<Void> tarefa : tarefas) {
+                futuros.add(executor.submit(tarefa));
+            }
+            largada.countDown();
+            for (Future<Void> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(sucessos.get()).isEqualTo(1);
+    }
+
+    @Test
+    void trocaDeEmailInvalidaOsRefreshTokensEmitidos() {
+        User user = novoUsuario("antigo@example.com");
+        String token = refreshTokenService.emitir(user);
+
+        userService.updateProfile(user.getId(), new UserUpdateDTO(null, "novo@example.com"));
+
+        assertThat(userService.findUserByIdOrThrow(user.getId()).getSecurityVersion()).isEqualTo(1);
+        assertThatThrownBy(() -> refreshTokenService.rotacionar(token)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void trocaDeRolesInvalidaOsRefreshTokensEmitidos() {
+        User user = novoUsuario("roles@example.com");
+        String token = refreshTokenService.emitir(user);
+
+        user.setRoles(Set.of("ROLE_USER", "ROLE_ADMIN"));
+        userRepository.save(user);
+
+        assertThatThrownBy(() -> refreshTokenService.rotacionar(token)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    private User novoUsuario(String email) {
+        User user = new User();
+        user.setName("Refresh");
+        user.setEmail(email);
+        user.setPasswordHash("x");
+        user.setEmailVerified(true);
+        return userRepository.save(user);
+    }
+}
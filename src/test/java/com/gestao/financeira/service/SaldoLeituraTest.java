@@ -0,0 +1,178 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.SaldoFiltroDTO;
+import com.gestao.financeira.dto.SaldoPaginaDTO;
+import com.gestao.financeira.dto.SaldoResponseDTO;
+import com.gestao.financeira.entity.Saldo;
+import com.gestao.financeira.entity.User;
+import com.gestao.financeira.repository.SaldoRepository;
+import com.gestao.financeira.repository.UserRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A leitura projetada direto no DTO tem que devolver exatamente o que o caminho antigo
+ * (entidades mapeadas com {@link SaldoResponseDTO#fromEntity}) devolvia, inclusive campos nulos.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:sqlite:file:leitura-saldos?mode=memory&cache=shared",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "jwt.secret=bGVpdHVyYS1zYWxkb3MtbGVpdHVyYS1zYWxkb3MtbGVpdHVyYS1zYWxkb3MtdGVzdGU=",
+        "app.security.token-secret=bGVpdHVyYS1zYWxkb3MtdG9rZW5zLWxlaXR1cmEtc2FsZG9zLXRva2Vucw==",
+        "app.social.google-client-id=teste",
+        "app.historico.diretorio=${java.io.tmpdir}/leitura-saldos-historico",
+        "ai.gemini.key=teste",
+        "api.key=teste",
+        "api.cmc-key=teste",
+        "api.gov-url=http://localhost:0/{codigo}",
+        "api.brapi-url=http://localhost:0/{tickers}?token={token}",
+        "api.brapi-token=teste"
+})
+class SaldoLeituraTest {
+
+    private static final int SALDOS = 60;
+
+    @Autowired
+    private SaldoService saldoService;
+    @Autowired
+    private SaldoRepository saldoRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+
+    @BeforeAll
+    void popular() {
+        user = novoUsuario("leitura@example.com");
+        User outro = novoUsuario("outro@example.com");
+
+        List<Saldo> saldos = new ArrayList<>();
+        for (int i = 0; i < SALDOS; i++) {
+            boolean acao = i % 2 == 0;
+            Saldo saldo = new Saldo();
+            saldo.setUser(user);
+            saldo.setNomeConta("Conta " + (i % 7));
+            saldo.setTipo(acao ? "ACAO" : "renda_fixa");
+            saldo.setSimbolo(acao ? "PETR4" : null);
+            saldo.setQuantidade(acao ? BigDecimal.TEN : null);
+            saldo.setTaxa(acao ? null : new BigDecimal("0.1175"));
+            saldo.setValor(BigDecimal.valueOf(1000 + i));
+            saldo.setMoeda("BRL");
+            // Um em cada cinco sem data, e datas repetidas para o desempate por id
+            saldo.setData(i % 5 == 0 ? null : LocalDate.of(2024, 1, 1).plusDays(i % 9));
+            saldo.setObservacao(i % 3 == 0 ? "obs " + i : null);
+            saldos.add(saldo);
+        }
+        Saldo doOutro = new Saldo();
+        doOutro.setUser(outro);
+        doOutro.setNomeConta("Outra");
+        doOutro.setTipo("ACAO");
+        doOutro.setValor(BigDecimal.ONE);
+        doOutro.setMoeda("BRL");
+        saldos.add(doOutro);
+        saldoRepository.saveAll(saldos);
+    }
+
+    @Test
+    void projecaoDevolveOMesmoQueAsEntidades() {
+        assertThat(porId(saldoService.listarDoUsuario(user.getId()))).isEqualTo(porId(entidades()));
+    }
+
+    @Test
+    void listagemSemCursorNemLimiteTrazTudoNaOrdemDoIndice() {
+        List<SaldoResponseDTO> itens = saldoService.listarPagina(user.getId(), semFiltro(), null, null).itens();
+
+        Comparator<SaldoResponseDTO> datadosPrimeiro = Comparator
+                .comparing(SaldoResponseDTO::data, Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(SaldoResponseDTO::id, Comparator.reverseOrder());
+        assertThat(itens).hasSize(SALDOS).isSortedAccordingTo(datadosPrimeiro);
+        assertThat(porId(itens)).isEqualTo(porId(entidades()));
+    }
+
+    @Test
+    void paginasPeloCursorCobremTudoSemRepetir() {
+        List<SaldoResponseDTO> percorridos = new ArrayList<>();
+        String cursor = null;
+        do {
+            SaldoPaginaDTO pagina = saldoService.listarPagina(user.getId(), semFiltro(), cursor, 7);
+            assertThat(pagina.itens()).hasSizeLessThanOrEqualTo(7);
+            percorridos.addAll(pagina.itens());
+            cursor = pagina.proximoCursor();
+        } while (cursor != null);
+
+        assertThat(percorridos).isEqualTo(saldoService.listarPagina(user.getId(), semFiltro(), null, null).itens());
+    }
+
+    @Test
+    void filtroDeTipoIgnoraMaiusculas() {
+        SaldoFiltroDTO filtro = new SaldoFiltroDTO(" Renda_Fixa ", null, null, null, null);
+
+        List<SaldoResponseDTO> itens = saldoService.listarPagina(user.getId(), filtro, null, null).itens();
+
+        // Gravado como "renda_fixa", normalizado na escrita
+        assertThat(itens).hasSize(SALDOS / 2).allMatch(s -> s.tipo().equals("RENDA_FIXA"));
+    }
+
+    @Test
+    void cursorAtravessaACaudaSemDataEmQualquerTamanhoDePagina() {
+        List<SaldoResponseDTO> tudo = saldoService.listarPagina(user.getId(), semFiltro(), null, null).itens();
+        long datados = tudo.stream().filter(s -> s.data() != null).count();
+        SaldoFiltroDTO rendaFixa = new SaldoFiltroDTO("renda_fixa", null, null, null, null);
+        List<SaldoResponseDTO> soRendaFixa = saldoService.listarPagina(user.getId(), rendaFixa, null, null).itens();
+
+        // Páginas que terminam logo antes, em cima e logo depois da virada para os saldos sem data
+        for (int limite : new int[]{1, (int) datados - 1, (int) datados, (int) datados + 1, SALDOS, SALDOS + 1}) {
+            assertThat(percorrer(semFiltro(), limite)).as("limite %d", limite).isEqualTo(tudo);
+            assertThat(percorrer(rendaFixa, limite)).as("renda fixa, limite %d", limite).isEqualTo(soRendaFixa);
+        }
+        assertThat(tudo.subList((int) datados, SALDOS)).allMatch(s -> s.data() == null);
+    }
+
+    private List<SaldoResponseDTO> percorrer(SaldoFiltroDTO filtro, int limite) {
+        List<SaldoResponseDTO> percorridos = new ArrayList<>();
+        String cursor = null;
+        do {
+            SaldoPaginaDTO pagina = saldoService.listarPagina(user.getId(), filtro, cursor, limite);
+            assertThat(pagina.itens()).hasSizeLessThanOrEqualTo(limite);
+            percorridos.addAll(pagina.itens());
+            cursor = pagina.proximoCursor();
+        } while (cursor != null);
+        return percorridos;
+    }
+
+    private List<SaldoResponseDTO> entidades() {
+        return transactionTemplate.execute(status -> saldoRepository.findByUserId(user.getId()).stream()
+                .map(SaldoResponseDTO::fromEntity).toList());
+    }
+
+    private User novoUsuario(String email) {
+        User novo = new User();
+        novo.setName("Leitura");
+        novo.setEmail(email);
+        novo.setPasswordHash("x");
+        return userRepository.save(novo);
+    }
+
+    private static SaldoFiltroDTO semFiltro() {
+        return new SaldoFiltroDTO(null, null, null, null, null);
+    }
+
+    private static List<SaldoResponseDTO> porId(List<SaldoResponseDTO> saldos) {
+        return saldos.stream().sorted(Comparator.comparing(SaldoResponseDTO::id)).toList();
+    }
+}
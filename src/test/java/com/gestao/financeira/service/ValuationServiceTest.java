@@ -0,0 +1,144 @@
+package com.gestao.financeira.service;
+
+import com.gestao.financeira.dto.AtivoRendaVariavelDTO;
+import com.gestao.financeira.dto.CotacaoDolarDTO;
+import com.gestao.financeira.dto.SaldoResponseDTO;
+import com.gestao.financeira.dto.ValuationResponseDTO;
+import com.gestao.financeira.event.CotacoesAtualizadasEvent;
+import com.gestao.financeira.event.SaldoAlteradoEvent;
+import com.gestao.financeira.externalservice.CambioService;
+import com.gestao.financeira.externalservice.CategoriaRendaVariavel;
+import com.gestao.financeira.externalservice.CriptoService;
+import com.gestao.financeira.externalservice.RendaFixaService;
+import com.gestao.financeira.externalservice.RendaVariavelService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Memo por usuário e totais da avaliação, com os caches de cotação no lugar dos serviços externos.
+ */
+class ValuationServiceTest {
+
+    private static final Long USER = 7L;
+
+    private final SaldoService saldoService = mock(SaldoService.class);
+    private final RendaVariavelService rendaVariavelService = mock(RendaVariavelService.class);
+    private final CriptoService criptoService = mock(CriptoService.class);
+    private final RendaFixaService rendaFixaService = mock(RendaFixaService.class);
+    private final CambioService cambioService = mock(CambioService.class);
+    private final ValuationService valuationService = new ValuationService(
+            saldoService, rendaVariavelService, criptoService, rendaFixaService, cambioService);
+
+    @BeforeEach
+    void cotacoesEmCache() {
+        when(rendaVariavelService.ativosEmCache(CategoriaRendaVariavel.ACOES))
+                .thenReturn(List.of(new AtivoRendaVariavelDTO("PETR4", "Petrobras", 40.0, 1.5, null)));
+        when(cambioService.cotacaoEmCache()).thenReturn(new CotacaoDolarDTO(5.0, Instant.now()));
+    }
+
+    @Test
+    void memoValeAteOsSaldosDoUsuarioMudarem() {
+        when(saldoService.listarDoUsuario(USER))
+                .thenReturn(List.of(acao(1L, "10", "300")))
+                .thenReturn(List.of(acao(1L, "20", "600")));
+
+        ValuationResponseDTO primeira = valuationService.avaliarCarteira(USER);
+        assertThat(valuationService.avaliarCarteira(USER)).isSameAs(primeira);
+        verify(saldoService, times(1)).listarDoUsuario(USER);
+
+        // Alteração de outro usuário não mexe no memo deste
+        valuationService.onSaldoAlterado(new SaldoAlteradoEvent(99L, null, null));
+        assertThat(valuationService.avaliarCarteira(USER)).isSameAs(primeira);
+
+        valuationService.onSaldoAlterado(new SaldoAlteradoEvent(USER, null, null));
+        ValuationResponseDTO depois = valuationService.avaliarCarteira(USER);
+
+        verify(saldoService, times(2)).listarDoUsuario(USER);
+        assertThat(primeira.totalMercado()).isEqualByComparingTo("400");
+        assertThat(depois.totalMercado()).isEqualByComparingTo("800");
+    }
+
+    @Test
+    void cotacoesNovasInvalidamOMemo() {
+        when(saldoService.listarDoUsuario(USER)).thenReturn(List.of(acao(1L, "10", "300")));
+
+        valuationService.avaliarCarteira(USER);
+        valuationService.onCotacoesAtualizadas(new CotacoesAtualizadasEvent("renda_variavel"));
+        valuationService.avaliarCarteira(USER);
+
+        verify(saldoService, times(2)).listarDoUsuario(USER);
+    }
+
+    @Test
+    void alteracaoDuranteOCalculoNaoDeixaMemoVelho() {
+        when(saldoService.listarDoUsuario(USER))
+                .thenAnswer(chamada -> {
+                    // O saldo muda depois da leitura e antes do cálculo terminar
+                    valuationService.onSaldoAlterado(new SaldoAlteradoEvent(USER, null, null));
+                    return List.of(acao(1L, "10", "300"));
+                })
+                .thenReturn(List.of(acao(1L, "20", "600")));
+
+        valuationService.avaliarCarteira(USER);
+        ValuationResponseDTO depois = valuationService.avaliarCarteira(USER);
+
+        verify(saldoService, times(2)).listarDoUsuario(USER);
+        assertThat(depois.totalMercado()).isEqualByComparingTo("800");
+    }
+
+    @Test
+    void semDolarEmCacheOsTotaisSaemParciais() {
+        when(cambioService.cotacaoEmCache()).thenReturn(null);
+        when(saldoService.listarDoUsuario(USER)).thenReturn(List.of(
+                acao(1L, "10", "300"),
+                new SaldoResponseDTO(2L, "Exterior", new BigDecimal("100"), "USD", "ETF", "SPY",
+                        BigDecimal.ONE, null, null, LocalDate.of(2025, 1, 2), null)));
+
+        ValuationResponseDTO semDolar = valuationService.avaliarCarteira(USER);
+
+        assertThat(semDolar.parcial()).isTrue();
+        assertThat(semDolar.posicoes()).hasSize(2);
+        assertThat(semDolar.totalInvestido()).isEqualByComparingTo("300");
+
+        when(cambioService.cotacaoEmCache()).thenReturn(new CotacaoDolarDTO(5.0, Instant.now()));
+        valuationService.onCotacoesAtualizadas(new CotacoesAtualizadasEvent("cambio"));
+        ValuationResponseDTO comDolar = valuationService.avaliarCarteira(USER);
+
+        assertThat(comDolar.parcial()).isFalse();
+        assertThat(comDolar.totalInvestido()).isEqualByComparingTo("800");
+    }
+
+    @Test
+    void rendaFixaUsaOIndexadorDaPosicao() {
+        LocalDate aplicacao = LocalDate.of(2025, 1, 2);
+        when(saldoService.listarDoUsuario(USER)).thenReturn(List.of(
+                new SaldoResponseDTO(3L, "Tesouro", new BigDecimal("1000"), "BRL", "RENDA_FIXA", null,
+                        null, new BigDecimal("100"), "SELIC", aplicacao, null)));
+        when(rendaFixaService.calcularRendimentoAcumulado(any(), any(), eq("SELIC"), eq(aplicacao)))
+                .thenReturn(new BigDecimal("50.00"));
+        when(rendaFixaService.estimarRendimentoDiario(any(), any(), eq("SELIC"))).thenReturn(new BigDecimal("0.40"));
+
+        ValuationResponseDTO resultado = valuationService.avaliarCarteira(USER);
+
+        assertThat(resultado.totalMercado()).isEqualByComparingTo("1050");
+        assertThat(resultado.posicoes().get(0).rendimentoDiario()).isEqualByComparingTo("0.40");
+    }
+
+    private static SaldoResponseDTO acao(Long id, String quantidade, String custo) {
+        return new SaldoResponseDTO(id, "Corretora", new BigDecimal(custo), "BRL", "ACAO", "PETR4",
+                new BigDecimal(quantidade), null, null, LocalDate.of(2025, 1, 2), null);
+    }
+}